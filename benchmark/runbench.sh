@@ -0,0 +1,23 @@
+#!/usr/bin/env bash
+
+# Runs the benchmark suite and writes the results to results/<commit>.json.
+# Extra arguments are passed to BenchmarkRunner, e.g. ./runbench.sh --filter storage --sizes 1000
+# Compare two runs with: java -classpath ../bin-bench BenchmarkRunner --compare old.json new.json
+
+# create bin directories if they don't exist
+mkdir -p ../bin ../bin-bench results
+
+# compile the application and the benchmarks, terminates if error occurred
+if ! javac -Xlint:none -d ../bin ../src/main/java/*.java
+then
+    echo "********** BUILD FAILURE **********"
+    exit 1
+fi
+if ! javac -Xlint:none -cp ../bin -d ../bin-bench ../src/bench/java/*.java
+then
+    echo "********** BUILD FAILURE **********"
+    exit 1
+fi
+
+commit=$(git rev-parse --short HEAD 2>/dev/null || echo unknown)
+java -Xms2g -Xmx2g -classpath ../bin:../bin-bench BenchmarkRunner --commit "$commit" --out "results/$commit.json" "$@"
@@ -0,0 +1,210 @@
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+/**
+ * Defines the benchmarks for the hot paths of Asep: parsing commands, loading and saving the
+ * data file, searching, and the basic TaskList operations.
+ */
+public class AsepBenchmarks {
+    private static final String[] COMMANDS = {
+        "bye",
+        "list",
+        "list 3",
+        "mark 12",
+        "unmark 12",
+        "delete 12",
+        "todo read the lecture notes",
+        "deadline submit assignment /by 2025-03-15",
+        "event team meeting /from Mon 2pm /to 4pm",
+        "find lecture",
+    };
+
+    /**
+     * Registers every benchmark with the runner.
+     *
+     * @param runner the runner to register the benchmarks with.
+     */
+    public static void register(BenchmarkRunner runner) {
+        for (String command : COMMANDS) {
+            String name = "parser.parse." + command.replace(' ', '_').replaceAll("_.*", "")
+                    + (command.equals("list 3") ? "_page" : "");
+            runner.add(name, size -> () -> Parser.parse(command).hashCode());
+        }
+        runner.addSized("storage.load", AsepBenchmarks::setUpLoad);
+        runner.addSized("storage.save", AsepBenchmarks::setUpSave);
+        runner.addSized("find.execute", AsepBenchmarks::setUpFind);
+        runner.addSized("find.query", AsepBenchmarks::setUpFindQuery);
+        runner.addSized("find.scan", AsepBenchmarks::setUpFindScan);
+        runner.addSized("tokenindex.build", AsepBenchmarks::setUpTokenIndexBuild);
+        runner.addSized("ui.showTaskList", AsepBenchmarks::setUpShowTaskList);
+        runner.addSized("tasklist.add", AsepBenchmarks::setUpAdd);
+        runner.addSized("tasklist.removeFirst", AsepBenchmarks::setUpRemoveFirst);
+        runner.addSized("tasklist.get", AsepBenchmarks::setUpGet);
+        runner.addSized("tasklist.sortedPage", AsepBenchmarks::setUpSortedPage);
+        runner.addSized("exchange.export", AsepBenchmarks::setUpExport);
+        runner.addSized("exchange.import", AsepBenchmarks::setUpImport);
+    }
+
+    /**
+     * Creates a deterministic task list with a mix of todos, deadlines and events.
+     *
+     * @param size the number of tasks.
+     * @return the task list.
+     */
+    static TaskList createTasks(int size) {
+        TaskList tasks = new TaskList();
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        for (int i = 0; i < size; i++) {
+            Task task;
+            switch (i % 3) {
+                case 0:
+                    task = new Todo("read chapter " + i + " of the lecture notes");
+                    break;
+                case 1:
+                    task = new Deadline("submit assignment " + i, start.plusDays(i % 730));
+                    break;
+                default:
+                    task = new Event("project meeting " + i, "Mon " + (i % 12 + 1) + "pm", "6pm");
+                    break;
+            }
+            if (i % 5 == 0) {
+                task.markAsDone();
+            }
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private static Path createDataFile(int size) throws Exception {
+        Path directory = Files.createTempDirectory("asep-bench");
+        directory.toFile().deleteOnExit();
+        Path file = directory.resolve("asep.txt");
+        new Storage(file.toString()).saveTasks(createTasks(size));
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    private static BenchmarkRunner.Operation setUpLoad(int size) throws Exception {
+        Storage storage = new Storage(createDataFile(size).toString());
+        return () -> storage.loadTasks().size();
+    }
+
+    private static BenchmarkRunner.Operation setUpSave(int size) throws Exception {
+        Storage storage = new Storage(createDataFile(size).toString());
+        TaskList tasks = createTasks(size);
+        return () -> {
+            storage.saveTasks(tasks);
+            return tasks.size();
+        };
+    }
+
+    private static BenchmarkRunner.Operation setUpFind(int size) {
+        TaskList tasks = createTasks(size);
+        Ui ui = new Ui(InputStream.nullInputStream(), OutputStream.nullOutputStream());
+        Storage storage = new Storage("unused");
+        Command command = new FindCommand("assignment 1" + (size / 7));
+        return () -> {
+            command.execute(tasks, ui, storage);
+            return tasks.size();
+        };
+    }
+
+    private static BenchmarkRunner.Operation setUpFindQuery(int size) throws Exception {
+        TaskList tasks = createTasks(size);
+        TaskQuery query = Parser.parseQuery("assignment AND type:D AND NOT done AND before:2025-01-15");
+        return () -> tasks.find(query).size();
+    }
+
+    private static BenchmarkRunner.Operation setUpFindScan(int size) throws Exception {
+        TaskList tasks = createTasks(size);
+        TaskQuery query = Parser.parseQuery("type:E AND NOT done");
+        return () -> tasks.find(query).size();
+    }
+
+    private static BenchmarkRunner.Operation setUpTokenIndexBuild(int size) {
+        TaskList tasks = createTasks(size);
+        return () -> {
+            TokenIndex index = new TokenIndex();
+            for (Task task : tasks.getTasks()) {
+                index.add(task);
+            }
+            return index.count("lecture");
+        };
+    }
+
+    private static BenchmarkRunner.Operation setUpShowTaskList(int size) {
+        TaskList tasks = createTasks(size);
+        Ui ui = new Ui(InputStream.nullInputStream(), OutputStream.nullOutputStream());
+        return () -> {
+            ui.showTaskList(tasks);
+            return tasks.size();
+        };
+    }
+
+    private static BenchmarkRunner.Operation setUpAdd(int size) {
+        TaskList tasks = createTasks(size);
+        Task task = new Todo("benchmark task");
+        return () -> {
+            tasks.add(task);
+            tasks.remove(tasks.size() - 1);
+            return tasks.size();
+        };
+    }
+
+    private static BenchmarkRunner.Operation setUpRemoveFirst(int size) {
+        TaskList tasks = createTasks(size);
+        return () -> {
+            Task task = tasks.remove(0);
+            tasks.add(task);
+            return tasks.size();
+        };
+    }
+
+    private static BenchmarkRunner.Operation setUpGet(int size) {
+        TaskList tasks = createTasks(size);
+        int[] position = {0};
+        return () -> {
+            position[0] = (position[0] + 7919) % tasks.size();
+            return tasks.get(position[0]).hashCode();
+        };
+    }
+
+    private static BenchmarkRunner.Operation setUpSortedPage(int size) {
+        TaskList tasks = createTasks(size);
+        int[] position = {0};
+        return () -> {
+            position[0] = (position[0] + 7919) % tasks.size();
+            return tasks.getSorted(SortedTaskIndex.Order.DUE_DATE, position[0], position[0] + ListCommand.PAGE_SIZE).size();
+        };
+    }
+
+    private static BenchmarkRunner.Operation setUpExport(int size) throws Exception {
+        TaskList tasks = createTasks(size);
+        Ui ui = new Ui(InputStream.nullInputStream(), OutputStream.nullOutputStream());
+        Path file = createDataFile(0).resolveSibling("tasks.csv");
+        file.toFile().deleteOnExit();
+        Command command = new ExportCommand(file.toString());
+        return () -> {
+            command.execute(tasks, ui, null);
+            return tasks.size();
+        };
+    }
+
+    private static BenchmarkRunner.Operation setUpImport(int size) throws Exception {
+        Path dataFile = createDataFile(0);
+        Path file = dataFile.resolveSibling("tasks.csv");
+        file.toFile().deleteOnExit();
+        Ui ui = new Ui(InputStream.nullInputStream(), OutputStream.nullOutputStream());
+        new ExportCommand(file.toString()).execute(createTasks(size), ui, null);
+        Storage storage = new Storage(dataFile.toString());
+        Command command = new ImportCommand(file.toString());
+        return () -> {
+            TaskList tasks = new TaskList();
+            command.execute(tasks, ui, storage);
+            return tasks.size();
+        };
+    }
+}
@@ -0,0 +1,233 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Runs the Asep micro-benchmarks and writes their results as JSON.
+ * <p>
+ * Each benchmark is warmed up and then measured over several timed iterations, in the spirit of
+ * JMH but without needing any dependency, so the suite runs offline with only a JDK. Results are
+ * written one benchmark per line so that two runs can be compared with {@code --compare}.
+ * </p>
+ * <pre>
+ * java BenchmarkRunner [--filter regex] [--sizes 1000,100000] [--warmup n] [--iterations n]
+ *                      [--time ms] [--commit id] [--out file]
+ * java BenchmarkRunner --compare old.json new.json
+ * </pre>
+ */
+public class BenchmarkRunner {
+    /**
+     * Represents one invocation of the code being measured.
+     */
+    public interface Operation {
+        /**
+         * Runs the measured code once.
+         *
+         * @return any value derived from the result, so that the work cannot be optimised away.
+         * @throws Exception if the measured code fails.
+         */
+        long run() throws Exception;
+    }
+
+    /**
+     * Prepares the state of a benchmark for a given size.
+     */
+    public interface Setup {
+        /**
+         * Creates the operation to measure.
+         *
+         * @param size the number of tasks the benchmark works on.
+         * @return the operation to measure.
+         * @throws Exception if the state cannot be prepared.
+         */
+        Operation create(int size) throws Exception;
+    }
+
+    private static final Pattern RESULT_LINE = Pattern.compile(
+            "\\{\"benchmark\": \"([^\"]+)\", \"size\": (\\d+), \"nsPerOp\": ([0-9.Ee+-]+)");
+
+    private static volatile long sink;
+
+    private final ArrayList<String> names = new ArrayList<>();
+    private final ArrayList<Setup> setups = new ArrayList<>();
+    private final ArrayList<Boolean> isSized = new ArrayList<>();
+
+    private Pattern filter = Pattern.compile(".*");
+    private int[] sizes = {1_000, 100_000, 1_000_000};
+    private int warmupIterations = 3;
+    private int measurementIterations = 5;
+    private long iterationMillis = 500;
+    private String commit = "unknown";
+    private String outputFile = "bench-results.json";
+
+    /**
+     * Registers a benchmark that runs once for every configured size.
+     *
+     * @param name  the benchmark name.
+     * @param setup the setup creating the operation for a size.
+     */
+    public void addSized(String name, Setup setup) {
+        names.add(name);
+        setups.add(setup);
+        isSized.add(true);
+    }
+
+    /**
+     * Registers a benchmark that does not depend on the number of tasks.
+     *
+     * @param name  the benchmark name.
+     * @param setup the setup creating the operation.
+     */
+    public void add(String name, Setup setup) {
+        names.add(name);
+        setups.add(setup);
+        isSized.add(false);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && args[0].equals("--compare")) {
+            compare(Paths.get(args[1]), Paths.get(args[2]));
+            return;
+        }
+        BenchmarkRunner runner = new BenchmarkRunner();
+        runner.parseArguments(args);
+        AsepBenchmarks.register(runner);
+        runner.runAll();
+    }
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--filter":
+                    filter = Pattern.compile(value);
+                    break;
+                case "--sizes":
+                    String[] parts = value.split(",");
+                    sizes = new int[parts.length];
+                    for (int j = 0; j < parts.length; j++) {
+                        sizes[j] = Integer.parseInt(parts[j].trim());
+                    }
+                    break;
+                case "--warmup":
+                    warmupIterations = Integer.parseInt(value);
+                    break;
+                case "--iterations":
+                    measurementIterations = Integer.parseInt(value);
+                    break;
+                case "--time":
+                    iterationMillis = Long.parseLong(value);
+                    break;
+                case "--commit":
+                    commit = value;
+                    break;
+                case "--out":
+                    outputFile = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+    private void runAll() throws Exception {
+        ArrayList<String> results = new ArrayList<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (!filter.matcher(names.get(i)).find()) {
+                continue;
+            }
+            int[] runSizes = isSized.get(i) ? sizes : new int[] {0};
+            for (int size : runSizes) {
+                results.add(measure(names.get(i), size, setups.get(i).create(size)));
+            }
+        }
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(outputFile)))) {
+            writer.println("{\"commit\": \"" + commit + "\", \"timestamp\": \"" + Instant.now()
+                    + "\", \"java\": \"" + System.getProperty("java.version") + "\", \"results\": [");
+            for (int i = 0; i < results.size(); i++) {
+                writer.println("  " + results.get(i) + (i + 1 < results.size() ? "," : ""));
+            }
+            writer.println("]}");
+        }
+        System.out.println("Results written to " + outputFile);
+    }
+
+    private String measure(String name, int size, Operation operation) throws Exception {
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(operation);
+        }
+        double[] nsPerOp = new double[measurementIterations];
+        double total = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            nsPerOp[i] = runIteration(operation);
+            total += nsPerOp[i];
+        }
+        double mean = total / measurementIterations;
+        double squares = 0;
+        for (double value : nsPerOp) {
+            squares += (value - mean) * (value - mean);
+        }
+        double deviation = measurementIterations > 1 ? Math.sqrt(squares / (measurementIterations - 1)) : 0;
+        System.out.printf(Locale.ROOT, "%-28s %10d %16.1f ns/op  +- %.1f%n", name, size, mean, deviation);
+        return String.format(Locale.ROOT, "{\"benchmark\": \"%s\", \"size\": %d, \"nsPerOp\": %.3f, "
+                + "\"stdDev\": %.3f, \"opsPerSecond\": %.3f, \"iterations\": %d}",
+                name, size, mean, deviation, 1e9 / mean, measurementIterations);
+    }
+
+    /**
+     * Runs the operation repeatedly for one iteration period.
+     *
+     * @return the average time per operation in nanoseconds.
+     */
+    private double runIteration(Operation operation) throws Exception {
+        long budget = iterationMillis * 1_000_000L;
+        long count = 0;
+        long accumulator = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            accumulator += operation.run();
+            count++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < budget);
+        sink += accumulator;
+        return (double) elapsed / count;
+    }
+
+    private static void compare(Path oldFile, Path newFile) throws IOException {
+        Map<String, Double> oldResults = readResults(oldFile);
+        Map<String, Double> newResults = readResults(newFile);
+        for (Map.Entry<String, Double> entry : newResults.entrySet()) {
+            Double before = oldResults.get(entry.getKey());
+            if (before == null) {
+                System.out.printf(Locale.ROOT, "%-40s %16.1f ns/op  (new)%n", entry.getKey(), entry.getValue());
+            } else {
+                double change = (entry.getValue() - before) / before * 100;
+                System.out.printf(Locale.ROOT, "%-40s %16.1f -> %16.1f ns/op  %+7.1f%%%n",
+                        entry.getKey(), before, entry.getValue(), change);
+            }
+        }
+    }
+
+    private static Map<String, Double> readResults(Path file) throws IOException {
+        Map<String, Double> results = new LinkedHashMap<>();
+        List<String> lines = Files.readAllLines(file);
+        for (String line : lines) {
+            Matcher matcher = RESULT_LINE.matcher(line.trim());
+            if (matcher.lookingAt()) {
+                results.put(matcher.group(1) + "@" + matcher.group(2), Double.parseDouble(matcher.group(3)));
+            }
+        }
+        return results;
+    }
+}
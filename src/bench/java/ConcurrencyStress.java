@@ -0,0 +1,138 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stresses a TaskList with concurrent readers and a writer, and reports how read throughput
+ * scales with the number of reader threads.
+ * <p>
+ * Each reader alternates between walking a snapshot of the whole list, as "list" and saving do,
+ * and looking up a keyword, as "find" does. Meanwhile one writer keeps adding new tasks,
+ * removing the oldest ones, and marking tasks, so the list size stays about the same. Every
+ * snapshot a reader walks is checked to be consistent: it must hold no gaps and its task IDs must
+ * be strictly increasing, which holds for every state the list passes through because new tasks
+ * get higher IDs and are appended. The run fails if any check fails.
+ * </p>
+ * <pre>
+ * java ConcurrencyStress [--size n] [--time ms] [--threads 1,2,4,8]
+ * </pre>
+ */
+public class ConcurrencyStress {
+    private static volatile long sink;
+
+    public static void main(String[] args) throws Exception {
+        int size = 100_000;
+        long millis = 2_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        ArrayList<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--size":
+                    size = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--time":
+                    millis = Long.parseLong(args[i + 1]);
+                    break;
+                case "--threads":
+                    threadCounts.clear();
+                    for (String part : args[i + 1].split(",")) {
+                        threadCounts.add(Integer.parseInt(part.trim()));
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        System.out.printf(Locale.ROOT, "%d tasks, %d ms per run, %d cores%n", size, millis, cores);
+        double baseline = 0;
+        for (int threads : threadCounts) {
+            double[] result = run(size, millis, threads);
+            if (baseline == 0) {
+                baseline = result[0] / threads;
+            }
+            System.out.printf(Locale.ROOT, "readers %3d %14.1f reads/s  (%.2fx)  writer %12.1f changes/s%n",
+                    threads, result[0], result[0] / baseline, result[1]);
+        }
+    }
+
+    /**
+     * Runs the readers and the writer for the given time.
+     *
+     * @return the reads per second over all readers, and the changes per second of the writer.
+     */
+    private static double[] run(int size, long millis, int threads) throws Exception {
+        TaskList tasks = AsepBenchmarks.createTasks(size);
+        AtomicBoolean isRunning = new AtomicBoolean(true);
+        AtomicLong reads = new AtomicLong();
+        AtomicLong changes = new AtomicLong();
+        ArrayList<Throwable> failures = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(threads + 1);
+        ArrayList<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            String keyword = "assignment 1" + (size / 7 + t);
+            workers.add(new Thread(() -> {
+                try {
+                    long count = 0;
+                    while (isRunning.get()) {
+                        sink += count % 2 == 0 ? checkSnapshot(tasks.getTasks()) : tasks.find(keyword).size();
+                        count++;
+                    }
+                    reads.addAndGet(count);
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "stress-reader-" + t));
+        }
+        workers.add(new Thread(() -> {
+            try {
+                long count = 0;
+                while (isRunning.get()) {
+                    tasks.add(new Todo("stress task " + count));
+                    tasks.remove(0);
+                    tasks.markAsDone((int) (count % tasks.size()));
+                    count += 3;
+                }
+                changes.addAndGet(count);
+            } catch (Throwable e) {
+                synchronized (failures) {
+                    failures.add(e);
+                }
+            } finally {
+                done.countDown();
+            }
+        }, "stress-writer"));
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        Thread.sleep(millis);
+        isRunning.set(false);
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Stress run failed", failures.get(0));
+        }
+        return new double[] {reads.get() / seconds, changes.get() / seconds};
+    }
+
+    private static long checkSnapshot(List<Task> snapshot) {
+        int previousId = 0;
+        for (Task task : snapshot) {
+            if (task == null || task.getId() <= previousId) {
+                throw new IllegalStateException("Inconsistent snapshot after ID " + previousId);
+            }
+            previousId = task.getId();
+        }
+        return previousId;
+    }
+}
@@ -1,24 +1,68 @@
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
 
 /**
  * Represents the main application class for Asep.
- * Initializes the UI, storage, and task list, loads tasks from file,
- * and runs the main command processing loop.
+ * Initializes the UI and the named task lists, loads the default list from file,
+ * and runs the main command processing loop, executes a script of commands in batch mode, or
+ * serves clients over a local socket in server mode.
  */
 public class Asep {
-    private Storage storage;
-    private TaskList tasks;
+    /** The number of seconds between writes of the stats file when no other interval is given. */
+    public static final long DEFAULT_STATS_INTERVAL = 60;
+
+    private static final List<String> OPTIONS_WITH_VALUES = List.of(
+            "--commit-every", "--max-lists", "--max-tasks", "--stats-file", "--stats-every");
+    private static final String USAGE = "Usage: asep [--batch | SCRIPT] [--commit-every N]"
+            + " [--server [PORT]] [--max-lists N] [--max-tasks N] [--compact-memory]"
+            + " [--stats-file PATH] [--stats-every N]";
+
+    private TaskLists lists;
+    private Workspace workspace;
     private Ui ui;
 
     public Asep(String filePath) {
+        this(filePath, TaskLists.DEFAULT_MAX_LOADED_LISTS, TaskLists.DEFAULT_MAX_LOADED_TASKS);
+    }
+
+    /**
+     * Constructs an Asep whose default list is kept in the given file, keeping at most the given
+     * number of lists and tasks in memory.
+     *
+     * @param filePath       the data file of the default list.
+     * @param maxLoadedLists the number of lists to keep loaded.
+     * @param maxLoadedTasks the number of tasks, over all loaded lists, to keep in memory.
+     */
+    public Asep(String filePath, int maxLoadedLists, long maxLoadedTasks) {
+        this(filePath, maxLoadedLists, maxLoadedTasks, false);
+    }
+
+    /**
+     * Constructs an Asep with the given memory budget, optionally keeping the tasks of every list
+     * in {@link TaskColumns}.
+     *
+     * @param filePath       the data file of the default list.
+     * @param maxLoadedLists the number of lists to keep loaded.
+     * @param maxLoadedTasks the number of tasks, over all loaded lists, to keep in memory.
+     * @param isColumnar     whether tasks are packed into columns to save memory.
+     */
+    public Asep(String filePath, int maxLoadedLists, long maxLoadedTasks, boolean isColumnar) {
         ui = new Ui();
-        storage = new Storage(filePath);
+        lists = new TaskLists(filePath, maxLoadedLists, maxLoadedTasks);
+        if (isColumnar) {
+            lists.useColumnarStore();
+        }
+        workspace = new Workspace(lists);
         try {
-            tasks = storage.loadTasks();
+            workspace.getCurrent();
         } catch (AsepException e) {
-            ui.showError("Error loading tasks: " + e.getMessage());
-            tasks = new TaskList();
+            ui.showError(e.getMessage());
         }
     }
 
@@ -26,31 +70,245 @@ public class Asep {
         ui.showGreeting();
         boolean isExit = false;
         while (!isExit) {
+            String fullCommand = null;
+            long start = 0;
+            long parsed = 0;
             try {
-                String fullCommand = ui.readCommand();
+                fullCommand = ui.readCommand();
+                start = Metrics.startCommand();
+                parsed = start;
                 Command command = Parser.parse(fullCommand);
-                command.execute(tasks, ui, storage);
+                parsed = System.nanoTime();
+                command.execute(workspace, ui);
                 isExit = command.isExit();
             } catch (AsepException e) {
                 ui.showError(e.getMessage());
             } catch (Exception e) {
                 ui.showError("An unexpected error occurred: " + e.getMessage());
+            } finally {
+                if (fullCommand != null) {
+                    lists.getMetrics().recordCommand(Parser.getCommandWord(fullCommand), start, parsed);
+                }
+            }
+        }
+        close();
+    }
+
+    /**
+     * Writes the metrics of this run to the given JSON file every given number of seconds, and
+     * once more when Asep exits.
+     *
+     * @param filePath the JSON file to write.
+     * @param seconds  the number of seconds between writes.
+     */
+    public void dumpStats(String filePath, long seconds) {
+        lists.getMetrics().startDumping(filePath, seconds);
+    }
+
+    /**
+     * Writes every list to disk in the form that loads fastest, reporting any error.
+     */
+    private void close() {
+        try {
+            lists.close();
+        } catch (AsepException e) {
+            ui.showError(e.getMessage());
+        }
+        try {
+            lists.getMetrics().stopDumping();
+        } catch (AsepException e) {
+            ui.showError(e.getMessage());
+        }
+    }
+
+    /**
+     * Executes the commands read from the given reader without prompting, one per line.
+     * <p>
+     * Storage writes are postponed and committed every {@code commitInterval} commands and once at
+     * the end, so a long script does not rewrite the data file after each command. Execution stops
+     * at the end of the input or at a "bye" command, and a summary of the succeeded and failed
+     * commands is displayed.
+     * </p>
+     *
+     * @param reader         the source of the commands.
+     * @param commitInterval the number of commands between commits, or 0 to commit only at the end.
+     * @throws IOException if the commands cannot be read.
+     */
+    public void runBatch(BufferedReader reader, int commitInterval) throws IOException {
+        lists.beginBatch();
+        int succeeded = 0;
+        int failed = 0;
+        int lineNumber = 0;
+        boolean isExit = false;
+        String line;
+        while (!isExit && (line = reader.readLine()) != null) {
+            lineNumber++;
+            String fullCommand = line.trim();
+            if (fullCommand.isEmpty()) {
+                continue;
+            }
+            long start = Metrics.startCommand();
+            long parsed = start;
+            try {
+                Command command = Parser.parse(fullCommand);
+                parsed = System.nanoTime();
+                command.execute(workspace, ui);
+                isExit = command.isExit();
+                succeeded++;
+            } catch (AsepException e) {
+                ui.showError("Line " + lineNumber + ": " + e.getMessage());
+                failed++;
+            } catch (Exception e) {
+                ui.showError("Line " + lineNumber + ": An unexpected error occurred: " + e.getMessage());
+                failed++;
+            } finally {
+                lists.getMetrics().recordCommand(Parser.getCommandWord(fullCommand), start, parsed);
+            }
+            if (commitInterval > 0 && (succeeded + failed) % commitInterval == 0) {
+                try {
+                    lists.commit();
+                } catch (AsepException e) {
+                    ui.showError(e.getMessage());
+                }
+            }
+        }
+        close();
+        ui.showMessage("Batch finished: " + succeeded + " commands succeeded, " + failed + " failed.");
+    }
+
+    /**
+     * Serves the task lists to clients connecting to the given local port, until the process is stopped.
+     * <p>
+     * Pending changes are written to disk when the process shuts down.
+     * </p>
+     *
+     * @param port the local port to listen on.
+     */
+    public void runServer(int port) {
+        AsepServer server = new AsepServer(lists);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+                lists.getMetrics().stopDumping();
+            } catch (AsepException e) {
+                ui.showError(e.getMessage());
             }
+        }));
+        try {
+            server.serve(port, ui);
+        } catch (IOException e) {
+            ui.showError("Error running server: " + e.getMessage());
         }
     }
 
     /**
      * The main entry point of the Asep application.
      * Determines the directory of the running JAR file and uses it to set the file path.
+     * <p>
+     * Without arguments, Asep runs interactively. Passing a script file, or "--batch" to read the
+     * script from standard input, runs the commands in batch mode instead; "--commit-every N" sets
+     * how often batch mode writes to disk. "--server [port]" serves the task list over a local
+     * socket instead, on {@link AsepServer#DEFAULT_PORT} unless a port is given. "--max-lists N"
+     * and "--max-tasks N" limit how many named lists, and how many tasks over all lists, are kept
+     * in memory at once, and "--compact-memory" packs the tasks of every list into columns so that
+     * very large lists take a fraction of the memory. "--stats-file PATH" writes the metrics shown
+     * by the "stats" command to a JSON file every minute, or every N seconds with
+     * "--stats-every N", and when Asep exits. An unknown option, or an option missing its value,
+     * is reported with the usage instead of being taken for a script file.
+     * </p>
      */
     public static void main(String[] args) {
+        String scriptPath = null;
+        boolean isBatch = false;
+        int commitInterval = 0;
+        int serverPort = -1;
+        int maxLoadedLists = TaskLists.DEFAULT_MAX_LOADED_LISTS;
+        long maxLoadedTasks = TaskLists.DEFAULT_MAX_LOADED_TASKS;
+        boolean isColumnar = false;
+        String statsPath = null;
+        long statsInterval = DEFAULT_STATS_INTERVAL;
+        for (int i = 0; i < args.length; i++) {
+            if (OPTIONS_WITH_VALUES.contains(args[i]) && i + 1 == args.length) {
+                System.out.println("Missing value for " + args[i] + ".\n" + USAGE);
+                return;
+            }
+            if (args[i].equals("--batch")) {
+                isBatch = true;
+            } else if (args[i].equals("--server")) {
+                serverPort = AsepServer.DEFAULT_PORT;
+                if (i + 1 < args.length && !args[i + 1].startsWith("-")) {
+                    try {
+                        serverPort = Integer.parseInt(args[++i]);
+                    } catch (NumberFormatException e) {
+                        System.out.println("Invalid port: " + args[i]);
+                        return;
+                    }
+                }
+            } else if (args[i].equals("--commit-every")) {
+                try {
+                    commitInterval = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    System.out.println("Invalid commit interval: " + args[i]);
+                    return;
+                }
+            } else if (args[i].equals("--max-lists")) {
+                try {
+                    maxLoadedLists = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    System.out.println("Invalid number of lists: " + args[i]);
+                    return;
+                }
+            } else if (args[i].equals("--max-tasks")) {
+                try {
+                    maxLoadedTasks = Long.parseLong(args[++i]);
+                } catch (NumberFormatException e) {
+                    System.out.println("Invalid number of tasks: " + args[i]);
+                    return;
+                }
+            } else if (args[i].equals("--compact-memory")) {
+                isColumnar = true;
+            } else if (args[i].equals("--stats-file")) {
+                statsPath = args[++i];
+            } else if (args[i].equals("--stats-every")) {
+                try {
+                    statsInterval = Long.parseLong(args[++i]);
+                } catch (NumberFormatException e) {
+                    System.out.println("Invalid number of seconds: " + args[i]);
+                    return;
+                }
+            } else if (args[i].startsWith("--")) {
+                System.out.println("Unknown option: " + args[i] + "\n" + USAGE);
+                return;
+            } else {
+                scriptPath = args[i];
+                isBatch = true;
+            }
+        }
         try {
             // Determine the folder where the JAR file is located.
             File jarFile = new File(Asep.class.getProtectionDomain().getCodeSource().getLocation().toURI());
             File jarDir = jarFile.getParentFile();
             // Set the data file path to be in the same directory as the JAR.
             String filePath = jarDir.getAbsolutePath() + File.separator + "asep.txt";
-            new Asep(filePath).run();
+            Asep asep = new Asep(filePath, maxLoadedLists, maxLoadedTasks, isColumnar);
+            if (statsPath != null) {
+                asep.dumpStats(statsPath, statsInterval);
+            }
+            if (serverPort != -1) {
+                asep.runServer(serverPort);
+                return;
+            }
+            if (!isBatch) {
+                asep.run();
+                return;
+            }
+            try (BufferedReader reader = scriptPath == null
+                    ? new BufferedReader(new InputStreamReader(System.in))
+                    : Files.newBufferedReader(Paths.get(scriptPath))) {
+                asep.runBatch(reader, commitInterval);
+            } catch (IOException e) {
+                asep.ui.showError("Error reading commands: " + e.getMessage());
+            }
         } catch (URISyntaxException e) {
             e.printStackTrace();
         }
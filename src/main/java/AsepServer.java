@@ -0,0 +1,136 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Serves Asep over TCP so that several clients can share the same task lists and data files.
+ * <p>
+ * The server listens on the loopback interface and handles each connection on its own thread. It
+ * reads one command per line and sends back the same output as the console would show. Every
+ * connection starts out on the default list and can switch lists with "use" without affecting the
+ * other connections. Commands that only read the task lists run in parallel under a shared lock,
+ * while commands that change them run one at a time under an exclusive lock. Loading a list may
+ * drop others from memory and close their files, so a read-only command whose list is not in memory
+ * also takes the exclusive lock. The output of a command is collected in memory and sent after the
+ * lock is released, so a slow client does not hold up the others. "bye" closes the connection but
+ * leaves the server running.
+ * </p>
+ */
+public class AsepServer {
+    /** The port the server listens on when none is given. */
+    public static final int DEFAULT_PORT = 4242;
+
+    private final TaskLists lists;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ExecutorService connections = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "asep-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Constructs an AsepServer that serves the given task lists.
+     *
+     * @param lists the task lists shared by all clients.
+     */
+    public AsepServer(TaskLists lists) {
+        this.lists = lists;
+    }
+
+    /**
+     * Accepts connections on the given port until the process is stopped.
+     *
+     * @param port the local port to listen on.
+     * @param ui   the console user interface, used to report that the server is listening.
+     * @throws IOException if the port cannot be opened.
+     */
+    public void serve(int port, Ui ui) throws IOException {
+        try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            ui.showMessage("Asep is listening on " + serverSocket.getInetAddress().getHostAddress()
+                    + ":" + serverSocket.getLocalPort() + ".");
+            while (true) {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> handle(socket));
+            }
+        }
+    }
+
+    /**
+     * Waits for any running command to finish and writes all lists to disk.
+     *
+     * @throws AsepException if the changes cannot be saved.
+     */
+    public void close() throws AsepException {
+        lock.writeLock().lock();
+        try {
+            lists.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket) {
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            Ui ui = new Ui(in, output);
+            Workspace workspace = new Workspace(lists);
+            ui.showGreeting();
+            boolean isExit = false;
+            while (!isExit) {
+                output.writeTo(out);
+                output.reset();
+                String fullCommand;
+                try {
+                    fullCommand = ui.readCommand();
+                } catch (NoSuchElementException e) {
+                    return;
+                }
+                long start = Metrics.startCommand();
+                long parsed = start;
+                try {
+                    Command command = Parser.parse(fullCommand);
+                    parsed = System.nanoTime();
+                    execute(command, workspace, ui);
+                    isExit = command.isExit();
+                } catch (AsepException e) {
+                    ui.showError(e.getMessage());
+                } catch (Exception e) {
+                    ui.showError("An unexpected error occurred: " + e.getMessage());
+                } finally {
+                    lists.getMetrics().recordCommand(Parser.getCommandWord(fullCommand), start, parsed);
+                }
+            }
+            output.writeTo(out);
+        } catch (IOException e) {
+            // The client went away; there is nobody left to report the error to.
+        }
+    }
+
+    private void execute(Command command, Workspace workspace, Ui ui) throws AsepException {
+        Lock commandLock = command.isReadOnly() ? lock.readLock() : lock.writeLock();
+        commandLock.lock();
+        // Lists are only loaded and dropped under the exclusive lock, so a loaded list stays
+        // loaded.
+        if (command.isReadOnly() && !workspace.isCurrentLoaded()) {
+            commandLock.unlock();
+            commandLock = lock.writeLock();
+            commandLock.lock();
+        }
+        try {
+            command.execute(workspace, ui);
+        } finally {
+            commandLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Performs storage writes on a dedicated background thread.
+ * <p>
+ * Writes submitted while the thread is busy are queued and then run together as one burst,
+ * followed by a single flush, so a quick series of commands costs one flush instead of one per
+ * command. Each submission returns a future that completes once its write has been flushed, or
+ * completes exceptionally if the write or the flush failed. A write that fails with an unchecked
+ * exception, such as a corrupted segment found while writing a snapshot, fails only its own
+ * future, and the thread goes on with the next burst.
+ * </p>
+ */
+public class AsyncWriter {
+    /**
+     * Represents a piece of storage work to run on the writer thread.
+     */
+    public interface Write {
+        /**
+         * Performs the write.
+         *
+         * @throws IOException if the write fails.
+         */
+        void run() throws IOException;
+    }
+
+    private static class Job {
+        private final Write write;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Job(Write write) {
+            this.write = write;
+        }
+    }
+
+    /** Marks the end of the queue; the thread stops once the writes before it are done. */
+    private static final Job STOP = new Job(null);
+
+    private final LinkedBlockingQueue<Job> queue = new LinkedBlockingQueue<>();
+    private final Write flush;
+
+    /**
+     * Constructs an AsyncWriter and starts its thread.
+     *
+     * @param name  the name of the writer thread.
+     * @param flush the action run once after every burst of writes.
+     */
+    public AsyncWriter(String name, Write flush) {
+        this.flush = flush;
+        Thread thread = new Thread(this::runLoop, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a write.
+     *
+     * @param write the write to perform.
+     * @return a future that completes once the write has been flushed.
+     */
+    public CompletableFuture<Void> submit(Write write) {
+        Job job = new Job(write);
+        queue.add(job);
+        return job.future;
+    }
+
+    /**
+     * Stops the writer thread once the writes queued so far are done.
+     * <p>
+     * Writes submitted after this call are never run; their futures complete exceptionally if the
+     * thread is still draining the queue, and never complete otherwise.
+     * </p>
+     */
+    public void close() {
+        queue.add(STOP);
+    }
+
+    private void runLoop() {
+        ArrayList<Job> burst = new ArrayList<>();
+        boolean isClosed = false;
+        while (!isClosed) {
+            try {
+                burst.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(burst);
+            int stop = burst.indexOf(STOP);
+            if (stop != -1) {
+                List<Job> discarded = burst.subList(stop, burst.size());
+                for (Job job : discarded) {
+                    job.future.completeExceptionally(new IOException("The writer has been closed."));
+                }
+                discarded.clear();
+                isClosed = true;
+            }
+            Exception[] errors = new Exception[burst.size()];
+            for (int i = 0; i < burst.size(); i++) {
+                try {
+                    burst.get(i).write.run();
+                } catch (IOException | RuntimeException e) {
+                    errors[i] = e;
+                }
+            }
+            Exception flushError = null;
+            try {
+                flush.run();
+            } catch (IOException | RuntimeException e) {
+                flushError = e;
+            }
+            for (int i = 0; i < burst.size(); i++) {
+                Exception error = errors[i] != null ? errors[i] : flushError;
+                if (error == null) {
+                    burst.get(i).future.complete(null);
+                } else {
+                    burst.get(i).future.completeExceptionally(error);
+                }
+            }
+            burst.clear();
+        }
+    }
+}
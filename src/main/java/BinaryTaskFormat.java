@@ -0,0 +1,447 @@
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Reads and writes tasks in Asep's compact binary data file format.
+ * <p>
+ * The file starts with a magic number, a version byte, the number of tasks, the next task ID to
+ * hand out, the number of tasks per segment, the number of segments, and the last
+ * {@link Journal} generation included in the file, as a long. The tasks follow in
+ * segments of up to {@link #SEGMENT_SIZE} tasks each. A segment starts with a string table holding
+ * every distinct event start and end value in it, followed by one length-prefixed record per task
+ * with a type byte, a done flag, the task ID and a length-prefixed UTF-8 description. Deadlines
+ * store their date as an epoch-day int and events store two indexes into the segment's string
+ * table. After the segments comes the segment offset index, one long per segment plus the end of
+ * the last one, and the file ends with the offset of that index. Unlike the text format,
+ * descriptions may contain any character.
+ * </p>
+ * <p>
+ * Because every segment can be decoded on its own, {@link #open(Path)} only reads the header and
+ * the index and leaves the tasks to {@link TaskSegments}, so opening a file takes the same time
+ * whatever its size. Files written by version 1, which had no task IDs, and by version 2, which
+ * had a single string table and no segments, can still be read, but only as a whole. Files
+ * written by version 3, which had no journal generation, are opened lazily like current ones.
+ * </p>
+ */
+public class BinaryTaskFormat {
+    /** The number of tasks in every segment but the last. */
+    public static final int SEGMENT_SIZE = 4096;
+
+    /**
+     * Represents the contents of a binary data file.
+     */
+    public static class Contents {
+        private final ArrayList<Task> tasks;
+        private final TaskSegments segments;
+        private final int nextId;
+        private final long journalGeneration;
+
+        private Contents(ArrayList<Task> tasks, TaskSegments segments, int nextId, long journalGeneration) {
+            this.tasks = tasks;
+            this.segments = segments;
+            this.nextId = nextId;
+            this.journalGeneration = journalGeneration;
+        }
+
+        /**
+         * Returns the tasks in file order.
+         *
+         * @return the tasks, or null if the file was opened lazily.
+         */
+        public ArrayList<Task> getTasks() {
+            return tasks;
+        }
+
+        /**
+         * Returns the segments of a file that was opened lazily.
+         *
+         * @return the segments, or null if the tasks were read as a whole.
+         */
+        public TaskSegments getSegments() {
+            return segments;
+        }
+
+        /**
+         * Returns the next task ID recorded in the file.
+         *
+         * @return the next ID, or 1 for files written before task IDs existed.
+         */
+        public int getNextId() {
+            return nextId;
+        }
+
+        /**
+         * Returns the last journal generation included in the file.
+         *
+         * @return the generation, or 0 for files written before journal generations existed.
+         */
+        public long getJournalGeneration() {
+            return journalGeneration;
+        }
+
+        /**
+         * Checks whether the file was written in the current version of the format.
+         *
+         * @return false if the file should be rewritten to be opened lazily.
+         */
+        public boolean isLatestVersion() {
+            return segments != null;
+        }
+    }
+
+    private static final byte[] MAGIC = {(byte) 0x89, 'A', 'S', 'P'};
+    private static final byte VERSION = 4;
+    private static final byte VERSION_WITHOUT_GENERATION = 3;
+    private static final byte VERSION_WITHOUT_SEGMENTS = 2;
+    private static final byte VERSION_WITHOUT_IDS = 1;
+    private static final int HEADER_SIZE = MAGIC.length + 1 + 4 * 4 + 8;
+    private static final int HEADER_SIZE_WITHOUT_GENERATION = HEADER_SIZE - 8;
+    private static final byte TODO = 'T';
+    private static final byte DEADLINE = 'D';
+    private static final byte EVENT = 'E';
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Checks whether the given file is in the binary format.
+     *
+     * @param path the data file.
+     * @return true if the file starts with the binary format's magic number.
+     * @throws IOException if the file cannot be read.
+     */
+    public static boolean isBinary(Path path) throws IOException {
+        byte[] header = new byte[MAGIC.length];
+        try (InputStream in = Files.newInputStream(path)) {
+            if (in.readNBytes(header, 0, header.length) < header.length) {
+                return false;
+            }
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (header[i] != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the tasks to the given file in the binary format.
+     * <p>
+     * If the tasks are a snapshot of a task list that was opened lazily, every segment that has not
+     * been decoded, and so cannot have changed, is copied from the old file byte for byte instead of
+     * being decoded and encoded again.
+     * </p>
+     *
+     * @param path   the file to write.
+     * @param tasks  the tasks to write.
+     * @param nextId the next task ID to hand out.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(Path path, List<Task> tasks, int nextId) throws IOException {
+        write(path, tasks, nextId, 0);
+    }
+
+    /**
+     * Writes the tasks to the given file in the binary format, along with the last journal
+     * generation they include.
+     *
+     * @param path              the file to write.
+     * @param tasks             the tasks to write.
+     * @param nextId            the next task ID to hand out.
+     * @param journalGeneration the last journal generation included in the tasks, or 0.
+     * @throws IOException if the file cannot be written.
+     * @see #write(Path, List, int)
+     */
+    public static void write(Path path, List<Task> tasks, int nextId, long journalGeneration) throws IOException {
+        TaskSegments source = TaskList.getSegments(tasks);
+        int size = tasks.size();
+        int segmentCount = (size + SEGMENT_SIZE - 1) / SEGMENT_SIZE;
+        long[] offsets = new long[segmentCount + 1];
+        ByteArrayOutputStream segmentBytes = new ByteArrayOutputStream(BUFFER_SIZE);
+        DataOutputStream segmentOut = new DataOutputStream(segmentBytes);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), BUFFER_SIZE))) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(size);
+            out.writeInt(nextId);
+            out.writeInt(SEGMENT_SIZE);
+            out.writeInt(segmentCount);
+            out.writeLong(journalGeneration);
+            long position = HEADER_SIZE;
+            for (int segment = 0; segment < segmentCount; segment++) {
+                offsets[segment] = position;
+                int from = segment * SEGMENT_SIZE;
+                int to = Math.min(from + SEGMENT_SIZE, size);
+                if (source != null && source.isUnchanged(segment, from, to)) {
+                    position += source.copySegment(segment, out);
+                } else {
+                    writeSegment(segmentOut, tasks, from, to);
+                    segmentBytes.writeTo(out);
+                    position += segmentBytes.size();
+                    segmentBytes.reset();
+                }
+            }
+            offsets[segmentCount] = position;
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+            out.writeLong(position);
+        }
+    }
+
+    /**
+     * Writes the tasks between two positions as one segment.
+     */
+    private static void writeSegment(DataOutputStream out, List<Task> tasks, int from, int to) throws IOException {
+        LinkedHashMap<String, Integer> strings = new LinkedHashMap<>();
+        for (int i = from; i < to; i++) {
+            Task task = tasks.get(i);
+            if (task instanceof Event) {
+                Event event = (Event) task;
+                strings.putIfAbsent(event.getFrom(), strings.size());
+                strings.putIfAbsent(event.getTo(), strings.size());
+            }
+        }
+        out.writeInt(strings.size());
+        for (String value : strings.keySet()) {
+            writeString(out, value.getBytes(StandardCharsets.UTF_8));
+        }
+        for (int i = from; i < to; i++) {
+            Task task = tasks.get(i);
+            byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+            int length = 2 + 4 + 4 + description.length;
+            if (task instanceof Deadline) {
+                length += 4;
+            } else if (task instanceof Event) {
+                length += 8;
+            }
+            out.writeInt(length);
+            out.writeByte(task instanceof Deadline ? DEADLINE : task instanceof Event ? EVENT : TODO);
+            out.writeByte(task.isDone ? 1 : 0);
+            out.writeInt(task.getId());
+            writeString(out, description);
+            if (task instanceof Deadline) {
+                out.writeInt((int) ((Deadline) task).getBy().toEpochDay());
+            } else if (task instanceof Event) {
+                Event event = (Event) task;
+                out.writeInt(strings.get(event.getFrom()));
+                out.writeInt(strings.get(event.getTo()));
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Reads all tasks from a file in the binary format.
+     *
+     * @param path the file to read.
+     * @return the tasks in file order and the next task ID.
+     * @throws IOException   if the file cannot be read.
+     * @throws AsepException if the file is corrupted.
+     */
+    public static Contents read(Path path) throws IOException, AsepException {
+        Contents contents = open(path);
+        TaskSegments segments = contents.getSegments();
+        if (segments == null) {
+            return contents;
+        }
+        ArrayList<Task> tasks = new ArrayList<>(segments.getTaskCount());
+        try {
+            for (int i = 0; i < segments.getTaskCount(); i++) {
+                tasks.add(segments.get(i));
+            }
+        } catch (IllegalStateException e) {
+            throw new AsepException(e.getMessage());
+        }
+        return new Contents(tasks, null, contents.getNextId(), contents.getJournalGeneration());
+    }
+
+    /**
+     * Opens a file in the binary format, reading only its header and segment index.
+     * <p>
+     * The tasks of older files, which have no segments, are read as a whole instead.
+     * </p>
+     *
+     * @param path the file to open.
+     * @return the segments, or the tasks of an older file, and the next task ID.
+     * @throws IOException   if the file cannot be read.
+     * @throws AsepException if the file is corrupted.
+     */
+    public static Contents open(Path path) throws IOException, AsepException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return open(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | DateTimeException e) {
+            throw new AsepException("Data file is corrupted: unexpected end of binary data.");
+        }
+    }
+
+    private static Contents open(ByteBuffer buffer) throws AsepException {
+        for (byte expected : MAGIC) {
+            if (buffer.get() != expected) {
+                throw new AsepException("Data file is corrupted: not a binary data file.");
+            }
+        }
+        byte version = buffer.get();
+        if (version == VERSION_WITHOUT_IDS || version == VERSION_WITHOUT_SEGMENTS) {
+            return readUnsegmented(buffer, version != VERSION_WITHOUT_IDS);
+        }
+        if (version != VERSION && version != VERSION_WITHOUT_GENERATION) {
+            throw new AsepException("Data file is corrupted: unsupported binary version " + version + ".");
+        }
+        int taskCount = buffer.getInt();
+        int nextId = buffer.getInt();
+        int segmentSize = buffer.getInt();
+        int segmentCount = buffer.getInt();
+        long journalGeneration = version == VERSION ? buffer.getLong() : 0;
+        int headerSize = version == VERSION ? HEADER_SIZE : HEADER_SIZE_WITHOUT_GENERATION;
+        if (taskCount < 0 || nextId < 1 || segmentSize < 1 || segmentCount < 0 || journalGeneration < 0
+                || segmentCount != (int) (((long) taskCount + segmentSize - 1) / segmentSize)) {
+            throw new AsepException("Data file is corrupted: invalid counts in header.");
+        }
+        long indexOffset = buffer.getLong(buffer.limit() - 8);
+        if (indexOffset != buffer.limit() - 8 - 8L * (segmentCount + 1)) {
+            throw new AsepException("Data file is corrupted: invalid segment index.");
+        }
+        buffer.position((int) indexOffset);
+        long[] offsets = new long[segmentCount + 1];
+        boolean isValid = true;
+        for (int i = 0; i <= segmentCount; i++) {
+            offsets[i] = buffer.getLong();
+            isValid &= i == 0 ? offsets[i] == headerSize : offsets[i] > offsets[i - 1];
+        }
+        if (!isValid || offsets[segmentCount] != indexOffset) {
+            throw new AsepException("Data file is corrupted: invalid segment index.");
+        }
+        return new Contents(null, new TaskSegments(buffer, taskCount, segmentSize, offsets), nextId,
+                journalGeneration);
+    }
+
+    /**
+     * Decodes the tasks of one segment.
+     *
+     * @param segment   the bytes of the segment.
+     * @param taskCount the number of tasks in the segment.
+     * @param firstTask the zero-based number of the segment's first task in the file, for error messages.
+     * @return the tasks of the segment in file order.
+     * @throws AsepException if the segment is corrupted.
+     */
+    static Task[] readSegment(ByteBuffer segment, int taskCount, int firstTask) throws AsepException {
+        try {
+            String[] strings = readStrings(segment);
+            Task[] tasks = new Task[taskCount];
+            for (int i = 0; i < taskCount; i++) {
+                tasks[i] = readTask(segment, strings, true, firstTask + i + 1);
+            }
+            if (segment.hasRemaining()) {
+                throw new AsepException("Data file is corrupted: segment length mismatch after task "
+                        + (firstTask + taskCount) + ".");
+            }
+            return tasks;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | DateTimeException e) {
+            throw new AsepException("Data file is corrupted: unexpected end of segment after task "
+                    + (firstTask + 1) + ".");
+        }
+    }
+
+    private static Contents readUnsegmented(ByteBuffer buffer, boolean hasIds) throws AsepException {
+        int taskCount = buffer.getInt();
+        int nextId = hasIds ? buffer.getInt() : 1;
+        if (taskCount < 0 || nextId < 1) {
+            throw new AsepException("Data file is corrupted: negative count in header.");
+        }
+        String[] strings = readStrings(buffer);
+        ArrayList<Task> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            tasks.add(readTask(buffer, strings, hasIds, i + 1));
+        }
+        return new Contents(tasks, null, nextId, 0);
+    }
+
+    private static String[] readStrings(ByteBuffer buffer) throws AsepException {
+        int stringCount = buffer.getInt();
+        if (stringCount < 0) {
+            throw new AsepException("Data file is corrupted: negative count in header.");
+        }
+        String[] strings = new String[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            strings[i] = readString(buffer);
+        }
+        return strings;
+    }
+
+    /**
+     * Reads one task record.
+     *
+     * @param number the one-based number of the task in the file, for error messages.
+     */
+    private static Task readTask(ByteBuffer buffer, String[] strings, boolean hasIds, int number)
+            throws AsepException {
+        int length = buffer.getInt();
+        int end = buffer.position() + length;
+        byte type = buffer.get();
+        boolean isDone = buffer.get() != 0;
+        int id = hasIds ? buffer.getInt() : 0;
+        if (id < 0) {
+            throw new AsepException("Data file is corrupted: invalid task ID in task " + number + ".");
+        }
+        String description = readString(buffer);
+        Task task;
+        switch (type) {
+            case TODO:
+                task = new Todo(description);
+                break;
+            case DEADLINE:
+                task = new Deadline(description, LocalDate.ofEpochDay(buffer.getInt()));
+                break;
+            case EVENT:
+                int from = buffer.getInt();
+                int to = buffer.getInt();
+                if (from < 0 || from >= strings.length || to < 0 || to >= strings.length) {
+                    throw new AsepException("Data file is corrupted: invalid string index in task " + number + ".");
+                }
+                task = new Event(description, strings[from], strings[to]);
+                break;
+            default:
+                throw new AsepException("Data file is corrupted: unknown task type in task " + number + ".");
+        }
+        if (buffer.position() != end) {
+            throw new AsepException("Data file is corrupted: record length mismatch in task " + number + ".");
+        }
+        if (isDone) {
+            task.markAsDone();
+        }
+        task.setId(id);
+        return task;
+    }
+
+    private static void writeString(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
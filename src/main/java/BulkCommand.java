@@ -0,0 +1,84 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ * Represents a command that marks, unmarks, or deletes a selection of tasks at once.
+ * <p>
+ * The selected tasks are changed in a single pass over the task list and the change is persisted
+ * as one write, so cleaning up thousands of tasks costs the same number of writes as one task.
+ * </p>
+ */
+public class BulkCommand extends Command {
+    /**
+     * Represents the change a bulk command applies to the selected tasks.
+     */
+    public enum Operation {
+        MARK, UNMARK, DELETE
+    }
+
+    private final Operation operation;
+    private final TaskSelection selection;
+
+    /**
+     * Constructs a BulkCommand applying an operation to a selection of tasks.
+     *
+     * @param operation the change to apply.
+     * @param selection the tasks to change.
+     */
+    public BulkCommand(Operation operation, TaskSelection selection) {
+        this.operation = operation;
+        this.selection = selection;
+    }
+
+    /**
+     * Executes the command by applying the operation to every selected task, persisting the
+     * change once, and listing the affected tasks.
+     *
+     * @param tasks   the task list containing the tasks.
+     * @param ui      the user interface used to display messages.
+     * @param storage the storage system used to persist the change.
+     * @throws AsepException if a task number is invalid or the change cannot be saved.
+     */
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws AsepException {
+        BitSet indexes = selection.resolve(tasks);
+        if (indexes.isEmpty()) {
+            ui.showMessage("No tasks matched, so nothing was changed.");
+            return;
+        }
+        ArrayList<Task> changed;
+        String heading;
+        switch (operation) {
+            case MARK:
+                changed = tasks.markAsDone(indexes);
+                storage.recordMark(tasks, indexes);
+                heading = "Nice! I've marked " + describe(changed.size()) + " as done:";
+                break;
+            case UNMARK:
+                changed = tasks.markAsNotDone(indexes);
+                storage.recordUnmark(tasks, indexes);
+                heading = "OK, I've marked " + describe(changed.size()) + " as not done yet:";
+                break;
+            default:
+                changed = tasks.removeAll(indexes);
+                storage.recordDelete(tasks, indexes);
+                heading = "Noted. I've removed " + describe(changed.size()) + ":";
+                break;
+        }
+        StringBuilder sb = new StringBuilder(heading);
+        for (Task task : changed) {
+            sb.append("\n   ").append(task);
+        }
+        if (operation == Operation.DELETE) {
+            sb.append("\nNow you have ").append(tasks.size()).append(" tasks in the list.");
+        }
+        ui.showMessage(sb.toString());
+    }
+
+    /**
+     * Describes the selected tasks for the heading, as "this task" or "these 3 tasks".
+     */
+    private static String describe(int count) {
+        return count == 1 ? "this task" : "these " + count + " tasks";
+    }
+}
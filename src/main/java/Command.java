@@ -16,6 +16,29 @@ public abstract class Command {
      */
     public abstract void execute(TaskList tasks, Ui ui, Storage storage) throws AsepException;
 
+    /**
+     * Executes the command on the list in use in the given workspace, recording any change it
+     * makes in the list's undo history.
+     * <p>
+     * Commands that work on the named lists themselves, rather than on one list, override this.
+     * </p>
+     *
+     * @param workspace the workspace holding the list in use.
+     * @param ui        the user interface for displaying messages.
+     * @throws AsepException if the list cannot be loaded or an error occurs during command execution.
+     */
+    public void execute(Workspace workspace, Ui ui) throws AsepException {
+        TaskLists.Entry current = workspace.getCurrent();
+        TaskList tasks = current.getTasks();
+        PersistentTaskList before = tasks.getVersion();
+        try {
+            execute(tasks, ui, current.getStorage());
+        } finally {
+            // A change that could not be saved was still made, so it can still be undone.
+            current.getHistory().record(before, tasks.getVersion());
+        }
+    }
+
     /**
      * Indicates whether this command should cause the application to exit.
      *
@@ -24,4 +47,16 @@ public abstract class Command {
     public boolean isExit() {
         return false;
     }
+
+    /**
+     * Indicates whether this command only reads the task list and storage.
+     * <p>
+     * Read-only commands may run at the same time as each other, for example in server mode.
+     * </p>
+     *
+     * @return false by default; override in commands that change nothing to return true.
+     */
+    public boolean isReadOnly() {
+        return false;
+    }
 }
@@ -0,0 +1,78 @@
+/**
+ * Represents a table that maps command words to the parsers that build their commands.
+ * <p>
+ * The words are stored in a trie over the letters a to z, so a command word can be resolved
+ * straight from the input, case-insensitively and without allocating a substring.
+ * </p>
+ */
+public class CommandTable {
+    /**
+     * Represents the parser of a command's arguments.
+     */
+    public interface CommandParser {
+        /**
+         * Builds a command from its arguments.
+         *
+         * @param input the full command input.
+         * @param start the index of the first character after the command word.
+         * @return the parsed command.
+         * @throws AsepException if the arguments are invalid.
+         */
+        Command parse(String input, int start) throws AsepException;
+    }
+
+    private static class Node {
+        private final Node[] children = new Node[26];
+        private CommandParser parser;
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * Registers the parser for a command word, replacing any earlier registration.
+     *
+     * @param word   the command word, made of letters only.
+     * @param parser the parser of the command's arguments.
+     */
+    public void register(String word, CommandParser parser) {
+        Node node = root;
+        for (int i = 0; i < word.length(); i++) {
+            int letter = letterIndex(word.charAt(i));
+            if (letter < 0) {
+                throw new IllegalArgumentException("Command words may only contain letters: " + word);
+            }
+            if (node.children[letter] == null) {
+                node.children[letter] = new Node();
+            }
+            node = node.children[letter];
+        }
+        node.parser = parser;
+    }
+
+    /**
+     * Looks up the parser for the command word between two indexes of the input.
+     *
+     * @param input the full command input.
+     * @param start the index of the first character of the command word.
+     * @param end   the index after the last character of the command word.
+     * @return the parser, or null if the word is not a registered command.
+     */
+    public CommandParser lookup(String input, int start, int end) {
+        Node node = root;
+        for (int i = start; i < end && node != null; i++) {
+            int letter = letterIndex(input.charAt(i));
+            node = letter < 0 ? null : node.children[letter];
+        }
+        return node == null ? null : node.parser;
+    }
+
+    private static int letterIndex(char c) {
+        if (c >= 'a' && c <= 'z') {
+            return c - 'a';
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return c - 'A';
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,42 @@
+/**
+ * Represents a command to list the events whose times overlap.
+ * <p>
+ * Only events with recognisable times are considered. Each conflict is shown as the earlier
+ * event followed by the event it clashes with. If no events overlap, it informs the user
+ * accordingly.
+ * </p>
+ */
+public class ConflictsCommand extends Command {
+    /**
+     * Executes the command by displaying every pair of overlapping events.
+     *
+     * @param tasks   the task list to search through.
+     * @param ui      the user interface for displaying messages.
+     * @param storage the storage system (not used in this command).
+     */
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Here are the conflicting events in your list:\n");
+        int count = 0;
+        for (Event[] conflict : tasks.findConflicts()) {
+            count++;
+            sb.append(count + ". " + conflict[0] + "\n");
+            sb.append("   clashes with " + conflict[1] + "\n");
+        }
+        if (count == 0) {
+            sb.append("No conflicting events found.");
+        }
+        ui.showMessage(sb.toString());
+    }
+
+    /**
+     * Indicates that this command only reads the task list.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
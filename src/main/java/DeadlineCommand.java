@@ -35,9 +35,8 @@ public class DeadlineCommand extends Command {
     public void execute(TaskList tasks, Ui ui, Storage storage) throws AsepException {
         Task task = new Deadline(description, by);
         tasks.add(task);
-        // Pass the TaskList directly since Storage.saveTasks expects a TaskList.
-        storage.saveTasks(tasks);
-        ui.showMessage("Got it. I've added this task:\n   " + task +
+        storage.recordAdd(tasks, task);
+        ui.showMessage("Got it. I've added this task as #" + task.getId() + ":\n   " + task +
                 "\nNow you have " + tasks.size() + " tasks in the list.");
     }
 }
@@ -0,0 +1,117 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Represents an index of deadline tasks ordered by due date.
+ * <p>
+ * Deadlines are kept in two sorted maps keyed by epoch day: one holding every deadline and one
+ * holding only the deadlines that are not done yet. A date range query is answered by walking the
+ * matching part of one map, so it costs O(log n + k) and done tasks are excluded by choosing the
+ * map rather than by filtering.
+ * </p>
+ */
+public class DeadlineIndex {
+    private final TreeMap<Long, LinkedHashSet<Deadline>> allDeadlines = new TreeMap<>();
+    private final TreeMap<Long, LinkedHashSet<Deadline>> pendingDeadlines = new TreeMap<>();
+
+    /**
+     * Adds a task to the index if it is a deadline.
+     *
+     * @param task the task to index.
+     */
+    public void add(Task task) {
+        if (task instanceof Deadline) {
+            Deadline deadline = (Deadline) task;
+            put(allDeadlines, deadline);
+            if (!deadline.isDone) {
+                put(pendingDeadlines, deadline);
+            }
+        }
+    }
+
+    /**
+     * Removes a task from the index if it is a deadline.
+     *
+     * @param task the task to remove.
+     */
+    public void remove(Task task) {
+        if (task instanceof Deadline) {
+            Deadline deadline = (Deadline) task;
+            take(allDeadlines, deadline);
+            take(pendingDeadlines, deadline);
+        }
+    }
+
+    /**
+     * Updates the index after the done status of a task has changed.
+     *
+     * @param task the task whose status changed.
+     */
+    public void updateStatus(Task task) {
+        if (task instanceof Deadline) {
+            Deadline deadline = (Deadline) task;
+            if (deadline.isDone) {
+                take(pendingDeadlines, deadline);
+            } else {
+                put(pendingDeadlines, deadline);
+            }
+        }
+    }
+
+    /**
+     * Returns the deadlines due between two dates, in order of due date.
+     *
+     * @param from           the first date, inclusive, or null for no lower bound.
+     * @param to             the last date, inclusive, or null for no upper bound.
+     * @param isDoneIncluded whether deadlines that are already done are included.
+     * @return the matching deadlines.
+     */
+    public ArrayList<Deadline> find(LocalDate from, LocalDate to, boolean isDoneIncluded) {
+        ArrayList<Deadline> result = new ArrayList<>();
+        for (LinkedHashSet<Deadline> bucket : range(from, to, isDoneIncluded).values()) {
+            result.addAll(bucket);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of deadlines due between two dates, visiting each date with deadlines
+     * once instead of each deadline.
+     *
+     * @param from           the first date, inclusive, or null for no lower bound.
+     * @param to             the last date, inclusive, or null for no upper bound.
+     * @param isDoneIncluded whether deadlines that are already done are counted.
+     * @return the number of matching deadlines.
+     */
+    public int count(LocalDate from, LocalDate to, boolean isDoneIncluded) {
+        int count = 0;
+        for (LinkedHashSet<Deadline> bucket : range(from, to, isDoneIncluded).values()) {
+            count += bucket.size();
+        }
+        return count;
+    }
+
+    private NavigableMap<Long, LinkedHashSet<Deadline>> range(LocalDate from, LocalDate to, boolean isDoneIncluded) {
+        TreeMap<Long, LinkedHashSet<Deadline>> deadlines = isDoneIncluded ? allDeadlines : pendingDeadlines;
+        return deadlines.subMap(from == null ? Long.MIN_VALUE : from.toEpochDay(), true,
+                to == null ? Long.MAX_VALUE : to.toEpochDay(), true);
+    }
+
+    private static void put(TreeMap<Long, LinkedHashSet<Deadline>> deadlines, Deadline deadline) {
+        deadlines.computeIfAbsent(deadline.getBy().toEpochDay(), key -> new LinkedHashSet<>()).add(deadline);
+    }
+
+    private static void take(TreeMap<Long, LinkedHashSet<Deadline>> deadlines, Deadline deadline) {
+        long day = deadline.getBy().toEpochDay();
+        LinkedHashSet<Deadline> bucket = deadlines.get(day);
+        if (bucket != null) {
+            bucket.remove(deadline);
+            if (bucket.isEmpty()) {
+                deadlines.remove(day);
+            }
+        }
+    }
+}
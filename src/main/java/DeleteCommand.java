@@ -7,6 +7,7 @@
  */
 public class DeleteCommand extends Command {
     private int index;
+    private int id;
 
     /**
      * Constructs a DeleteCommand with the specified index.
@@ -17,6 +18,18 @@ public class DeleteCommand extends Command {
         this.index = index;
     }
 
+    /**
+     * Creates a DeleteCommand for the task with the given ID.
+     *
+     * @param id the ID of the task to be deleted.
+     * @return the command.
+     */
+    public static DeleteCommand forId(int id) {
+        DeleteCommand command = new DeleteCommand(-1);
+        command.id = id;
+        return command;
+    }
+
     /**
      * Executes the delete command by removing the task at the specified index from the task list,
      * saving the updated task list to storage, and displaying a confirmation message.
@@ -28,11 +41,18 @@ public class DeleteCommand extends Command {
      */
     @Override
     public void execute(TaskList tasks, Ui ui, Storage storage) throws AsepException {
+        if (id != 0) {
+            Task task = tasks.getById(id);
+            if (task == null) {
+                throw new AsepException("No task has the ID #" + id + ".");
+            }
+            index = tasks.indexOf(task);
+        }
         if (index < 0 || index >= tasks.size()) {
             throw new AsepException("Invalid task number.");
         }
         Task removedTask = tasks.remove(index);
-        storage.saveTasks(tasks);
+        storage.recordDelete(tasks, index);
         ui.showMessage("Noted. I've removed this task:\n   " + removedTask +
                 "\nNow you have " + tasks.size() + " tasks in the list.");
     }
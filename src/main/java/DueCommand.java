@@ -0,0 +1,97 @@
+import java.time.LocalDate;
+
+/**
+ * Represents a command to list the deadlines due within a range of dates.
+ * <p>
+ * This command backs "due", "upcoming" and "overdue". It asks the task list's deadline index for
+ * the matching deadlines, which are displayed in order of due date. If no deadlines match, it
+ * informs the user accordingly.
+ * </p>
+ */
+public class DueCommand extends Command {
+    private final LocalDate from;
+    private final LocalDate to;
+    private final boolean isDoneIncluded;
+    private final String heading;
+
+    /**
+     * Constructs a DueCommand for the given range of dates.
+     *
+     * @param from           the first date, inclusive, or null for no lower bound.
+     * @param to             the last date, inclusive.
+     * @param isDoneIncluded whether deadlines that are already done are listed.
+     * @param heading        the line displayed above the matching deadlines.
+     */
+    public DueCommand(LocalDate from, LocalDate to, boolean isDoneIncluded, String heading) {
+        this.from = from;
+        this.to = to;
+        this.isDoneIncluded = isDoneIncluded;
+        this.heading = heading;
+    }
+
+    /**
+     * Creates a command listing all deadlines due on the given date.
+     *
+     * @param date the due date.
+     * @return the command.
+     */
+    public static DueCommand on(LocalDate date) {
+        return new DueCommand(date, date, true,
+                "Here are the deadlines due on " + date.format(Deadline.OUTPUT_DATE_FORMAT) + ":");
+    }
+
+    /**
+     * Creates a command listing the deadlines that are not done and fall due from today
+     * up to the given number of days ahead.
+     *
+     * @param today the current date.
+     * @param days  the number of days to look ahead.
+     * @return the command.
+     */
+    public static DueCommand upcoming(LocalDate today, int days) {
+        return new DueCommand(today, today.plusDays(days), false,
+                "Here are the deadlines due in the next " + days + " days:");
+    }
+
+    /**
+     * Creates a command listing the deadlines that are not done and were due before today.
+     *
+     * @param today the current date.
+     * @return the command.
+     */
+    public static DueCommand overdue(LocalDate today) {
+        return new DueCommand(null, today.minusDays(1), false, "Here are your overdue deadlines:");
+    }
+
+    /**
+     * Executes the command by displaying the deadlines due within the range.
+     *
+     * @param tasks   the task list to search through.
+     * @param ui      the user interface for displaying messages.
+     * @param storage the storage system (not used in this command).
+     */
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(heading).append("\n");
+        int count = 0;
+        for (Deadline deadline : tasks.findDeadlines(from, to, isDoneIncluded)) {
+            count++;
+            sb.append(count + ". " + deadline.toString() + "\n");
+        }
+        if (count == 0) {
+            sb.append("No matching deadlines found.");
+        }
+        ui.showMessage(sb.toString());
+    }
+
+    /**
+     * Indicates that this command only reads the task list.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
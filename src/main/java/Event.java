@@ -1,13 +1,22 @@
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
 /**
  * Represents an event task with a specified start and end time.
  * <p>
  * This class extends the Task class by adding event-specific details, including
- * the start (from) and end (to) times of the event.
+ * the start (from) and end (to) times of the event. The times are kept as the text the user
+ * entered. When they are recognisable, such as "2025-03-14 1400" to "4pm", they are also parsed
+ * into a start and an end so that events can be compared in time.
  * </p>
  */
 public class Event extends Task {
     private final String from;
     private final String to;
+    private final LocalDateTime start;
+    private final LocalDateTime end;
 
     /**
      * Constructs an Event task with the given description, start time, and end time.
@@ -20,6 +29,11 @@ public class Event extends Task {
         super(description);
         this.from = from;
         this.to = to;
+        LocalDateTime parsedStart = parseDateTime(from, null, false);
+        LocalDateTime parsedEnd = parsedStart == null ? null : parseDateTime(to, parsedStart.toLocalDate(), true);
+        boolean isValid = parsedEnd != null && parsedEnd.isAfter(parsedStart);
+        this.start = isValid ? parsedStart : null;
+        this.end = isValid ? parsedEnd : null;
     }
 
     /**
@@ -62,4 +76,120 @@ public class Event extends Task {
     public String getTo() {
         return to;
     }
+
+    /**
+     * Returns the parsed start of the event.
+     *
+     * @return the start, or null if the event times are not recognisable.
+     */
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    /**
+     * Returns the parsed end of the event, which is after its start.
+     *
+     * @return the end, or null if the event times are not recognisable.
+     */
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    /**
+     * Parses an event time such as "2025-03-14", "2025-03-14 1400", "2025-03-14 2:30pm" or,
+     * when a date is given to fall back on, a time alone such as "16:00" or "4pm".
+     * <p>
+     * A date without a time stands for the start of that day, or for the end of it when
+     * parsing the end of an event.
+     * </p>
+     *
+     * @param text        the time as entered by the user.
+     * @param defaultDate the date used when the text holds only a time, or null to require a date.
+     * @param isEnd       whether the text is the end of an event.
+     * @return the parsed time, or null if the text is not recognisable.
+     */
+    static LocalDateTime parseDateTime(String text, LocalDate defaultDate, boolean isEnd) {
+        String trimmed = text.trim();
+        LocalDate date = parseDate(trimmed);
+        String timeText = trimmed;
+        if (date != null) {
+            timeText = trimmed.substring(10).trim();
+            if (timeText.startsWith("T")) {
+                timeText = timeText.substring(1);
+            }
+            if (timeText.isEmpty()) {
+                return isEnd ? date.plusDays(1).atStartOfDay() : date.atStartOfDay();
+            }
+        } else if (defaultDate == null) {
+            return null;
+        } else {
+            date = defaultDate;
+        }
+        LocalTime time = parseTime(timeText);
+        return time == null ? null : date.atTime(time);
+    }
+
+    private static LocalDate parseDate(String text) {
+        if (text.length() < 10 || text.charAt(4) != '-' || text.charAt(7) != '-'
+                || !isDigits(text, 0, 4) || !isDigits(text, 5, 7) || !isDigits(text, 8, 10)) {
+            return null;
+        }
+        try {
+            return LocalDate.of(Integer.parseInt(text.substring(0, 4)), Integer.parseInt(text.substring(5, 7)),
+                    Integer.parseInt(text.substring(8, 10)));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Parses a time of day in 24-hour form, such as "1400" or "14:00", or in 12-hour form,
+     * such as "2pm" or "2:30 PM".
+     */
+    private static LocalTime parseTime(String text) {
+        String lower = text.toLowerCase();
+        boolean isAm = lower.endsWith("am");
+        boolean isPm = lower.endsWith("pm");
+        String digits = isAm || isPm ? lower.substring(0, lower.length() - 2).trim() : lower;
+        int hour;
+        int minute;
+        int colon = digits.indexOf(':');
+        if (colon != -1) {
+            if (colon < 1 || colon > 2 || digits.length() != colon + 3
+                    || !isDigits(digits, 0, colon) || !isDigits(digits, colon + 1, colon + 3)) {
+                return null;
+            }
+            hour = Integer.parseInt(digits.substring(0, colon));
+            minute = Integer.parseInt(digits.substring(colon + 1));
+        } else if (digits.length() == 4 && !isAm && !isPm && isDigits(digits, 0, 4)) {
+            hour = Integer.parseInt(digits.substring(0, 2));
+            minute = Integer.parseInt(digits.substring(2));
+        } else if ((isAm || isPm) && !digits.isEmpty() && digits.length() <= 2
+                && isDigits(digits, 0, digits.length())) {
+            hour = Integer.parseInt(digits);
+            minute = 0;
+        } else {
+            return null;
+        }
+        if (isAm || isPm) {
+            if (hour < 1 || hour > 12) {
+                return null;
+            }
+            hour = hour % 12 + (isPm ? 12 : 0);
+        }
+        if (hour > 23 || minute > 59) {
+            return null;
+        }
+        return LocalTime.of(hour, minute);
+    }
+
+    private static boolean isDigits(String text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
 }
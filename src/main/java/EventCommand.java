@@ -30,13 +30,14 @@ public class EventCommand extends Command {
      * @param tasks the task list where the event task is added.
      * @param ui the user interface for displaying messages.
      * @param storage the storage system for persisting the task list.
+     * @throws AsepException if the task list cannot be saved.
      */
     @Override
-    public void execute(TaskList tasks, Ui ui, Storage storage) {
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws AsepException {
         Task task = new Event(description, from, to);
         tasks.add(task);
-        storage.saveTasks(tasks);
-        ui.showMessage("Got it. I've added this task:\n   " + task +
+        storage.recordAdd(tasks, task);
+        ui.showMessage("Got it. I've added this task as #" + task.getId() + ":\n   " + task +
                 "\nNow you have " + tasks.size() + " tasks in the list.");
     }
 }
@@ -0,0 +1,212 @@
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Represents an interval tree over the events whose times could be parsed.
+ * <p>
+ * The events are kept in a treap ordered by start time, and every node also records the latest
+ * end time in its subtree. That lets a query for the events overlapping a period skip every
+ * subtree that ends before the period or starts after it, so it costs O(log n + k) for k matches,
+ * and adding or removing an event costs O(log n). Events are treated as half-open periods, so an
+ * event ending at 2pm does not overlap one starting at 2pm.
+ * </p>
+ */
+public class EventIndex {
+    private static class Node {
+        private final Event event;
+        private final long start;
+        private final long end;
+        private final int priority;
+        private long maxEnd;
+        private Node left;
+        private Node right;
+
+        Node(Event event, int priority) {
+            this.event = event;
+            this.start = toSeconds(event.getStart());
+            this.end = toSeconds(event.getEnd());
+            this.priority = priority;
+            this.maxEnd = end;
+        }
+    }
+
+    private final Random random = new Random();
+    private Node root;
+
+    /**
+     * Adds a task to the index if it is an event with recognisable times.
+     *
+     * @param task the task to index.
+     */
+    public void add(Task task) {
+        if (task instanceof Event && ((Event) task).getStart() != null) {
+            root = insert(root, new Node((Event) task, random.nextInt()));
+        }
+    }
+
+    /**
+     * Removes a task from the index if it is an indexed event.
+     *
+     * @param task the task to remove.
+     */
+    public void remove(Task task) {
+        if (task instanceof Event && ((Event) task).getStart() != null) {
+            Event event = (Event) task;
+            root = delete(root, event, toSeconds(event.getStart()));
+        }
+    }
+
+    /**
+     * Returns the events that overlap the given period, in order of start time.
+     *
+     * @param from the start of the period, inclusive.
+     * @param to   the end of the period, exclusive.
+     * @return the overlapping events.
+     */
+    public ArrayList<Event> findOverlapping(LocalDateTime from, LocalDateTime to) {
+        ArrayList<Event> result = new ArrayList<>();
+        collect(root, toSeconds(from), toSeconds(to), result);
+        return result;
+    }
+
+    /**
+     * Returns every pair of events that overlap each other.
+     * <p>
+     * The events are walked in order of start time, and each one is only compared with the events
+     * that start before it ends, so the cost is O(n + k) for k pairs rather than O(n^2).
+     * </p>
+     *
+     * @return the overlapping pairs, each ordered by start time.
+     */
+    public ArrayList<Event[]> findConflicts() {
+        ArrayList<Node> nodes = new ArrayList<>();
+        inOrder(root, nodes);
+        ArrayList<Event[]> conflicts = new ArrayList<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            for (int j = i + 1; j < nodes.size() && nodes.get(j).start < node.end; j++) {
+                conflicts.add(new Event[] {node.event, nodes.get(j).event});
+            }
+        }
+        return conflicts;
+    }
+
+    private static long toSeconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * Orders nodes by start time, then by task ID so that events starting together stay distinct.
+     */
+    private static int compare(long start, Event event, Node node) {
+        if (start != node.start) {
+            return start < node.start ? -1 : 1;
+        }
+        return Integer.compare(event.getId(), node.event.getId());
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.start, added.event, node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node delete(Node node, Event event, long start) {
+        if (node == null) {
+            return null;
+        }
+        if (node.event == event) {
+            return merge(node.left, node.right);
+        }
+        if (compare(start, event, node) < 0) {
+            node.left = delete(node.left, event, start);
+        } else {
+            node.right = delete(node.right, event, start);
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(Node node) {
+        long maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+    }
+
+    private static void collect(Node node, long from, long to, ArrayList<Event> result) {
+        if (node == null || node.maxEnd <= from) {
+            return;
+        }
+        collect(node.left, from, to, result);
+        if (node.start >= to) {
+            return;
+        }
+        if (node.end > from) {
+            result.add(node.event);
+        }
+        collect(node.right, from, to, result);
+    }
+
+    private static void inOrder(Node node, ArrayList<Node> nodes) {
+        if (node != null) {
+            inOrder(node.left, nodes);
+            nodes.add(node);
+            inOrder(node.right, nodes);
+        }
+    }
+}
@@ -9,15 +9,32 @@ public class ExitCommand extends Command {
     /**
      * Executes the exit command.
      * <p>
-     * This method displays a farewell message using the user interface.
+     * This method waits until every pending write has reached the disk and displays a farewell
+     * message using the user interface.
      * </p>
      *
      * @param tasks the task list (not used in this command).
      * @param ui the user interface used to display the farewell message.
-     * @param storage the storage system (not used in this command).
+     * @param storage the storage system to flush before exiting.
+     * @throws AsepException if a pending write failed; the application then keeps running.
      */
     @Override
-    public void execute(TaskList tasks, Ui ui, Storage storage) {
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws AsepException {
+        storage.flush();
+        ui.showFarewell();
+    }
+
+    /**
+     * Executes the exit command, waiting until the pending writes of every loaded list have
+     * reached the disk.
+     *
+     * @param workspace the workspace holding the task lists to flush.
+     * @param ui the user interface used to display the farewell message.
+     * @throws AsepException if a pending write failed; the application then keeps running.
+     */
+    @Override
+    public void execute(Workspace workspace, Ui ui) throws AsepException {
+        workspace.getLists().flush();
         ui.showFarewell();
     }
 
@@ -0,0 +1,85 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Represents a command to export the task list to a file.
+ * <p>
+ * The tasks are written in one of the {@link TaskExchangeFormat}s, regardless of the format of
+ * the data file, so they can be read by other tools or by older versions of Asep. By default, the
+ * format is chosen by the extension of the file, and is the pipe-delimited text format for any
+ * other extension.
+ * </p>
+ * <p>
+ * The tasks are streamed from a snapshot of the list straight into a buffered writer, one record
+ * at a time, so exporting takes the same small amount of memory however long the list is, and
+ * other commands can change the list meanwhile without affecting the export.
+ * </p>
+ */
+public class ExportCommand extends Command {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final String filePath;
+    private final TaskExchangeFormat format;
+
+    /**
+     * Constructs an ExportCommand that writes to the given file in the format of its extension.
+     *
+     * @param filePath the path of the file to write.
+     */
+    public ExportCommand(String filePath) {
+        this(filePath, TaskExchangeFormat.forFile(filePath));
+    }
+
+    /**
+     * Constructs an ExportCommand that writes to the given file in the given format.
+     *
+     * @param filePath the path of the file to write.
+     * @param format   the format to write.
+     */
+    public ExportCommand(String filePath, TaskExchangeFormat format) {
+        this.filePath = filePath;
+        this.format = format;
+    }
+
+    /**
+     * Executes the export command by writing all tasks to the file and displaying a confirmation.
+     *
+     * @param tasks   the task list to export.
+     * @param ui      the user interface used to display messages.
+     * @param storage the storage system, which is not used.
+     * @throws AsepException if the file cannot be written.
+     */
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws AsepException {
+        long start = System.nanoTime();
+        List<Task> snapshot = tasks.getTasks();
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                Files.newOutputStream(Paths.get(filePath)), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            TaskExchangeFormat.TaskWriter writer = format.newWriter(out);
+            for (Task task : snapshot) {
+                writer.write(task);
+            }
+            writer.finish();
+        } catch (IOException e) {
+            throw new AsepException("Error exporting tasks: " + e.getMessage());
+        }
+        ui.showMessage("Exported " + snapshot.size() + " tasks to " + filePath + " as " + format.getName() + " "
+                + TaskExchangeFormat.formatThroughput(snapshot.size(), System.nanoTime() - start) + ".");
+    }
+
+    /**
+     * Indicates that this command only reads the task list.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
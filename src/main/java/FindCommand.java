@@ -1,12 +1,13 @@
 /**
- * Represents a command to find tasks in the task list that contain a specific keyword.
+ * Represents a command to find tasks in the task list that contain a specific keyword, or that
+ * match a {@link TaskQuery}.
  * <p>
- * This command iterates over the task list, checks each task's description for the keyword,
- * and displays a list of matching tasks to the user. If no tasks match the keyword, it informs the user accordingly.
+ * This command looks up the matching tasks through the task list's indexes where it can, and
+ * displays a list of matching tasks to the user. If no tasks match, it informs the user accordingly.
  * </p>
  */
 public class FindCommand extends Command {
-    private final String keyword;
+    private final TaskQuery query;
 
     /**
      * Constructs a FindCommand with the specified keyword.
@@ -14,13 +15,22 @@ public class FindCommand extends Command {
      * @param keyword the keyword to search for within task descriptions.
      */
     public FindCommand(String keyword) {
-        this.keyword = keyword;
+        this(TaskQuery.keyword(keyword));
     }
 
     /**
-     * Executes the find command by searching for tasks that contain the keyword in their descriptions.
+     * Constructs a FindCommand with the specified query.
+     *
+     * @param query the query the tasks must match.
+     */
+    public FindCommand(TaskQuery query) {
+        this.query = query;
+    }
+
+    /**
+     * Executes the find command by searching for tasks that match the query.
      * <p>
-     * The method builds a message that lists all matching tasks. If no tasks are found that match the keyword,
+     * The method builds a message that lists all matching tasks. If no tasks are found that match the query,
      * it appends a message indicating that no matching tasks were found.
      * </p>
      *
@@ -33,16 +43,23 @@ public class FindCommand extends Command {
         StringBuilder sb = new StringBuilder();
         sb.append("Here are the matching tasks in your list:\n");
         int count = 0;
-        for (int i = 0; i < tasks.size(); i++) {
-            Task task = tasks.get(i);
-            if (task.getDescription().toLowerCase().contains(keyword.toLowerCase())) {
-                count++;
-                sb.append(count + ". " + task.toString() + "\n");
-            }
+        for (Task task : tasks.find(query)) {
+            count++;
+            sb.append(count + ". " + task.toString() + "\n");
         }
         if (count == 0) {
             sb.append("No matching tasks found.");
         }
         ui.showMessage(sb.toString());
     }
+
+    /**
+     * Indicates that this command only reads the task list.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
 }
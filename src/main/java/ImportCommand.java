@@ -0,0 +1,163 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Represents a command to add all the tasks in a file to the task list.
+ * <p>
+ * The file is read in one of the {@link TaskExchangeFormat}s, by default the one of its
+ * extension. Reading and validating the records runs on a separate thread, which hands the tasks
+ * over in large batches through a short queue, while this thread appends each batch to the list
+ * as one change. At most a few batches are in flight at once, so the memory used beyond the list
+ * itself does not grow with the size of the file.
+ * </p>
+ * <p>
+ * The import is all or nothing: if a record is invalid, the tasks already appended are taken out
+ * again and the error names the line of the record. Once every task is in, the list is saved
+ * with a single write, however many tasks were imported.
+ * </p>
+ */
+public class ImportCommand extends Command {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int BATCH_SIZE = 16384;
+    private static final int QUEUED_BATCHES = 4;
+    private static final ArrayList<Task> END = new ArrayList<>();
+
+    private final String filePath;
+    private final TaskExchangeFormat format;
+
+    /**
+     * Constructs an ImportCommand that reads the given file in the format of its extension.
+     *
+     * @param filePath the path of the file to read.
+     */
+    public ImportCommand(String filePath) {
+        this(filePath, TaskExchangeFormat.forFile(filePath));
+    }
+
+    /**
+     * Constructs an ImportCommand that reads the given file in the given format.
+     *
+     * @param filePath the path of the file to read.
+     * @param format   the format of the file.
+     */
+    public ImportCommand(String filePath, TaskExchangeFormat format) {
+        this.filePath = filePath;
+        this.format = format;
+    }
+
+    /**
+     * Executes the import command by appending the tasks of the file to the task list, saving
+     * the list, and displaying how many tasks were imported and how fast.
+     *
+     * @param tasks   the task list the tasks are added to.
+     * @param ui      the user interface used to display messages.
+     * @param storage the storage system used to persist the task list.
+     * @throws AsepException if the file cannot be read or holds an invalid record, in which case
+     *                       no task is added, or if the task list cannot be saved.
+     */
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws AsepException {
+        long start = System.nanoTime();
+        PersistentTaskList before = tasks.getVersion();
+        int sizeBefore = tasks.size();
+        int count;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                Files.newInputStream(Paths.get(filePath)), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+            count = appendAll(format.newReader(in), tasks);
+        } catch (NoSuchFileException e) {
+            throw new AsepException("File not found: " + filePath);
+        } catch (IOException e) {
+            takeBack(tasks, before, sizeBefore);
+            throw new AsepException("Error importing tasks: " + e.getMessage());
+        } catch (AsepException e) {
+            takeBack(tasks, before, sizeBefore);
+            throw new AsepException(e.getMessage() + " No tasks were imported from " + filePath + ".");
+        }
+        if (count > 0) {
+            storage.recordAddAll(tasks);
+        }
+        ui.showMessage("Imported " + count + " tasks from " + filePath + " as " + format.getName() + " "
+                + TaskExchangeFormat.formatThroughput(count, System.nanoTime() - start) + ".\nNow you have "
+                + tasks.size() + " tasks in the list.");
+    }
+
+    /**
+     * Reads all tasks on a separate thread and appends them to the list in batches.
+     *
+     * @return the number of tasks appended.
+     */
+    private static int appendAll(TaskExchangeFormat.TaskReader reader, TaskList tasks)
+            throws IOException, AsepException {
+        ArrayBlockingQueue<ArrayList<Task>> batches = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+        AtomicBoolean isStopped = new AtomicBoolean();
+        FutureTask<Void> reading = new FutureTask<>(() -> {
+            try {
+                ArrayList<Task> batch = new ArrayList<>(BATCH_SIZE);
+                Task task;
+                while (!isStopped.get() && (task = reader.next()) != null) {
+                    batch.add(task);
+                    if (batch.size() == BATCH_SIZE) {
+                        batches.put(batch);
+                        batch = new ArrayList<>(BATCH_SIZE);
+                    }
+                }
+                batches.put(batch);
+            } finally {
+                batches.put(END);
+            }
+            return null;
+        });
+        Thread readerThread = new Thread(reading, "asep-import");
+        readerThread.setDaemon(true);
+        readerThread.start();
+        int count = 0;
+        try {
+            for (ArrayList<Task> batch = batches.take(); batch != END; batch = batches.take()) {
+                tasks.addAll(batch);
+                count += batch.size();
+            }
+            reading.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AsepException("The import was interrupted.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AsepException) {
+                throw (AsepException) cause;
+            }
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new AsepException("Error importing tasks: " + cause);
+        } finally {
+            // Lets the reading thread finish if this one stopped taking batches early.
+            isStopped.set(true);
+            batches.clear();
+        }
+        return count;
+    }
+
+    /**
+     * Takes the tasks appended by a failed import out of the list again.
+     */
+    private static void takeBack(TaskList tasks, PersistentTaskList before, int sizeBefore) {
+        if (before != null) {
+            tasks.restore(before);
+        } else if (tasks.size() > sizeBefore) {
+            BitSet appended = new BitSet();
+            appended.set(sizeBefore, tasks.size());
+            tasks.removeAll(appended);
+        }
+    }
+}
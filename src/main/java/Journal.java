@@ -0,0 +1,566 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Represents an append-only log of changes made to the task list.
+ * <p>
+ * Each change is stored as one small record so that a command only costs a single append
+ * instead of a rewrite of the whole data file. The records are replayed on top of the last
+ * snapshot when tasks are loaded. A journal that is being folded into a new snapshot is moved
+ * aside to a separate "compacting" file until the snapshot has been written.
+ * </p>
+ * <p>
+ * Every journal file starts with its generation, which goes up each time a journal is moved
+ * aside or cleared. A snapshot stores the last generation it includes in the same file as the
+ * tasks, so it is written atomically with them; replay skips any journal file of that generation
+ * or earlier. A crash between writing a snapshot and removing the journals it includes therefore
+ * never applies their records twice.
+ * </p>
+ * <p>
+ * {@link #flush()} forces the records written since the last flush to the disk, so a burst of
+ * records costs a single sync, and the directory is synced once after a journal file is created.
+ * </p>
+ */
+public class Journal {
+    /**
+     * Record written when a task is added; followed by the task in data file format, with
+     * backslashes, pipes and line breaks in its fields escaped.
+     */
+    public static final String ADD = "add";
+
+    /**
+     * Record written when tasks are marked as done; followed by the task indexes, as a
+     * comma-separated list of indexes and inclusive ranges such as "4" or "0-9,12", or by a
+     * single task ID such as "#12".
+     */
+    public static final String MARK = "mark";
+
+    /** Record written when tasks are marked as not done; followed by the task indexes or ID. */
+    public static final String UNMARK = "unmark";
+
+    /** Record written when tasks are deleted; followed by the task indexes before the deletion. */
+    public static final String DELETE = "delete";
+
+    /**
+     * Record written when a task that was removed is put back; followed by its index after the
+     * insertion and the task as in an {@link #ADD} record. Tasks put back together are written
+     * as consecutive records in ascending order of index.
+     */
+    public static final String INSERT = "insert";
+
+    /**
+     * Record that starts every journal file; followed by the generation of the file.
+     */
+    public static final String GENERATION = "generation";
+
+    /**
+     * Record written by older versions once the compacting journal had been folded into the
+     * snapshot. Only journals without a generation still rely on it.
+     */
+    public static final String COMPACTED = "compacted";
+
+    private static final String SEPARATOR = " | ";
+
+    private final Path path;
+    private final Path compactingPath;
+    private FileChannel channel;
+    private BufferedWriter writer;
+    private boolean needsForce;
+    private boolean isDirectoryForced;
+    private long size = -1;
+    private long generation = 1;
+    private boolean hasOlderFiles;
+
+    /**
+     * Constructs a Journal stored at the given path.
+     *
+     * @param filePath the path of the journal file.
+     */
+    public Journal(String filePath) {
+        this.path = Paths.get(filePath);
+        this.compactingPath = Paths.get(filePath + ".compacting");
+    }
+
+    /**
+     * Formats a record for the given operation.
+     *
+     * @param operation the operation name, such as {@link #ADD} or {@link #MARK}.
+     * @param argument  the operation argument.
+     * @return the record as stored in the journal.
+     */
+    public static String formatRecord(String operation, String argument) {
+        return operation + SEPARATOR + argument;
+    }
+
+    /**
+     * Reads the generation from a {@link #GENERATION} record, such as the first line of a journal
+     * file or of a text snapshot.
+     *
+     * @param record the record.
+     * @return the generation, or 0 if the record is not a generation record.
+     */
+    public static long parseGeneration(String record) {
+        String prefix = GENERATION + SEPARATOR;
+        if (!record.startsWith(prefix)) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(record.substring(prefix.length())));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Formats a task as the argument of an {@link #ADD} record.
+     * <p>
+     * The fields are the same as in the text data file, but escaped so that descriptions
+     * containing " | " or line breaks survive the round trip.
+     * </p>
+     *
+     * @param task the task to format.
+     * @return the escaped fields joined by " | ".
+     */
+    public static String formatTask(Task task) {
+        StringBuilder sb = new StringBuilder();
+        if (task.getId() != 0) {
+            sb.append('#').append(task.getId()).append(SEPARATOR);
+        }
+        sb.append(task.getType()).append(SEPARATOR).append(task.isDone ? "1" : "0").append(SEPARATOR);
+        appendEscaped(sb, task.getDescription());
+        if (task instanceof Deadline) {
+            sb.append(SEPARATOR).append(((Deadline) task).getBy().format(Deadline.INPUT_DATE_FORMAT));
+        } else if (task instanceof Event) {
+            Event event = (Event) task;
+            sb.append(SEPARATOR);
+            appendEscaped(sb, event.getFrom());
+            sb.append(SEPARATOR);
+            appendEscaped(sb, event.getTo());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Formats a task ID as the argument of a {@link #MARK} or {@link #UNMARK} record.
+     *
+     * @param id the ID of the task.
+     * @return the ID prefixed with "#".
+     */
+    public static String formatId(int id) {
+        return "#" + id;
+    }
+
+    /**
+     * Formats a set of task indexes as the argument of a {@link #MARK}, {@link #UNMARK} or
+     * {@link #DELETE} record, collapsing consecutive indexes into ranges.
+     *
+     * @param indexes the zero-based task indexes.
+     * @return the indexes and ranges joined by commas.
+     */
+    public static String formatIndexes(BitSet indexes) {
+        StringBuilder sb = new StringBuilder();
+        for (int from = indexes.nextSetBit(0); from >= 0; from = indexes.nextSetBit(from)) {
+            int to = indexes.nextClearBit(from) - 1;
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(from);
+            if (to > from) {
+                sb.append('-').append(to);
+            }
+            from = to + 1;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends a record to the journal.
+     * <p>
+     * The record is buffered until {@link #flush()} is called, so that several records can be
+     * written together.
+     * </p>
+     *
+     * @param record the record, as returned by {@link #formatRecord(String, String)}.
+     * @throws IOException if the record cannot be written.
+     */
+    public synchronized void append(String record) throws IOException {
+        open();
+        writer.write(record);
+        writer.newLine();
+        size += record.length() + 1;
+        needsForce = true;
+    }
+
+    /**
+     * Writes all buffered records to the journal file and forces them to the disk.
+     *
+     * @throws IOException if the records cannot be written.
+     */
+    public synchronized void flush() throws IOException {
+        if (writer == null || !needsForce) {
+            return;
+        }
+        writer.flush();
+        channel.force(false);
+        if (!isDirectoryForced) {
+            Storage.forceDirectory(path);
+            isDirectoryForced = true;
+        }
+        needsForce = false;
+    }
+
+    /**
+     * Returns the approximate size of the active journal in characters.
+     *
+     * @return the size of the active journal.
+     * @throws IOException if the size of an existing journal file cannot be read.
+     */
+    public synchronized long size() throws IOException {
+        if (size < 0) {
+            size = Files.exists(path) ? Files.size(path) : 0;
+        }
+        return size;
+    }
+
+    /**
+     * Returns the generation of the active journal, which a full snapshot written now includes.
+     *
+     * @return the generation of the active journal.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Checks whether the replayed journal files were written by an older version, which did not
+     * give them a generation. Such files must be folded into a full snapshot before any
+     * compaction, since replay cannot tell whether a snapshot includes them.
+     *
+     * @return true if a replayed journal file has no generation.
+     */
+    public synchronized boolean hasOlderFiles() {
+        return hasOlderFiles;
+    }
+
+    /**
+     * Checks whether an earlier compaction has not finished yet.
+     *
+     * @return true if a compacting journal file exists.
+     */
+    public boolean isCompacting() {
+        return Files.exists(compactingPath);
+    }
+
+    /**
+     * Moves the active journal aside so that it can be folded into a snapshot.
+     * <p>
+     * Records appended afterwards go to a fresh journal file of the next generation.
+     * </p>
+     *
+     * @return the generation of the journal moved aside, which the snapshot it is folded into
+     *         must store.
+     * @throws IOException if the journal cannot be moved.
+     */
+    public synchronized long rotate() throws IOException {
+        close();
+        if (Files.exists(path)) {
+            Files.move(path, compactingPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        size = 0;
+        return generation++;
+    }
+
+    /**
+     * Removes the compacting journal once a snapshot that includes its generation is written.
+     *
+     * @throws IOException if the file cannot be deleted.
+     */
+    public synchronized void finishCompaction() throws IOException {
+        Files.deleteIfExists(compactingPath);
+    }
+
+    /**
+     * Removes all journal files, for use after a full snapshot that includes the active
+     * generation has been written. Later records start the next generation.
+     *
+     * @throws IOException if the files cannot be deleted.
+     */
+    public synchronized void clear() throws IOException {
+        close();
+        Files.deleteIfExists(path);
+        Files.deleteIfExists(compactingPath);
+        size = 0;
+        generation++;
+        hasOlderFiles = false;
+    }
+
+    /**
+     * Flushes and closes the journal writer, if it is open.
+     *
+     * @throws IOException if the records cannot be written or the writer cannot be closed.
+     */
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            try {
+                flush();
+            } finally {
+                writer.close();
+                writer = null;
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * Replays the journal on top of the tasks loaded from the snapshot.
+     * <p>
+     * A compacting journal left behind by an interrupted compaction is replayed first. Journal
+     * files whose generation the snapshot already includes are deleted instead of replayed, as is
+     * a compacting journal without a generation that the active journal marks as compacted. The
+     * records are applied through the task list, so on a list backed by a data file, marking
+     * tasks by position only decodes the segments holding them.
+     * </p>
+     *
+     * @param tasks              the task list loaded from the snapshot.
+     * @param snapshotGeneration the last journal generation included in the snapshot, or 0 if
+     *                           the snapshot does not store one.
+     * @return the next ID of the task list, which is above every task added by the replayed
+     *         records, including tasks that were deleted again.
+     * @throws AsepException if a record is malformed or refers to a missing task.
+     */
+    public synchronized int replay(TaskList tasks, long snapshotGeneration) throws AsepException {
+        try {
+            ArrayList<String> records = readRecords(path);
+            long activeGeneration = readGeneration(records);
+            long latestGeneration = snapshotGeneration;
+            if (Files.exists(compactingPath)) {
+                ArrayList<String> compactingRecords = readRecords(compactingPath);
+                long compactingGeneration = readGeneration(compactingRecords);
+                if (isIncluded(compactingGeneration, snapshotGeneration)
+                        || compactingGeneration == 0 && records.contains(COMPACTED)) {
+                    Files.delete(compactingPath);
+                } else {
+                    applyAll(compactingRecords, tasks);
+                    hasOlderFiles |= compactingGeneration == 0 && !compactingRecords.isEmpty();
+                    latestGeneration = Math.max(latestGeneration, compactingGeneration);
+                }
+            }
+            if (isIncluded(activeGeneration, snapshotGeneration)) {
+                // A full snapshot was written, but the journal was not cleared after it.
+                Files.delete(path);
+                size = 0;
+            } else {
+                applyAll(records, tasks);
+                hasOlderFiles |= activeGeneration == 0 && !records.isEmpty();
+            }
+            generation = activeGeneration > latestGeneration ? activeGeneration : latestGeneration + 1;
+            return tasks.getNextId();
+        } catch (IOException e) {
+            throw new AsepException("Error loading journal: " + e.getMessage());
+        }
+    }
+
+    private static long readGeneration(ArrayList<String> records) {
+        return records.isEmpty() ? 0 : parseGeneration(records.get(0));
+    }
+
+    private static boolean isIncluded(long fileGeneration, long snapshotGeneration) {
+        return fileGeneration > 0 && fileGeneration <= snapshotGeneration;
+    }
+
+    private static ArrayList<String> readRecords(Path file) throws IOException {
+        ArrayList<String> records = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return records;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                records.add(line);
+            }
+        }
+        return records;
+    }
+
+    private static void applyAll(ArrayList<String> records, TaskList tasks) throws AsepException {
+        String insertPrefix = INSERT + SEPARATOR;
+        int[] indexes = new int[16];
+        ArrayList<Task> inserted = new ArrayList<>();
+        for (String record : records) {
+            if (!record.startsWith(insertPrefix)) {
+                insertAll(tasks, indexes, inserted);
+                apply(record, tasks);
+                continue;
+            }
+            String argument = record.substring(insertPrefix.length());
+            int separator = argument.indexOf(SEPARATOR);
+            int index;
+            try {
+                index = Integer.parseInt(separator == -1 ? argument : argument.substring(0, separator));
+            } catch (NumberFormatException e) {
+                throw new AsepException("Journal is corrupted: invalid task number in record: " + record);
+            }
+            // Inserting at ascending indexes one by one is the same as inserting all at once, which
+            // only copies the list once; tasks put back together always come in ascending order.
+            int count = inserted.size();
+            if (count > 0 && index <= indexes[count - 1]) {
+                insertAll(tasks, indexes, inserted);
+                count = 0;
+            }
+            if (separator == -1 || index < 0 || index > tasks.size() + count) {
+                throw new AsepException("Journal is corrupted: task number out of range in record: " + record);
+            }
+            if (count == indexes.length) {
+                indexes = Arrays.copyOf(indexes, count * 2);
+            }
+            indexes[count] = index;
+            inserted.add(Storage.createTask(splitEscaped(argument.substring(separator + SEPARATOR.length())), record));
+        }
+        insertAll(tasks, indexes, inserted);
+    }
+
+    private static void insertAll(TaskList tasks, int[] indexes, ArrayList<Task> inserted) {
+        if (!inserted.isEmpty()) {
+            tasks.insertAll(Arrays.copyOf(indexes, inserted.size()), inserted);
+            inserted.clear();
+        }
+    }
+
+    private static void apply(String record, TaskList tasks) throws AsepException {
+        if (record.equals(COMPACTED) || parseGeneration(record) > 0) {
+            return;
+        }
+        int separator = record.indexOf(SEPARATOR);
+        if (separator == -1) {
+            throw new AsepException("Journal is corrupted: malformed record: " + record);
+        }
+        String operation = record.substring(0, separator);
+        String argument = record.substring(separator + SEPARATOR.length());
+        if (operation.equals(ADD)) {
+            tasks.add(Storage.createTask(splitEscaped(argument), record));
+            return;
+        }
+        if (!operation.equals(MARK) && !operation.equals(UNMARK) && !operation.equals(DELETE)) {
+            throw new AsepException("Journal is corrupted: unknown operation in record: " + record);
+        }
+        if (argument.startsWith("#") && !operation.equals(DELETE)) {
+            Task task;
+            try {
+                task = tasks.getById(Integer.parseInt(argument.substring(1)));
+            } catch (NumberFormatException e) {
+                throw new AsepException("Journal is corrupted: invalid task ID in record: " + record);
+            }
+            if (task == null) {
+                throw new AsepException("Journal is corrupted: unknown task ID in record: " + record);
+            }
+            if (operation.equals(MARK)) {
+                tasks.markAsDone(task);
+            } else {
+                tasks.markAsNotDone(task);
+            }
+            return;
+        }
+        BitSet indexes = parseIndexes(argument, tasks.size(), record);
+        if (operation.equals(DELETE)) {
+            tasks.removeAll(indexes);
+        } else if (operation.equals(MARK)) {
+            tasks.markAsDone(indexes);
+        } else {
+            tasks.markAsNotDone(indexes);
+        }
+    }
+
+    private static BitSet parseIndexes(String argument, int size, String record) throws AsepException {
+        BitSet indexes = new BitSet();
+        try {
+            for (String item : argument.split(",")) {
+                int dashIndex = item.indexOf('-', 1);
+                int from = Integer.parseInt(dashIndex == -1 ? item : item.substring(0, dashIndex));
+                int to = dashIndex == -1 ? from : Integer.parseInt(item.substring(dashIndex + 1));
+                if (from < 0 || to < from || to >= size) {
+                    throw new AsepException("Journal is corrupted: task number out of range in record: " + record);
+                }
+                indexes.set(from, to + 1);
+            }
+        } catch (NumberFormatException e) {
+            throw new AsepException("Journal is corrupted: invalid task number in record: " + record);
+        }
+        return indexes;
+    }
+
+    private static void appendEscaped(StringBuilder sb, String field) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '|':
+                    sb.append("\\|");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Splits an escaped argument on its unescaped " | " separators and unescapes the fields.
+     */
+    private static String[] splitEscaped(String argument) {
+        ArrayList<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < argument.length(); i++) {
+            char c = argument.charAt(i);
+            if (c == '\\' && i + 1 < argument.length()) {
+                char next = argument.charAt(++i);
+                field.append(next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else if (c == '|') {
+                // A raw pipe is always the middle of a " | " separator.
+                field.setLength(Math.max(0, field.length() - 1));
+                fields.add(field.toString());
+                field.setLength(0);
+                i++;
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    private void open() throws IOException {
+        if (writer == null) {
+            boolean isNew = size() == 0;
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8));
+            if (isNew) {
+                String record = formatRecord(GENERATION, Long.toString(generation));
+                writer.write(record);
+                writer.newLine();
+                size += record.length() + 1;
+                isDirectoryForced = false;
+            }
+        }
+    }
+}
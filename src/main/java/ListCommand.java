@@ -1,19 +1,112 @@
+import java.util.List;
+
 /**
  * Represents a command to display the list of all tasks.
  * <p>
- * When executed, this command instructs the user interface to show the complete task list.
+ * When executed, this command instructs the user interface to show the complete task list,
+ * or only one page or range of it when one was requested. The list is shown in list order, or
+ * sorted in a {@link SortedTaskIndex.Order}, in which case the tasks are numbered by their place
+ * in the sorted list.
  * </p>
  */
 public class ListCommand extends Command {
     /**
-     * Executes the list command by displaying the entire task list using the user interface.
+     * The number of tasks shown on each page of "list &lt;page&gt;".
+     */
+    public static final int PAGE_SIZE = 50;
+
+    private final SortedTaskIndex.Order order;
+    private final int from;
+    private final int to;
+
+    /**
+     * Constructs a ListCommand that displays the whole task list.
+     */
+    public ListCommand() {
+        this(-1, -1);
+    }
+
+    /**
+     * Constructs a ListCommand that displays the tasks in the given range.
+     *
+     * @param from the zero-based index of the first task to display.
+     * @param to   the zero-based index after the last task to display.
+     */
+    public ListCommand(int from, int to) {
+        this(null, from, to);
+    }
+
+    /**
+     * Constructs a ListCommand that displays the tasks in the given range of the list sorted in
+     * the given order.
+     *
+     * @param order the order, or null for list order.
+     * @param from  the zero-based rank of the first task to display, or -1 for the whole list.
+     * @param to    the zero-based rank after the last task to display.
+     */
+    public ListCommand(SortedTaskIndex.Order order, int from, int to) {
+        this.order = order;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Creates a ListCommand that displays the given page of the task list.
+     *
+     * @param page the one-based page number.
+     * @return the command displaying that page.
+     */
+    public static ListCommand forPage(int page) {
+        return forPage(null, page);
+    }
+
+    /**
+     * Creates a ListCommand that displays the given page of the task list sorted in the given
+     * order.
+     *
+     * @param order the order, or null for list order.
+     * @param page  the one-based page number.
+     * @return the command displaying that page.
+     */
+    public static ListCommand forPage(SortedTaskIndex.Order order, int page) {
+        return new ListCommand(order, (page - 1) * PAGE_SIZE, page * PAGE_SIZE);
+    }
+
+    /**
+     * Executes the list command by displaying the task list, or the requested part of it,
+     * using the user interface.
      *
      * @param tasks   the task list containing all tasks.
      * @param ui      the user interface used to display the task list.
      * @param storage the storage system (not used in this command).
+     * @throws AsepException if the requested range starts beyond the end of the list.
+     */
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws AsepException {
+        if (order == null && (from < 0 || tasks.isEmpty())) {
+            ui.showTaskList(tasks);
+            return;
+        }
+        int size = tasks.size();
+        if (from >= size && size > 0) {
+            throw new AsepException("There are only " + size + " tasks in the list.");
+        }
+        if (order == null) {
+            ui.showTaskList(tasks, from, Math.min(to, size));
+            return;
+        }
+        int first = Math.max(0, from);
+        List<Task> sorted = tasks.getSorted(order, first, from < 0 ? size : to);
+        ui.showSortedTaskList(sorted, order, first, from < 0 ? -1 : size);
+    }
+
+    /**
+     * Indicates that this command only reads the task list.
+     *
+     * @return true.
      */
     @Override
-    public void execute(TaskList tasks, Ui ui, Storage storage) {
-        ui.showTaskList(tasks);
+    public boolean isReadOnly() {
+        return true;
     }
 }
@@ -0,0 +1,52 @@
+/**
+ * Represents a command to show the names of all task lists.
+ * <p>
+ * The list in use is marked, and the number of tasks is shown for the lists that are loaded.
+ * </p>
+ */
+public class ListsCommand extends WorkspaceCommand {
+    /**
+     * Executes the command by displaying every saved or loaded list.
+     *
+     * @param workspace the workspace holding the task lists.
+     * @param ui        the user interface for displaying messages.
+     * @throws AsepException if the saved lists cannot be read.
+     */
+    @Override
+    public void execute(Workspace workspace, Ui ui) throws AsepException {
+        TaskLists lists = workspace.getLists();
+        StringBuilder sb = new StringBuilder();
+        sb.append("Here are your task lists:");
+        int count = 0;
+        for (String name : lists.getNames()) {
+            count++;
+            sb.append("\n" + count + ". " + name);
+            int size = lists.getLoadedSize(name);
+            boolean isCurrent = name.equals(workspace.getCurrentName());
+            if (isCurrent || size != -1) {
+                sb.append(" (");
+                if (isCurrent) {
+                    sb.append("in use");
+                }
+                if (isCurrent && size != -1) {
+                    sb.append(", ");
+                }
+                if (size != -1) {
+                    sb.append(size + " tasks");
+                }
+                sb.append(")");
+            }
+        }
+        ui.showMessage(sb.toString());
+    }
+
+    /**
+     * Indicates that this command only reads the task lists.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
@@ -7,6 +7,7 @@
  */
 public class MarkCommand extends Command {
     private int index;
+    private int id;
 
     /**
      * Constructs a MarkCommand with the specified task index.
@@ -18,7 +19,19 @@ public class MarkCommand extends Command {
     }
 
     /**
-     * Executes the mark command by marking the task at the given index as done.
+     * Creates a MarkCommand for the task with the given ID.
+     *
+     * @param id the ID of the task to be marked as done.
+     * @return the command.
+     */
+    public static MarkCommand forId(int id) {
+        MarkCommand command = new MarkCommand(-1);
+        command.id = id;
+        return command;
+    }
+
+    /**
+     * Executes the mark command by marking the task at the given index, or with the given ID, as done.
      * <p>
      * The method first validates that the provided index is within the bounds of the task list.
      * If the index is invalid, an AsepException is thrown. Otherwise, the task is marked as done,
@@ -32,11 +45,21 @@ public class MarkCommand extends Command {
      */
     @Override
     public void execute(TaskList tasks, Ui ui, Storage storage) throws AsepException {
+        if (id != 0) {
+            Task task = tasks.getById(id);
+            if (task == null) {
+                throw new AsepException("No task has the ID #" + id + ".");
+            }
+            tasks.markAsDone(task);
+            storage.recordMark(tasks, task);
+            ui.showMessage("Nice! I've marked this task as done:\n   " + task);
+            return;
+        }
         if (index < 0 || index >= tasks.size()) {
             throw new AsepException("Invalid task number.");
         }
-        tasks.get(index).markAsDone();
-        storage.saveTasks(tasks);
+        tasks.markAsDone(index);
+        storage.recordMark(tasks, index);
         ui.showMessage("Nice! I've marked this task as done:\n   " + tasks.get(index));
     }
 }
@@ -0,0 +1,287 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects timings and I/O counts of Asep while it runs.
+ * <p>
+ * For every command word, the latency of each command is recorded in a {@link LatencyHistogram},
+ * and its time is split into parsing, running the command, waiting for {@link Storage}, and
+ * writing output through {@link Ui}. Storage and Ui report the time they spend on the command's
+ * thread through {@link #addStorageTime(long)} and {@link #addOutputTime(long)}, which only add
+ * to a counter of the current thread. Loads, snapshot writes and journal writes are counted with
+ * the bytes and tasks or records they read and write. Every update is a handful of atomic
+ * additions, so the metrics are always collected.
+ * </p>
+ * <p>
+ * The metrics are shown by the "stats" command and can be written to a JSON file at a regular
+ * interval. The methods may be called from several threads at once.
+ * </p>
+ */
+public class Metrics {
+    private static final int STORAGE = 0;
+    private static final int OUTPUT = 1;
+    private static final ThreadLocal<long[]> PHASE_NANOS = ThreadLocal.withInitial(() -> new long[2]);
+
+    /**
+     * Represents the metrics of one command word.
+     */
+    private static class CommandStats {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder parseNanos = new LongAdder();
+        private final LongAdder executeNanos = new LongAdder();
+        private final LongAdder storageNanos = new LongAdder();
+        private final LongAdder outputNanos = new LongAdder();
+    }
+
+    private final long startMillis = System.currentTimeMillis();
+    private final ConcurrentHashMap<String, CommandStats> commands = new ConcurrentHashMap<>();
+    private final LatencyHistogram loads = new LatencyHistogram();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder tasksRead = new LongAdder();
+    private final LatencyHistogram snapshots = new LatencyHistogram();
+    private final LongAdder snapshotBytesWritten = new LongAdder();
+    private final LongAdder tasksWritten = new LongAdder();
+    private final LongAdder journalWrites = new LongAdder();
+    private final LongAdder journalRecordsWritten = new LongAdder();
+    private final LongAdder journalBytesWritten = new LongAdder();
+    private ScheduledExecutorService dumper;
+    private Path dumpPath;
+
+    /**
+     * Starts timing a command on the current thread.
+     *
+     * @return the start time, to pass to {@link #recordCommand(String, long, long)}.
+     */
+    public static long startCommand() {
+        long[] phaseNanos = PHASE_NANOS.get();
+        phaseNanos[STORAGE] = 0;
+        phaseNanos[OUTPUT] = 0;
+        return System.nanoTime();
+    }
+
+    /**
+     * Adds time the current thread spent waiting for storage to the command it is running.
+     *
+     * @param nanos the time in nanoseconds.
+     */
+    public static void addStorageTime(long nanos) {
+        PHASE_NANOS.get()[STORAGE] += nanos;
+    }
+
+    /**
+     * Adds time the current thread spent writing output to the command it is running.
+     *
+     * @param nanos the time in nanoseconds.
+     */
+    public static void addOutputTime(long nanos) {
+        PHASE_NANOS.get()[OUTPUT] += nanos;
+    }
+
+    /**
+     * Records a command that has just finished on the current thread.
+     *
+     * @param word   the command word, in lower case.
+     * @param start  the time returned by {@link #startCommand()}.
+     * @param parsed the time at which the command had been parsed.
+     */
+    public void recordCommand(String word, long start, long parsed) {
+        long end = System.nanoTime();
+        long[] phaseNanos = PHASE_NANOS.get();
+        CommandStats stats = commands.computeIfAbsent(word, key -> new CommandStats());
+        stats.latency.record(end - start);
+        stats.parseNanos.add(parsed - start);
+        stats.storageNanos.add(phaseNanos[STORAGE]);
+        stats.outputNanos.add(phaseNanos[OUTPUT]);
+        stats.executeNanos.add(Math.max(0, end - parsed - phaseNanos[STORAGE] - phaseNanos[OUTPUT]));
+    }
+
+    /**
+     * Records that a task list was loaded.
+     *
+     * @param nanos the time the load took.
+     * @param bytes the size of the data file and journal.
+     * @param tasks the number of tasks in the loaded list.
+     */
+    public void recordLoad(long nanos, long bytes, int tasks) {
+        loads.record(nanos);
+        bytesRead.add(bytes);
+        tasksRead.add(tasks);
+    }
+
+    /**
+     * Records that a snapshot of a task list was written to its data file.
+     *
+     * @param nanos the time the write took.
+     * @param bytes the size of the written file.
+     * @param tasks the number of tasks written.
+     */
+    public void recordSnapshot(long nanos, long bytes, int tasks) {
+        snapshots.record(nanos);
+        snapshotBytesWritten.add(bytes);
+        tasksWritten.add(tasks);
+    }
+
+    /**
+     * Records that records were appended to a journal.
+     *
+     * @param records the number of records.
+     * @param bytes   the approximate size of the records, in characters.
+     */
+    public void recordJournalWrite(int records, long bytes) {
+        journalWrites.increment();
+        journalRecordsWritten.add(records);
+        journalBytesWritten.add(bytes);
+    }
+
+    /**
+     * Formats the metrics for display.
+     *
+     * @return the metrics as lines of text.
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        long minutes = (System.currentTimeMillis() - startMillis) / 60_000;
+        sb.append("Here are the statistics since Asep started ").append(minutes).append(" min ago.\n");
+        sb.append("Commands: count, median, 99th percentile and slowest time, and where the time went:");
+        for (Map.Entry<String, CommandStats> entry : new TreeMap<>(commands).entrySet()) {
+            CommandStats stats = entry.getValue();
+            LatencyHistogram latency = stats.latency;
+            double total = Math.max(1, latency.getTotal());
+            sb.append(String.format(Locale.ROOT,
+                    "\n %-10s %7d %9s %9s %9s  parse %d%%, run %d%%, storage %d%%, output %d%%",
+                    entry.getKey(), latency.getCount(), formatMillis(latency.getPercentile(0.5)),
+                    formatMillis(latency.getPercentile(0.99)), formatMillis(latency.getMax()),
+                    Math.round(100 * stats.parseNanos.sum() / total),
+                    Math.round(100 * stats.executeNanos.sum() / total),
+                    Math.round(100 * stats.storageNanos.sum() / total),
+                    Math.round(100 * stats.outputNanos.sum() / total)));
+        }
+        if (commands.isEmpty()) {
+            sb.append("\n none yet");
+        }
+        sb.append(String.format(Locale.ROOT, "\nLoads: %d, taking %s in total and %s at most; %d tasks, %d bytes read",
+                loads.getCount(), formatMillis(loads.getTotal()), formatMillis(loads.getMax()), tasksRead.sum(),
+                bytesRead.sum()));
+        sb.append(String.format(Locale.ROOT, "\nSnapshots: %d, taking %s at the median and %s at most; "
+                + "%d tasks, %d bytes written", snapshots.getCount(), formatMillis(snapshots.getPercentile(0.5)),
+                formatMillis(snapshots.getMax()), tasksWritten.sum(), snapshotBytesWritten.sum()));
+        sb.append(String.format(Locale.ROOT, "\nJournal: %d writes; %d records, about %d bytes written",
+                journalWrites.sum(), journalRecordsWritten.sum(), journalBytesWritten.sum()));
+        return sb.toString();
+    }
+
+    /**
+     * Formats the metrics as a JSON object, with all durations in nanoseconds.
+     *
+     * @return the JSON text.
+     */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n  \"uptimeMillis\": ").append(System.currentTimeMillis() - startMillis);
+        sb.append(",\n  \"commands\": {");
+        boolean isFirst = true;
+        for (Map.Entry<String, CommandStats> entry : new TreeMap<>(commands).entrySet()) {
+            CommandStats stats = entry.getValue();
+            sb.append(isFirst ? "\n" : ",\n").append("    \"").append(entry.getKey()).append("\": {");
+            appendHistogram(sb, stats.latency);
+            sb.append(", \"parseNanos\": ").append(stats.parseNanos.sum());
+            sb.append(", \"executeNanos\": ").append(stats.executeNanos.sum());
+            sb.append(", \"storageNanos\": ").append(stats.storageNanos.sum());
+            sb.append(", \"outputNanos\": ").append(stats.outputNanos.sum()).append('}');
+            isFirst = false;
+        }
+        sb.append(isFirst ? "}" : "\n  }");
+        sb.append(",\n  \"loads\": {");
+        appendHistogram(sb, loads);
+        sb.append(", \"bytesRead\": ").append(bytesRead.sum());
+        sb.append(", \"tasksRead\": ").append(tasksRead.sum()).append('}');
+        sb.append(",\n  \"snapshots\": {");
+        appendHistogram(sb, snapshots);
+        sb.append(", \"bytesWritten\": ").append(snapshotBytesWritten.sum());
+        sb.append(", \"tasksWritten\": ").append(tasksWritten.sum()).append('}');
+        sb.append(",\n  \"journal\": {\"writes\": ").append(journalWrites.sum());
+        sb.append(", \"recordsWritten\": ").append(journalRecordsWritten.sum());
+        sb.append(", \"bytesWritten\": ").append(journalBytesWritten.sum()).append("}\n}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Starts writing the metrics to the given file at a regular interval, on a background thread.
+     * <p>
+     * The file is replaced as a whole each time, so readers never see a partly written file.
+     * A write that fails is simply tried again at the next interval.
+     * </p>
+     *
+     * @param filePath the JSON file to write.
+     * @param seconds  the number of seconds between writes.
+     */
+    public synchronized void startDumping(String filePath, long seconds) {
+        dumpPath = Paths.get(filePath);
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "asep-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, seconds);
+        dumper.scheduleWithFixedDelay(() -> {
+            try {
+                dump();
+            } catch (IOException e) {
+                // Tried again at the next interval.
+            }
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the regular writes started by {@link #startDumping(String, long)} and writes the
+     * metrics one last time.
+     *
+     * @throws AsepException if the file cannot be written.
+     */
+    public synchronized void stopDumping() throws AsepException {
+        if (dumper == null) {
+            return;
+        }
+        dumper.shutdown();
+        dumper = null;
+        try {
+            dump();
+        } catch (IOException e) {
+            throw new AsepException("Error writing statistics: " + e.getMessage());
+        }
+    }
+
+    private void dump() throws IOException {
+        Path path = dumpPath;
+        if (path.getParent() != null && !Files.exists(path.getParent())) {
+            Files.createDirectories(path.getParent());
+        }
+        Path tempPath = Paths.get(path + ".tmp");
+        Files.write(tempPath, toJson().getBytes(StandardCharsets.UTF_8));
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void appendHistogram(StringBuilder sb, LatencyHistogram histogram) {
+        sb.append("\"count\": ").append(histogram.getCount());
+        sb.append(", \"totalNanos\": ").append(histogram.getTotal());
+        sb.append(", \"p50Nanos\": ").append(histogram.getPercentile(0.5));
+        sb.append(", \"p99Nanos\": ").append(histogram.getPercentile(0.99));
+        sb.append(", \"maxNanos\": ").append(histogram.getMax());
+    }
+
+    private static String formatMillis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f ms", nanos / 1e6);
+    }
+}
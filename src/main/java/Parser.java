@@ -1,30 +1,87 @@
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
 
 /**
  * The Parser class is responsible for interpreting user input commands
  * and converting them into corresponding Command objects.
  * <p>
- * It supports various commands such as "bye", "list", "mark", "unmark", "delete",
- * "todo", "deadline", "event", and "find". If the command or its format is invalid,
- * an AsepException is thrown.
+ * Commands are resolved through a {@link CommandTable} that maps each command word to the parser
+ * of its arguments. The built-in commands are "bye", "list", "mark", "unmark", "delete", "todo",
+ * "deadline", "event", "find", "search", "due", "upcoming", "overdue", "conflicts", "on", "free",
+ * "use", "lists", "undo", "redo", "stats", "export", and "import"; further commands can be added
+ * with {@link #register(String, CommandTable.CommandParser)}.
+ * The input is scanned in place, so parsing a command allocates little more than the command and
+ * its arguments. If the command or its format is invalid, an AsepException is thrown.
  * </p>
  */
 public class Parser {
+    private static final CommandTable COMMANDS = new CommandTable();
+    private static final String[] DEADLINE_MARKERS = {"/by"};
+    private static final String[] EVENT_MARKERS = {"/from", "/to"};
+
+    static {
+        register("bye", (input, start) -> new ExitCommand());
+        register("list", Parser::parseList);
+        register("mark", (input, start) -> parseTaskCommand(input, start, BulkCommand.Operation.MARK));
+        register("unmark", (input, start) -> parseTaskCommand(input, start, BulkCommand.Operation.UNMARK));
+        register("delete", (input, start) -> parseTaskCommand(input, start, BulkCommand.Operation.DELETE));
+        register("todo", Parser::parseTodo);
+        register("deadline", Parser::parseDeadline);
+        register("event", Parser::parseEvent);
+        register("export", Parser::parseExport);
+        register("import", Parser::parseImport);
+        register("find", Parser::parseFind);
+        register("search", Parser::parseSearch);
+        register("due", (input, start) -> DueCommand.on(parseDate(trim(input, start, input.length()))));
+        register("upcoming", (input, start) -> DueCommand.upcoming(LocalDate.now(), parseDays(input, start)));
+        register("overdue", (input, start) -> DueCommand.overdue(LocalDate.now()));
+        register("conflicts", (input, start) -> new ConflictsCommand());
+        register("on", (input, start) -> new ScheduleCommand(parseDate(trim(input, start, input.length())), false));
+        register("free", (input, start) -> new ScheduleCommand(parseDate(trim(input, start, input.length())), true));
+        register("use", (input, start) -> new UseCommand(TaskLists.checkName(trim(input, start, input.length()))));
+        register("lists", (input, start) -> new ListsCommand());
+        register("undo", (input, start) -> UndoCommand.undo());
+        register("redo", (input, start) -> UndoCommand.redo());
+        register("stats", (input, start) -> new StatsCommand());
+    }
+
+    /**
+     * Registers a command word together with the parser of its arguments.
+     *
+     * @param word   the command word, made of letters only and matched case-insensitively.
+     * @param parser the parser that builds the command from the input.
+     */
+    public static void register(String word, CommandTable.CommandParser parser) {
+        COMMANDS.register(word, parser);
+    }
 
     /**
      * Parses a full command string and returns the appropriate Command object.
      * <p>
-     * The method determines the command type based on the first word of the input,
-     * extracts necessary arguments, and creates a corresponding Command instance.
-     * Supported commands include:
+     * The command word is the text before the first space. It is looked up in the command table,
+     * and the rest of the input is handed to the parser registered for it. Supported commands
+     * include:
      * <ul>
      *   <li>"bye" for exiting the application</li>
-     *   <li>"list" for listing all tasks</li>
-     *   <li>"mark", "unmark", and "delete" for task operations (requires a task number)</li>
+     *   <li>"list" for listing all tasks, or one page or range of them, in list order or sorted</li>
+     *   <li>"mark", "unmark", and "delete" for task operations (requires a task number, a task
+     *   ID such as "#12", a list of numbers and ranges, "done", or "all")</li>
      *   <li>"todo" for adding a todo task (requires a description)</li>
      *   <li>"deadline" for adding a deadline task (requires a description and a date)</li>
      *   <li>"event" for adding an event task (requires a description, start, and end time)</li>
-     *   <li>"find" for searching tasks by a keyword</li>
+     *   <li>"find" for searching tasks by a keyword, or by a query combining keywords, types,
+     *   status and due dates</li>
+     *   <li>"search" for finding the tasks that best match some words, allowing for typos</li>
+     *   <li>"due", "upcoming", and "overdue" for listing deadlines by due date</li>
+     *   <li>"conflicts", "on", and "free" for checking event times</li>
+     *   <li>"use" and "lists" for switching between named task lists</li>
+     *   <li>"undo" and "redo" for taking back the last change to the list in use, or making it again</li>
+     *   <li>"stats" for showing how long commands take and how much is read and written</li>
+     *   <li>"export" for writing the tasks to a file as txt, csv, jsonl or ics, in the format given
+     *   after the file name or else the one of its extension</li>
+     *   <li>"import" for adding the tasks of a file in one of the same formats</li>
      * </ul>
      * </p>
      *
@@ -33,90 +90,584 @@ public class Parser {
      * @throws AsepException if the command is unrecognized or if its format is invalid.
      */
     public static Command parse(String fullCommand) throws AsepException {
-        String commandWord = fullCommand.split(" ")[0].toLowerCase();
-        switch (commandWord) {
-            case "bye":
-                return new ExitCommand();
-            case "list":
-                return new ListCommand();
-            case "mark":
-                return new MarkCommand(parseTaskIndex(fullCommand));
-            case "unmark":
-                return new UnmarkCommand(parseTaskIndex(fullCommand));
-            case "delete":
-                return new DeleteCommand(parseTaskIndex(fullCommand));
-            case "todo":
-                String todoDesc = fullCommand.substring(5).trim();
-                if (todoDesc.isEmpty()) {
-                    throw new AsepException("The description of a todo cannot be empty.");
-                }
-                return new TodoCommand(todoDesc);
-            case "deadline":
-                String deadlineContent = fullCommand.substring(9).trim();
-                int byIndex = deadlineContent.indexOf("/by");
-                if (byIndex == -1) {
-                    throw new AsepException("Invalid deadline format. Use: deadline <desc> /by <date>");
-                }
-                String deadlineDesc = deadlineContent.substring(0, byIndex).trim();
-                String byStr = deadlineContent.substring(byIndex + 3).trim();
-                if (deadlineDesc.isEmpty() || byStr.isEmpty()) {
-                    throw new AsepException("Deadline description and date cannot be empty.");
-                }
-                LocalDate byDate;
-                try {
-                    byDate = LocalDate.parse(byStr, Deadline.INPUT_DATE_FORMAT);
-                } catch (Exception e) {
-                    throw new AsepException("Invalid date format. Please use yyyy-MM-dd.");
-                }
-                return new DeadlineCommand(deadlineDesc, byDate);
-            case "event":
-                String eventContent = fullCommand.substring(6).trim();
-                int fromIndex = eventContent.indexOf("/from");
-                int toIndex = eventContent.indexOf("/to");
-                if (fromIndex == -1 || toIndex == -1 || fromIndex > toIndex) {
-                    throw new AsepException("Invalid event format. Use: event <desc> /from <start> /to <end>");
-                }
-                String eventDesc = eventContent.substring(0, fromIndex).trim();
-                String from = eventContent.substring(fromIndex + 5, toIndex).trim();
-                String to = eventContent.substring(toIndex + 3).trim();
-                if (eventDesc.isEmpty() || from.isEmpty() || to.isEmpty()) {
-                    throw new AsepException("Event description, start, and end times cannot be empty.");
-                }
-                return new EventCommand(eventDesc, from, to);
-            case "find":
-                String searchTerm = fullCommand.substring(5).trim();
-                if (searchTerm.isEmpty()) {
-                    throw new AsepException("Search term cannot be empty.");
+        int wordEnd = fullCommand.indexOf(' ');
+        if (wordEnd == -1) {
+            wordEnd = fullCommand.length();
+        }
+        CommandTable.CommandParser parser = COMMANDS.lookup(fullCommand, 0, wordEnd);
+        if (parser == null || wordEnd == 0) {
+            throw new AsepException("Oops! I don't recognize this command. Please try again.");
+        }
+        return parser.parse(fullCommand, wordEnd);
+    }
+
+    /**
+     * Returns the command word of the given input, under which its {@link Metrics} are recorded.
+     *
+     * @param fullCommand the full command input from the user.
+     * @return the command word in lower case, or "unknown" if it is not a registered command.
+     */
+    public static String getCommandWord(String fullCommand) {
+        int wordEnd = fullCommand.indexOf(' ');
+        if (wordEnd == -1) {
+            wordEnd = fullCommand.length();
+        }
+        if (wordEnd == 0 || COMMANDS.lookup(fullCommand, 0, wordEnd) == null) {
+            return "unknown";
+        }
+        return fullCommand.substring(0, wordEnd).toLowerCase(Locale.ROOT);
+    }
+
+    private static Command parseTodo(String input, int start) throws AsepException {
+        String todoDesc = trim(input, start, input.length());
+        if (todoDesc.isEmpty()) {
+            throw new AsepException("The description of a todo cannot be empty.");
+        }
+        return new TodoCommand(todoDesc);
+    }
+
+    private static Command parseDeadline(String input, int start) throws AsepException {
+        int[] markers = findMarkers(input, start, DEADLINE_MARKERS);
+        int byIndex = markers[0];
+        if (byIndex == -1) {
+            throw new AsepException("Invalid deadline format. Use: deadline <desc> /by <date>");
+        }
+        String deadlineDesc = trim(input, start, byIndex);
+        String byStr = trim(input, byIndex + 3, input.length());
+        if (deadlineDesc.isEmpty() || byStr.isEmpty()) {
+            throw new AsepException("Deadline description and date cannot be empty.");
+        }
+        return new DeadlineCommand(deadlineDesc, parseDate(byStr));
+    }
+
+    private static Command parseEvent(String input, int start) throws AsepException {
+        int[] markers = findMarkers(input, start, EVENT_MARKERS);
+        int fromIndex = markers[0];
+        int toIndex = markers[1];
+        if (fromIndex == -1 || toIndex == -1 || fromIndex > toIndex) {
+            throw new AsepException("Invalid event format. Use: event <desc> /from <start> /to <end>");
+        }
+        String eventDesc = trim(input, start, fromIndex);
+        String from = trim(input, fromIndex + 5, toIndex);
+        String to = trim(input, toIndex + 3, input.length());
+        if (eventDesc.isEmpty() || from.isEmpty() || to.isEmpty()) {
+            throw new AsepException("Event description, start, and end times cannot be empty.");
+        }
+        return new EventCommand(eventDesc, from, to);
+    }
+
+    private static Command parseExport(String input, int start) throws AsepException {
+        String[] fileAndFormat = parseFileAndFormat(input, start,
+                "Export file cannot be empty. Use: export <file> [txt|csv|jsonl|ics]");
+        return new ExportCommand(fileAndFormat[0], formatOf(fileAndFormat));
+    }
+
+    private static Command parseImport(String input, int start) throws AsepException {
+        String[] fileAndFormat = parseFileAndFormat(input, start,
+                "Import file cannot be empty. Use: import <file> [txt|csv|jsonl|ics]");
+        return new ImportCommand(fileAndFormat[0], formatOf(fileAndFormat));
+    }
+
+    /**
+     * Parses the arguments of an import or export command: a file, optionally followed by the
+     * name of a {@link TaskExchangeFormat}. A last word that is not the name of a format is part
+     * of the file name, so file names may contain spaces.
+     *
+     * @param input        the full command input.
+     * @param start        the index after the command word.
+     * @param emptyMessage the error message if no file is given.
+     * @return the file, and the name of the format or null if none was given.
+     * @throws AsepException if no file is given.
+     */
+    private static String[] parseFileAndFormat(String input, int start, String emptyMessage) throws AsepException {
+        int end = trimEnd(input, start, input.length());
+        int lastWordStart = end;
+        while (lastWordStart > start && input.charAt(lastWordStart - 1) > ' ') {
+            lastWordStart--;
+        }
+        String lastWord = input.substring(lastWordStart, end);
+        String file = trim(input, start, lastWordStart);
+        if (file.isEmpty() || TaskExchangeFormat.of(lastWord) == null) {
+            file = trim(input, start, end);
+            lastWord = null;
+        }
+        if (file.isEmpty()) {
+            throw new AsepException(emptyMessage);
+        }
+        return new String[] {file, lastWord};
+    }
+
+    private static TaskExchangeFormat formatOf(String[] fileAndFormat) {
+        return fileAndFormat[1] == null
+                ? TaskExchangeFormat.forFile(fileAndFormat[0])
+                : TaskExchangeFormat.of(fileAndFormat[1]);
+    }
+
+    private static Command parseFind(String input, int start) throws AsepException {
+        String searchTerm = trim(input, start, input.length());
+        if (searchTerm.isEmpty()) {
+            throw new AsepException("Search term cannot be empty.");
+        }
+        return new FindCommand(parseQuery(searchTerm));
+    }
+
+    /**
+     * Parses the query of a find command into a {@link TaskQuery}.
+     * <p>
+     * A query is made of terms joined by "AND", "OR" and "NOT", in capitals, and grouped with
+     * parentheses; "NOT" binds tightest and "OR" loosest, and terms next to each other without an
+     * operator must all match. A term is one of:
+     * <ul>
+     *   <li>"type:T", "type:D" or "type:E", or "type:todo", "type:deadline" or "type:event"</li>
+     *   <li>"done" for the tasks that are done</li>
+     *   <li>"before:&lt;date&gt;", "after:&lt;date&gt;" or "due:&lt;date&gt;" for the deadlines due
+     *   before, after or on a date in yyyy-MM-dd format</li>
+     *   <li>any other words, up to the next operator or parenthesis, or a text in double quotes,
+     *   for the tasks whose description contains them</li>
+     * </ul>
+     * A query without any of these operators and fields is therefore a single keyword, as it
+     * always was.
+     * </p>
+     *
+     * @param query the query text, which is not empty.
+     * @return the parsed query.
+     * @throws AsepException if the query is malformed.
+     */
+    static TaskQuery parseQuery(String query) throws AsepException {
+        int[] position = {0};
+        TaskQuery parsed = parseOr(query, position);
+        if (position[0] != query.length()) {
+            throw new AsepException("Invalid query: unexpected \")\" in the query.");
+        }
+        return parsed;
+    }
+
+    private static TaskQuery parseOr(String query, int[] position) throws AsepException {
+        ArrayList<TaskQuery> alternatives = new ArrayList<>();
+        alternatives.add(parseAnd(query, position));
+        while (skipOperator(query, position, "OR")) {
+            alternatives.add(parseAnd(query, position));
+        }
+        return TaskQuery.or(alternatives);
+    }
+
+    private static TaskQuery parseAnd(String query, int[] position) throws AsepException {
+        ArrayList<TaskQuery> conditions = new ArrayList<>();
+        conditions.add(parseNot(query, position));
+        while (true) {
+            boolean hasOperator = skipOperator(query, position, "AND");
+            int next = skipSpaces(query, position[0], query.length());
+            if (!hasOperator && (next == query.length() || query.charAt(next) == ')'
+                    || isOperator(query, next, "OR"))) {
+                return TaskQuery.and(conditions);
+            }
+            conditions.add(parseNot(query, position));
+        }
+    }
+
+    private static TaskQuery parseNot(String query, int[] position) throws AsepException {
+        if (skipOperator(query, position, "NOT")) {
+            return TaskQuery.not(parseNot(query, position));
+        }
+        return parseTerm(query, position);
+    }
+
+    private static TaskQuery parseTerm(String query, int[] position) throws AsepException {
+        int end = query.length();
+        int start = skipSpaces(query, position[0], end);
+        if (start == end || query.charAt(start) == ')' || isOperator(query, start, "AND")
+                || isOperator(query, start, "OR")) {
+            throw new AsepException("Invalid query: a term is missing. "
+                    + "Use: find <words> [AND|OR|NOT <term>]...");
+        }
+        if (query.charAt(start) == '(') {
+            position[0] = start + 1;
+            TaskQuery inner = parseOr(query, position);
+            int close = skipSpaces(query, position[0], end);
+            if (close == end || query.charAt(close) != ')') {
+                throw new AsepException("Invalid query: a \")\" is missing.");
+            }
+            position[0] = close + 1;
+            return inner;
+        }
+        if (query.charAt(start) == '"') {
+            int close = query.indexOf('"', start + 1);
+            if (close == -1 || close == start + 1) {
+                throw new AsepException("Invalid query: a quoted text must be closed and not empty.");
+            }
+            position[0] = close + 1;
+            return TaskQuery.keyword(query.substring(start + 1, close));
+        }
+        int wordEnd = skipWord(query, start, end);
+        int colon = query.indexOf(':', start);
+        if (colon != -1 && colon < wordEnd) {
+            TaskQuery field = parseField(query.substring(start, colon).toLowerCase(Locale.ROOT),
+                    query.substring(colon + 1, wordEnd));
+            if (field != null) {
+                position[0] = wordEnd;
+                return field;
+            }
+        }
+        // Plain words run on until the next operator, parenthesis, quote or field.
+        int runEnd = wordEnd;
+        for (int next = skipSpaces(query, runEnd, end); next < end; next = skipSpaces(query, runEnd, end)) {
+            char c = query.charAt(next);
+            int nextEnd = skipWord(query, next, end);
+            int nextColon = query.indexOf(':', next);
+            if (c == '(' || c == ')' || c == '"' || isOperator(query, next, "AND") || isOperator(query, next, "OR")
+                    || isOperator(query, next, "NOT") || nextColon != -1 && nextColon < nextEnd
+                    && isField(query.substring(next, nextColon).toLowerCase(Locale.ROOT))) {
+                break;
+            }
+            runEnd = nextEnd;
+        }
+        position[0] = runEnd;
+        String words = query.substring(start, runEnd);
+        if (words.equalsIgnoreCase("done")) {
+            return TaskQuery.status(true);
+        }
+        return TaskQuery.keyword(words);
+    }
+
+    /**
+     * Parses a field such as "type:D" or "before:2025-03-01".
+     *
+     * @return the query for the field, or null if the name is not a field.
+     */
+    private static TaskQuery parseField(String name, String value) throws AsepException {
+        switch (name) {
+            case "type":
+                switch (value.toLowerCase(Locale.ROOT)) {
+                    case "t":
+                    case "todo":
+                        return TaskQuery.type("T");
+                    case "d":
+                    case "deadline":
+                        return TaskQuery.type("D");
+                    case "e":
+                    case "event":
+                        return TaskQuery.type("E");
+                    default:
+                        throw new AsepException("Invalid query: the type must be T, D or E.");
                 }
-                return new FindCommand(searchTerm);
+            case "before":
+                return TaskQuery.dueBetween(null, parseDate(value).minusDays(1));
+            case "after":
+                return TaskQuery.dueBetween(parseDate(value).plusDays(1), null);
+            case "due":
+                LocalDate date = parseDate(value);
+                return TaskQuery.dueBetween(date, date);
             default:
-                throw new AsepException("Oops! I don't recognize this command. Please try again.");
+                return null;
+        }
+    }
+
+    private static boolean isField(String name) {
+        return name.equals("type") || name.equals("before") || name.equals("after") || name.equals("due");
+    }
+
+    /**
+     * Checks whether an operator word starts at the given index and stands on its own.
+     */
+    private static boolean isOperator(String query, int index, String operator) {
+        return query.startsWith(operator, index) && skipWord(query, index, query.length()) == index + operator.length();
+    }
+
+    /**
+     * Moves past an operator word if one comes next.
+     *
+     * @return true if the operator was there.
+     */
+    private static boolean skipOperator(String query, int[] position, String operator) {
+        int start = skipSpaces(query, position[0], query.length());
+        if (!isOperator(query, start, operator)) {
+            return false;
+        }
+        position[0] = start + operator.length();
+        return true;
+    }
+
+    /**
+     * Skips a word of a query, which ends at a space or a parenthesis.
+     */
+    private static int skipWord(String query, int start, int end) {
+        while (start < end && query.charAt(start) > ' ' && query.charAt(start) != '(' && query.charAt(start) != ')') {
+            start++;
+        }
+        return start;
+    }
+
+    private static Command parseSearch(String input, int start) throws AsepException {
+        String query = trim(input, start, input.length());
+        if (query.isEmpty()) {
+            throw new AsepException("Search term cannot be empty.");
         }
+        return new SearchCommand(query);
     }
 
     /**
-     * Parses the task index from a command string.
+     * Parses the arguments of a list command.
      * <p>
-     * This helper method extracts the task number from commands that operate on tasks,
-     * such as "mark", "unmark", and "delete". The method expects the command to contain
-     * exactly two parts: the command word and the task number. The task number is converted
-     * from a 1-based index to a 0-based index.
+     * Without arguments the whole list is shown. A single number selects a page of
+     * {@link ListCommand#PAGE_SIZE} tasks, and "&lt;from&gt;-&lt;to&gt;" selects an inclusive
+     * range of task numbers. Either may be preceded by "sort:&lt;order&gt;", which shows the list,
+     * or the page or range of it, sorted in that {@link SortedTaskIndex.Order}.
      * </p>
      *
-     * @param fullCommand the full command string which includes a task number.
-     * @return the zero-based index of the task.
-     * @throws AsepException if the command format is incorrect or if the task number is invalid.
+     * @param input the full command input.
+     * @param start the index after the command word.
+     * @return the list command for the requested tasks.
+     * @throws AsepException if the order, page or range is invalid.
      */
-    private static int parseTaskIndex(String fullCommand) throws AsepException {
-        String[] parts = fullCommand.split("\\s+");
-        if (parts.length != 2) {
-            throw new AsepException("Invalid command format. Usage: <command> <task number>");
+    private static Command parseList(String input, int start) throws AsepException {
+        int end = input.length();
+        start = skipSpaces(input, start, end);
+        end = trimEnd(input, start, end);
+        SortedTaskIndex.Order order = null;
+        if (input.regionMatches(true, start, "sort:", 0, 5)) {
+            int orderEnd = skipToken(input, start, end);
+            order = SortedTaskIndex.Order.of(input.substring(start + 5, orderEnd));
+            if (order == null) {
+                throw new AsepException("Invalid sort order. Use: sort:due, sort:type, sort:status or sort:name");
+            }
+            start = skipSpaces(input, orderEnd, end);
         }
+        if (start == end) {
+            return new ListCommand(order, -1, -1);
+        }
+        int dashIndex = input.indexOf('-', start);
+        if (dashIndex == -1 || dashIndex >= end) {
+            int page = parseNumber(input, start, end);
+            if (page == -1) {
+                throw new AsepException("Invalid list format. Use: list [sort:<order>] [<page> | <from>-<to>]");
+            }
+            if (page < 1) {
+                throw new AsepException("Invalid page number.");
+            }
+            return ListCommand.forPage(order, page);
+        }
+        int from = parseNumber(input, skipSpaces(input, start, dashIndex), trimEnd(input, start, dashIndex));
+        int to = parseNumber(input, skipSpaces(input, dashIndex + 1, end), end);
+        if (from == -1 || to == -1) {
+            throw new AsepException("Invalid list format. Use: list [sort:<order>] [<page> | <from>-<to>]");
+        }
+        if (from < 1 || to < from) {
+            throw new AsepException("Invalid task range.");
+        }
+        return new ListCommand(order, from - 1, to);
+    }
+
+    /**
+     * Parses a date in yyyy-MM-dd format.
+     *
+     * @param dateStr the date text.
+     * @return the parsed date.
+     * @throws AsepException if the date is missing or invalid.
+     */
+    private static LocalDate parseDate(String dateStr) throws AsepException {
         try {
-            int index = Integer.parseInt(parts[1]) - 1;
-            return index;
-        } catch (NumberFormatException e) {
-            throw new AsepException("Invalid task number.");
+            return LocalDate.parse(dateStr, Deadline.INPUT_DATE_FORMAT);
+        } catch (Exception e) {
+            throw new AsepException("Invalid date format. Please use yyyy-MM-dd.");
+        }
+    }
+
+    /**
+     * Parses the arguments of an upcoming command, a number of days optionally followed
+     * by the word "days".
+     *
+     * @param input the full command input.
+     * @param start the index after the command word.
+     * @return the number of days to look ahead.
+     * @throws AsepException if the number of days is missing or invalid.
+     */
+    private static int parseDays(String input, int start) throws AsepException {
+        int end = input.length();
+        int numberStart = skipSpaces(input, start, end);
+        int numberEnd = skipToken(input, numberStart, end);
+        int unitStart = skipSpaces(input, numberEnd, end);
+        int unitEnd = skipToken(input, unitStart, end);
+        boolean isUnitValid = unitStart == unitEnd
+                || input.regionMatches(true, unitStart, "days", 0, unitEnd - unitStart)
+                && (unitEnd - unitStart == 3 || unitEnd - unitStart == 4);
+        int days = parseNumber(input, numberStart, numberEnd);
+        if (days == -1 || !isUnitValid || skipSpaces(input, unitEnd, end) != end) {
+            throw new AsepException("Invalid upcoming format. Use: upcoming <n> days");
+        }
+        return days;
+    }
+
+    /**
+     * Parses the arguments of a command that operates on existing tasks.
+     * <p>
+     * This helper method handles "mark", "unmark", and "delete". The argument is either a single
+     * task number or a task ID written as "#&lt;id&gt;", which yields the single-task command, or a
+     * selection of several tasks, which yields a {@link BulkCommand}. Task numbers are read
+     * directly from the characters of the input and converted from a 1-based index to a 0-based
+     * index.
+     * </p>
+     *
+     * @param input     the full command input.
+     * @param start     the index after the command word.
+     * @param operation the operation the command word stands for.
+     * @return the command operating on the selected tasks.
+     * @throws AsepException if the command format is incorrect or if a task number is invalid.
+     */
+    private static Command parseTaskCommand(String input, int start, BulkCommand.Operation operation)
+            throws AsepException {
+        int end = input.length();
+        int argStart = skipSpaces(input, start, end);
+        int argEnd = skipToken(input, argStart, end);
+        if (argStart == argEnd || skipSpaces(input, argEnd, end) != end) {
+            throw new AsepException("Invalid command format. Usage: <command> <task numbers | done | all>");
+        }
+        if (input.charAt(argStart) == '#') {
+            int id = parseNumber(input, argStart + 1, argEnd);
+            if (id < 1) {
+                throw new AsepException("Invalid task ID.");
+            }
+            switch (operation) {
+                case MARK:
+                    return MarkCommand.forId(id);
+                case UNMARK:
+                    return UnmarkCommand.forId(id);
+                default:
+                    return DeleteCommand.forId(id);
+            }
+        }
+        int number = parseNumber(input, argStart, argEnd);
+        if (number == -1) {
+            return new BulkCommand(operation, parseSelection(input, argStart, argEnd));
+        }
+        switch (operation) {
+            case MARK:
+                return new MarkCommand(number - 1);
+            case UNMARK:
+                return new UnmarkCommand(number - 1);
+            default:
+                return new DeleteCommand(number - 1);
+        }
+    }
+
+    /**
+     * Parses a selection of several tasks: "done", "all", or task numbers and inclusive ranges
+     * separated by commas, such as "3,7,9-20".
+     *
+     * @param input the full command input.
+     * @param start the index of the first character of the selection.
+     * @param end   the index after the last character of the selection.
+     * @return the selection.
+     * @throws AsepException if a task number or range is invalid.
+     */
+    private static TaskSelection parseSelection(String input, int start, int end) throws AsepException {
+        int length = end - start;
+        if (length == 4 && input.regionMatches(true, start, "done", 0, 4)) {
+            return TaskSelection.done();
+        }
+        if (length == 3 && input.regionMatches(true, start, "all", 0, 3)) {
+            return TaskSelection.all();
+        }
+        int itemCount = 1;
+        for (int i = start; i < end; i++) {
+            if (input.charAt(i) == ',') {
+                itemCount++;
+            }
+        }
+        int[] ranges = new int[itemCount * 2];
+        int itemStart = start;
+        for (int item = 0; item < itemCount; item++) {
+            int itemEnd = input.indexOf(',', itemStart);
+            if (itemEnd == -1 || itemEnd > end) {
+                itemEnd = end;
+            }
+            int dashIndex = input.indexOf('-', itemStart);
+            if (dashIndex == -1 || dashIndex > itemEnd) {
+                dashIndex = itemEnd;
+            }
+            int from = parseNumber(input, itemStart, dashIndex);
+            int to = dashIndex == itemEnd ? from : parseNumber(input, dashIndex + 1, itemEnd);
+            if (from == -1 || to == -1) {
+                throw new AsepException("Invalid task number.");
+            }
+            if (to < from) {
+                throw new AsepException("Invalid task range.");
+            }
+            ranges[item * 2] = from;
+            ranges[item * 2 + 1] = to;
+            itemStart = itemEnd + 1;
+        }
+        return TaskSelection.ofRanges(ranges);
+    }
+
+    /**
+     * Finds the first occurrence of each marker, such as "/by", in a single pass over the input.
+     *
+     * @param input   the full command input.
+     * @param start   the index to start searching from.
+     * @param markers the markers to find, each starting with '/'.
+     * @return the index of each marker, or -1 for markers that do not occur.
+     */
+    private static int[] findMarkers(String input, int start, String[] markers) {
+        int[] positions = new int[markers.length];
+        Arrays.fill(positions, -1);
+        int remaining = markers.length;
+        for (int i = input.indexOf('/', start); i != -1 && remaining > 0; i = input.indexOf('/', i + 1)) {
+            for (int m = 0; m < markers.length; m++) {
+                if (positions[m] == -1 && input.startsWith(markers[m], i)) {
+                    positions[m] = i;
+                    remaining--;
+                }
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Parses a non-negative decimal number from the characters between two indexes.
+     *
+     * @return the number, or -1 if the characters are not a number that fits in an int.
+     */
+    private static int parseNumber(String input, int start, int end) {
+        if (start >= end) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE) {
+                return -1;
+            }
+        }
+        return (int) value;
+    }
+
+    private static String trim(String input, int start, int end) {
+        start = skipSpaces(input, start, end);
+        return input.substring(start, trimEnd(input, start, end));
+    }
+
+    private static int skipSpaces(String input, int start, int end) {
+        while (start < end && input.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(String input, int start, int end) {
+        while (end > start && input.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static int skipToken(String input, int start, int end) {
+        while (start < end && input.charAt(start) > ' ') {
+            start++;
         }
+        return start;
     }
 }
@@ -0,0 +1,468 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Represents one version of a task list: its tasks in order, each with its status at that time.
+ * <p>
+ * A version is never changed. Changing it returns a new version that shares all but O(log n) of
+ * its nodes with the old one, so keeping many versions costs memory in proportion to the changes
+ * between them, not to the size of the list. The versions form a treap ordered by position, in
+ * which a node holds either one task with its status, or a run of consecutive tasks of the list
+ * the first version was taken from. That list is never copied: the first version is a single run
+ * over it, and only the tasks that are changed later are given nodes of their own.
+ * </p>
+ * <p>
+ * Since tasks change their status in place, a run relies on being told about every status
+ * change before it is made; the first version is then able to recall the statuses its tasks had.
+ * {@link TaskList} does this for the versions it keeps.
+ * </p>
+ */
+public class PersistentTaskList {
+    private final Base base;
+    private final Node root;
+
+    /**
+     * Represents the changes that turn the list of one version into that of another.
+     * <p>
+     * The changes are applied in the order of the getters: the removals by position in the old
+     * list, then the insertions and status changes by position in the new list.
+     * </p>
+     */
+    public static class Difference {
+        private final BitSet removed = new BitSet();
+        private final ArrayList<Integer> insertedAt = new ArrayList<>();
+        private final ArrayList<Task> inserted = new ArrayList<>();
+        private final BitSet marked = new BitSet();
+        private final BitSet unmarked = new BitSet();
+
+        /**
+         * Returns the positions, in the old list, of the tasks to remove.
+         *
+         * @return the positions.
+         */
+        public BitSet getRemoved() {
+            return removed;
+        }
+
+        /**
+         * Returns the positions, in the new list, at which the tasks are inserted, in ascending order.
+         *
+         * @return the positions.
+         */
+        public int[] getInsertedAt() {
+            int[] positions = new int[insertedAt.size()];
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = insertedAt.get(i);
+            }
+            return positions;
+        }
+
+        /**
+         * Returns the tasks to insert, in the same order as their positions.
+         *
+         * @return the tasks.
+         */
+        public ArrayList<Task> getInserted() {
+            return inserted;
+        }
+
+        /**
+         * Returns the positions, in the new list, of the tasks to mark as done.
+         *
+         * @return the positions.
+         */
+        public BitSet getMarked() {
+            return marked;
+        }
+
+        /**
+         * Returns the positions, in the new list, of the tasks to mark as not done.
+         *
+         * @return the positions.
+         */
+        public BitSet getUnmarked() {
+            return unmarked;
+        }
+    }
+
+    /**
+     * Holds the list the first version was taken from, and the statuses its tasks had then.
+     * Only the statuses of tasks that were changed since are recorded.
+     */
+    private static class Base {
+        private final List<Task> tasks;
+        private final IdentityHashMap<Task, Boolean> statuses = new IdentityHashMap<>();
+
+        Base(List<Task> tasks) {
+            this.tasks = tasks;
+        }
+
+        Task get(int position) {
+            return tasks.get(position);
+        }
+
+        boolean isDone(int position) {
+            Task task = tasks.get(position);
+            Boolean isDone = statuses.get(task);
+            return isDone != null ? isDone : task.isDone;
+        }
+
+        /** Records the status of the task at the given position before it is changed. */
+        Task remember(int position) {
+            Task task = tasks.get(position);
+            statuses.putIfAbsent(task, task.isDone);
+            return task;
+        }
+    }
+
+    /**
+     * Represents a node of the treap, holding either a task or a run of tasks of the base list,
+     * and the tasks before and after them.
+     */
+    private static class Node {
+        private final Node left;
+        private final Node right;
+        private final Task task;
+        private final boolean isDone;
+        private final int start;
+        private final int count;
+        private final int size;
+        private final int priority;
+
+        Node(Node left, Task task, boolean isDone, int start, int count, Node right, int priority) {
+            this.left = left;
+            this.task = task;
+            this.isDone = isDone;
+            this.start = start;
+            this.count = count;
+            this.right = right;
+            this.priority = priority;
+            this.size = size(left) + count + size(right);
+        }
+
+        static Node ofTask(Task task, boolean isDone) {
+            return new Node(null, task, isDone, -1, 1, null, ThreadLocalRandom.current().nextInt());
+        }
+
+        static Node ofRun(int start, int count) {
+            return new Node(null, null, false, start, count, null, ThreadLocalRandom.current().nextInt());
+        }
+
+        Node withChildren(Node left, Node right) {
+            if (left == this.left && right == this.right) {
+                return this;
+            }
+            return new Node(left, task, isDone, start, count, right, priority);
+        }
+
+        /** Returns this node's own tasks, without its children. */
+        Node withoutChildren() {
+            return new Node(null, task, isDone, start, count, null, priority);
+        }
+
+        boolean hasChildren() {
+            return left != null || right != null;
+        }
+    }
+
+    private PersistentTaskList(Base base, Node root) {
+        this.base = base;
+        this.root = root;
+    }
+
+    /**
+     * Returns the first version of the given list, in constant time.
+     * <p>
+     * The tasks must stay in the list, in the same order, for as long as the version is used;
+     * a snapshot returned by {@link TaskList#getTasks()} does.
+     * </p>
+     *
+     * @param tasks the tasks in list order.
+     * @return the version holding the tasks with their current statuses.
+     */
+    public static PersistentTaskList of(List<Task> tasks) {
+        return new PersistentTaskList(new Base(tasks), tasks.isEmpty() ? null : Node.ofRun(0, tasks.size()));
+    }
+
+    /**
+     * Returns the number of tasks in this version.
+     *
+     * @return the size of the list.
+     */
+    public int size() {
+        return size(root);
+    }
+
+    /**
+     * Returns the tasks of this version in list order, for checking a version against a list.
+     *
+     * @return the tasks.
+     */
+    public ArrayList<Task> getTasks() {
+        ArrayList<Task> tasks = new ArrayList<>(size());
+        collect(root, tasks, false);
+        return tasks;
+    }
+
+    /**
+     * Returns the version with a task added at the end.
+     *
+     * @param task the task, with its current status.
+     * @return the new version.
+     */
+    public PersistentTaskList add(Task task) {
+        return withRoot(merge(root, Node.ofTask(task, task.isDone)));
+    }
+
+    /**
+     * Returns the version with a task inserted at the given position.
+     *
+     * @param index the position of the task in the new version.
+     * @param task  the task, with its current status.
+     * @return the new version.
+     */
+    public PersistentTaskList insert(int index, Task task) {
+        Node[] parts = split(root, index);
+        return withRoot(merge(merge(parts[0], Node.ofTask(task, task.isDone)), parts[1]));
+    }
+
+    /**
+     * Returns the version without the tasks in the given range of positions.
+     *
+     * @param from the first position, inclusive.
+     * @param to   the last position, exclusive.
+     * @return the new version.
+     */
+    public PersistentTaskList remove(int from, int to) {
+        Node[] parts = split(root, from);
+        Node[] rest = split(parts[1], to - from);
+        return withRoot(merge(parts[0], rest[1]));
+    }
+
+    /**
+     * Returns the version in which the tasks in the given range of positions have the given
+     * status. This must be called before the status of the tasks themselves is changed.
+     *
+     * @param from   the first position, inclusive.
+     * @param to     the last position, exclusive.
+     * @param isDone the new status of the tasks.
+     * @return the new version.
+     */
+    public PersistentTaskList setDone(int from, int to, boolean isDone) {
+        Node[] parts = split(root, from);
+        Node[] rest = split(parts[1], to - from);
+        ArrayList<Task> tasks = new ArrayList<>(to - from);
+        collect(rest[0], tasks, true);
+        return withRoot(merge(merge(parts[0], build(tasks, 0, tasks.size(), isDone)), rest[1]));
+    }
+
+    /**
+     * Returns the changes that turn the list of this version into that of the given version.
+     * <p>
+     * The parts the two versions share are skipped without being looked at, so two versions a
+     * few changes apart are compared in about the time those changes took. Tasks that only one
+     * of the versions holds are told apart by their IDs, which increase along the list.
+     * </p>
+     *
+     * @param target a version derived from the same first version as this one.
+     * @return the changes.
+     */
+    public Difference diff(PersistentTaskList target) {
+        Difference difference = new Difference();
+        ArrayDeque<Node> from = new ArrayDeque<>();
+        ArrayDeque<Node> to = new ArrayDeque<>();
+        if (root != null) {
+            from.push(root);
+        }
+        if (target.root != null) {
+            to.push(target.root);
+        }
+        int oldPosition = 0;
+        int newPosition = 0;
+        while (!from.isEmpty() || !to.isEmpty()) {
+            Node x = from.peek();
+            Node y = to.peek();
+            if (x == y) {
+                from.pop();
+                to.pop();
+                oldPosition += x.size;
+                newPosition += x.size;
+                continue;
+            }
+            // Expand the larger of two different subtrees until shared subtrees line up.
+            boolean isXExpanded = x != null && x.hasChildren()
+                    && (y == null || !y.hasChildren() || x.size >= y.size);
+            boolean isYExpanded = y != null && y.hasChildren()
+                    && (x == null || !x.hasChildren() || y.size >= x.size);
+            if (isXExpanded || isYExpanded) {
+                if (isXExpanded) {
+                    expand(from);
+                }
+                if (isYExpanded) {
+                    expand(to);
+                }
+                continue;
+            }
+            if (x != null && y != null && x.task == null && y.task == null && x.start == y.start) {
+                int count = Math.min(x.count, y.count);
+                dropFirst(from, count);
+                dropFirst(to, count);
+                oldPosition += count;
+                newPosition += count;
+                continue;
+            }
+            Task oldTask = x == null ? null : first(x);
+            Task newTask = y == null ? null : first(y);
+            if (oldTask == newTask) {
+                boolean isDone = target.isFirstDone(y);
+                if (isFirstDone(x) != isDone) {
+                    (isDone ? difference.marked : difference.unmarked).set(newPosition);
+                }
+                dropFirst(from, 1);
+                dropFirst(to, 1);
+                oldPosition++;
+                newPosition++;
+            } else if (newTask == null || (oldTask != null && oldTask.getId() < newTask.getId())) {
+                difference.removed.set(oldPosition);
+                dropFirst(from, 1);
+                oldPosition++;
+            } else {
+                boolean isDone = target.isFirstDone(y);
+                difference.insertedAt.add(newPosition);
+                difference.inserted.add(newTask);
+                if (newTask.isDone != isDone) {
+                    (isDone ? difference.marked : difference.unmarked).set(newPosition);
+                }
+                dropFirst(to, 1);
+                newPosition++;
+            }
+        }
+        return difference;
+    }
+
+    private PersistentTaskList withRoot(Node root) {
+        return root == this.root ? this : new PersistentTaskList(base, root);
+    }
+
+    private Task first(Node node) {
+        return node.task != null ? node.task : base.get(node.start);
+    }
+
+    private boolean isFirstDone(Node node) {
+        return node.task != null ? node.isDone : base.isDone(node.start);
+    }
+
+    /**
+     * Appends the tasks of a subtree to the given list, recording the statuses of the tasks of
+     * runs if they are about to be changed.
+     */
+    private void collect(Node node, ArrayList<Task> tasks, boolean isChanging) {
+        if (node == null) {
+            return;
+        }
+        collect(node.left, tasks, isChanging);
+        if (node.task != null) {
+            tasks.add(node.task);
+        } else {
+            for (int i = node.start; i < node.start + node.count; i++) {
+                tasks.add(isChanging ? base.remember(i) : base.get(i));
+            }
+        }
+        collect(node.right, tasks, isChanging);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    /**
+     * Splits a subtree into its first k tasks and the rest, copying only the nodes on the path
+     * to the split point.
+     */
+    private static Node[] split(Node node, int k) {
+        if (node == null || k <= 0) {
+            return new Node[] {null, node};
+        }
+        if (k >= node.size) {
+            return new Node[] {node, null};
+        }
+        int leftSize = size(node.left);
+        if (k <= leftSize) {
+            Node[] parts = split(node.left, k);
+            parts[1] = node.withChildren(parts[1], node.right);
+            return parts;
+        }
+        int ownEnd = leftSize + node.count;
+        if (k >= ownEnd) {
+            Node[] parts = split(node.right, k - ownEnd);
+            parts[0] = node.withChildren(node.left, parts[0]);
+            return parts;
+        }
+        int inner = k - leftSize;
+        return new Node[] {
+            new Node(node.left, null, false, node.start, inner, null, node.priority),
+            new Node(null, null, false, node.start + inner, node.count - inner, node.right, node.priority)};
+    }
+
+    /**
+     * Joins two subtrees, all of whose tasks come before those of the second, copying only the
+     * nodes on the path where they meet.
+     */
+    private static Node merge(Node first, Node second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        if (first.priority >= second.priority) {
+            return first.withChildren(first.left, merge(first.right, second));
+        }
+        return second.withChildren(merge(first, second.left), second.right);
+    }
+
+    /**
+     * Builds a balanced subtree of task nodes with the same status. Each node takes the highest
+     * priority below it, so the subtree keeps the heap order the merges rely on for balance.
+     */
+    private static Node build(ArrayList<Task> tasks, int from, int to, boolean isDone) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        Node left = build(tasks, from, middle, isDone);
+        Node right = build(tasks, middle + 1, to, isDone);
+        int priority = ThreadLocalRandom.current().nextInt();
+        if (left != null) {
+            priority = Math.max(priority, left.priority);
+        }
+        if (right != null) {
+            priority = Math.max(priority, right.priority);
+        }
+        return new Node(left, tasks.get(middle), isDone, -1, 1, right, priority);
+    }
+
+    /** Replaces the subtree on top of the stack by its left subtree, its own tasks and its right subtree. */
+    private static void expand(ArrayDeque<Node> stack) {
+        Node node = stack.pop();
+        if (node.right != null) {
+            stack.push(node.right);
+        }
+        stack.push(node.withoutChildren());
+        if (node.left != null) {
+            stack.push(node.left);
+        }
+    }
+
+    /** Drops the first tasks of the node without children on top of the stack. */
+    private static void dropFirst(ArrayDeque<Node> stack, int count) {
+        Node node = stack.pop();
+        if (node.count > count) {
+            stack.push(new Node(null, null, false, node.start + count, node.count - count, null, 0));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+
+/**
+ * Represents a command to show what is happening on a date.
+ * <p>
+ * This command backs "on" and "free". "on" lists the events that overlap the date, followed by
+ * the deadlines due on it. "free" lists the periods of the date that no event covers. Only
+ * events with recognisable times are considered.
+ * </p>
+ */
+public class ScheduleCommand extends Command {
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final LocalDate date;
+    private final boolean isFreeTime;
+
+    /**
+     * Constructs a ScheduleCommand for the given date.
+     *
+     * @param date       the date to show.
+     * @param isFreeTime whether to show the free periods instead of the scheduled tasks.
+     */
+    public ScheduleCommand(LocalDate date, boolean isFreeTime) {
+        this.date = date;
+        this.isFreeTime = isFreeTime;
+    }
+
+    /**
+     * Executes the command by displaying the schedule or the free periods of the date.
+     *
+     * @param tasks   the task list to search through.
+     * @param ui      the user interface for displaying messages.
+     * @param storage the storage system (not used in this command).
+     */
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) {
+        LocalDateTime dayStart = date.atStartOfDay();
+        LocalDateTime dayEnd = date.plusDays(1).atStartOfDay();
+        ArrayList<Event> events = tasks.findEvents(dayStart, dayEnd);
+        String day = date.format(Deadline.OUTPUT_DATE_FORMAT);
+        if (isFreeTime) {
+            ui.showMessage(formatFreeTime(events, dayStart, dayEnd, day));
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("Here is your schedule for " + day + ":\n");
+        int count = 0;
+        for (Event event : events) {
+            count++;
+            sb.append(count + ". " + event + "\n");
+        }
+        for (Deadline deadline : tasks.findDeadlines(date, date, true)) {
+            count++;
+            sb.append(count + ". " + deadline + "\n");
+        }
+        if (count == 0) {
+            sb.append("Nothing is scheduled on " + day + ".");
+        }
+        ui.showMessage(sb.toString());
+    }
+
+    /**
+     * Lists the gaps between the events of a day, merging events that overlap.
+     */
+    private static String formatFreeTime(ArrayList<Event> events, LocalDateTime dayStart, LocalDateTime dayEnd,
+            String day) {
+        if (events.isEmpty()) {
+            return "You are free all day on " + day + ".";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("Here are your free times on " + day + ":");
+        LocalDateTime freeFrom = dayStart;
+        int count = 0;
+        for (Event event : events) {
+            if (event.getStart().isAfter(freeFrom)) {
+                count++;
+                appendPeriod(sb, freeFrom, event.getStart(), dayEnd);
+            }
+            if (event.getEnd().isAfter(freeFrom)) {
+                freeFrom = event.getEnd();
+            }
+        }
+        if (freeFrom.isBefore(dayEnd)) {
+            count++;
+            appendPeriod(sb, freeFrom, dayEnd, dayEnd);
+        }
+        if (count == 0) {
+            return "You have no free time on " + day + ".";
+        }
+        return sb.toString();
+    }
+
+    private static void appendPeriod(StringBuilder sb, LocalDateTime from, LocalDateTime to, LocalDateTime dayEnd) {
+        sb.append("\n   " + from.format(TIME_FORMAT) + " - " + (to.equals(dayEnd) ? "24:00" : to.format(TIME_FORMAT)));
+    }
+
+    /**
+     * Indicates that this command only reads the task list.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
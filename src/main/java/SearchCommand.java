@@ -0,0 +1,56 @@
+/**
+ * Represents a command to find the tasks whose descriptions best match some words, even if they
+ * are misspelled.
+ * <p>
+ * Unlike {@link FindCommand}, which lists every task containing a keyword, this command ranks the
+ * tasks by how closely their words match the query, as described in {@link TokenIndex}, and shows
+ * only the best of them.
+ * </p>
+ */
+public class SearchCommand extends Command {
+    /** The number of tasks shown at most. */
+    public static final int MAX_RESULTS = 10;
+
+    private final String query;
+
+    /**
+     * Constructs a SearchCommand with the specified query.
+     *
+     * @param query the words to search for.
+     */
+    public SearchCommand(String query) {
+        this.query = query;
+    }
+
+    /**
+     * Executes the command by displaying the best matching tasks, best first.
+     *
+     * @param tasks   the task list to search through.
+     * @param ui      the user interface for displaying messages.
+     * @param storage the storage system (not used in this command).
+     */
+    @Override
+    public void execute(TaskList tasks, Ui ui, Storage storage) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Here are the closest matches in your list:\n");
+        int count = 0;
+        for (Task task : tasks.search(query, MAX_RESULTS)) {
+            count++;
+            sb.append(count + ". " + task.toString() + "\n");
+        }
+        if (count == 0) {
+            sb.append("No matching tasks found.");
+        }
+        ui.showMessage(sb.toString());
+    }
+
+    /**
+     * Indicates that this command only reads the task list.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
@@ -0,0 +1,283 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Represents the tasks of a list kept sorted in one {@link Order}, so that any page of the sorted
+ * list can be read without sorting.
+ * <p>
+ * The tasks are kept in a treap whose nodes also record the size of their subtree. A page is
+ * found by walking down to its first task by rank and then on in order, so reading k tasks from
+ * any position costs O(log n + k), and adding or removing a task costs O(log n). Tasks that are
+ * equal in the order keep their relative list order, since new tasks get higher IDs and ties are
+ * broken by ID.
+ * </p>
+ */
+public class SortedTaskIndex {
+    /**
+     * Represents the orders a task list can be shown in.
+     */
+    public enum Order {
+        /**
+         * Deadlines by due date and events by start date, followed by the other tasks.
+         */
+        DUE_DATE("due", "by date"),
+        /**
+         * Todos, then deadlines, then events.
+         */
+        TYPE("type", "by type"),
+        /**
+         * Tasks that are not done, then tasks that are.
+         */
+        STATUS("status", "with pending tasks first"),
+        /**
+         * Tasks in alphabetical order of their description, ignoring case.
+         */
+        DESCRIPTION("name", "by name");
+
+        private final String keyword;
+        private final String description;
+
+        Order(String keyword, String description) {
+            this.keyword = keyword;
+            this.description = description;
+        }
+
+        /**
+         * Returns the order with the given name, as written after "sort:".
+         *
+         * @param keyword the name, ignoring case.
+         * @return the order, or null if there is none with that name.
+         */
+        public static Order of(String keyword) {
+            for (Order order : values()) {
+                if (order.keyword.equalsIgnoreCase(keyword)) {
+                    return order;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the order as it is described to the user, such as "by date".
+         *
+         * @return the description.
+         */
+        public String getDescription() {
+            return description;
+        }
+    }
+
+    private static class Node {
+        private final Task task;
+        private final long key;
+        private final int priority;
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        Node(Task task, long key, int priority) {
+            this.task = task;
+            this.key = key;
+            this.priority = priority;
+        }
+    }
+
+    private final Order order;
+    private final Random random = new Random();
+    private Node root;
+
+    /**
+     * Constructs an empty index in the given order.
+     *
+     * @param order the order of the index.
+     */
+    public SortedTaskIndex(Order order) {
+        this.order = order;
+    }
+
+    /**
+     * Adds a task to the index.
+     *
+     * @param task the task to add.
+     */
+    public void add(Task task) {
+        root = insert(root, new Node(task, keyOf(task, task.isDone), random.nextInt()));
+    }
+
+    /**
+     * Removes a task from the index.
+     *
+     * @param task the task to remove.
+     */
+    public void remove(Task task) {
+        root = delete(root, task, keyOf(task, task.isDone));
+    }
+
+    /**
+     * Moves a task to its new place after its done status has changed, if the order depends on
+     * it. A task whose status did not actually change stays where it is.
+     *
+     * @param task the task whose status changed.
+     */
+    public void updateStatus(Task task) {
+        if (order != Order.STATUS) {
+            return;
+        }
+        int size = sizeOf(root);
+        root = delete(root, task, keyOf(task, !task.isDone));
+        if (sizeOf(root) < size) {
+            add(task);
+        }
+    }
+
+    /**
+     * Returns the number of tasks in the index.
+     *
+     * @return the size.
+     */
+    public int size() {
+        return sizeOf(root);
+    }
+
+    /**
+     * Returns the tasks at the given ranks of the sorted list.
+     *
+     * @param from the zero-based rank of the first task.
+     * @param to   the zero-based rank after the last task.
+     * @return the tasks, in order.
+     */
+    public ArrayList<Task> get(int from, int to) {
+        ArrayList<Task> page = new ArrayList<>(Math.max(0, Math.min(to, size()) - from));
+        collect(root, from, to, page);
+        return page;
+    }
+
+    /**
+     * Adds the tasks of a subtree whose ranks, counted within the subtree, fall in the range.
+     */
+    private static void collect(Node node, int from, int to, ArrayList<Task> page) {
+        if (node == null || from >= to || to <= 0 || from >= node.size) {
+            return;
+        }
+        int leftSize = sizeOf(node.left);
+        collect(node.left, from, to, page);
+        if (from <= leftSize && leftSize < to) {
+            page.add(node.task);
+        }
+        collect(node.right, from - leftSize - 1, to - leftSize - 1, page);
+    }
+
+    /**
+     * Returns the part of the sort key that comes before the description and the ID. Must only
+     * depend on the status passed in, so that a task can still be found after its status changed.
+     */
+    private long keyOf(Task task, boolean isDone) {
+        switch (order) {
+            case DUE_DATE:
+                if (task instanceof Deadline) {
+                    return ((Deadline) task).getBy().toEpochDay();
+                }
+                if (task instanceof Event && ((Event) task).getStart() != null) {
+                    return ((Event) task).getStart().toLocalDate().toEpochDay();
+                }
+                return Long.MAX_VALUE;
+            case TYPE:
+                return task instanceof Todo ? 0 : task instanceof Deadline ? 1 : 2;
+            case STATUS:
+                return isDone ? 1 : 0;
+            default:
+                return 0;
+        }
+    }
+
+    private int compare(long key, Task task, Node node) {
+        if (key != node.key) {
+            return key < node.key ? -1 : 1;
+        }
+        if (order == Order.DESCRIPTION) {
+            int byName = task.getDescription().compareToIgnoreCase(node.task.getDescription());
+            if (byName != 0) {
+                return byName;
+            }
+        }
+        return Integer.compare(task.getId(), node.task.getId());
+    }
+
+    private Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.key, added.task, node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+
+    private Node delete(Node node, Task task, long key) {
+        if (node == null) {
+            return null;
+        }
+        if (node.task == task) {
+            return merge(node.left, node.right);
+        }
+        if (compare(key, task, node) < 0) {
+            node.left = delete(node.left, task, key);
+        } else {
+            node.right = delete(node.right, task, key);
+        }
+        update(node);
+        return node;
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private static void update(Node node) {
+        node.size = 1 + sizeOf(node.left) + sizeOf(node.right);
+    }
+
+    private static int sizeOf(Node node) {
+        return node == null ? 0 : node.size;
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Represents a command to show the metrics Asep has collected since it started.
+ * <p>
+ * The metrics cover every list and, in server mode, every client, as described in {@link Metrics}.
+ * </p>
+ */
+public class StatsCommand extends WorkspaceCommand {
+    /**
+     * Executes the command by displaying the command timings and storage counts.
+     *
+     * @param workspace the workspace holding the task lists.
+     * @param ui        the user interface for displaying messages.
+     */
+    @Override
+    public void execute(Workspace workspace, Ui ui) {
+        ui.showMessage(workspace.getLists().getMetrics().format());
+    }
+
+    /**
+     * Indicates that this command only reads the task lists.
+     *
+     * @return true.
+     */
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+}
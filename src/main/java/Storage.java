@@ -1,30 +1,113 @@
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Handles file I/O for loading and saving tasks.
  * Uses a relative file path (based on the JAR file's location) and creates directories/files if needed.
+ * <p>
+ * In journaled mode, each change is appended to a {@link Journal} next to the data file instead of
+ * rewriting the whole file. Once the journal grows past a threshold, it is folded into a fresh
+ * snapshot on a background thread. Every snapshot stores the last journal generation it includes,
+ * in the binary header or as the first line of a text file, so that a crash before the folded
+ * journal is removed does not replay it again.
+ * </p>
+ * <p>
+ * The data file is either in the pipe-delimited text format or, after {@link #useBinaryFormat()},
+ * in the binary format of {@link BinaryTaskFormat}; the format of an existing file is detected
+ * when it is loaded. Every task is saved with its ID. The binary format also records the next ID
+ * to hand out, so the IDs of deleted tasks are never given out again; with the text format, new
+ * IDs continue from the highest saved one.
+ * </p>
+ * <p>
+ * In batch mode, changes are only kept in memory until {@link #commit()} is called, which then
+ * writes them all at once. In asynchronous mode, writes are handed to an {@link AsyncWriter} so
+ * that commands do not wait for the disk.
+ * </p>
+ * <p>
+ * After {@link #useMetrics(Metrics)}, loads, snapshots and journal writes are counted, and the time
+ * a command waits for this Storage is added to its {@link Metrics}.
+ * </p>
  */
 public class Storage {
+    /**
+     * The journal size, in characters, after which the journal is folded into a new snapshot.
+     */
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 1024 * 1024;
+
     private String filePath;
+    private final Journal journal;
+    private final long compactionThreshold;
+    private ExecutorService compactor;
+    private volatile Future<?> pendingCompaction;
+    private AsyncWriter writer;
+    private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
+    private volatile IOException writeError;
+    private boolean needsFullSnapshot;
+    private boolean isBinary;
+    private boolean isBatching;
+    private boolean isColumnar;
+    private volatile int nextId = 1;
+    private TaskList uncommittedTasks;
+    private final ArrayList<String> pendingRecords = new ArrayList<>();
+    private volatile Metrics metrics;
 
     public Storage(String filePath) {
+        this(filePath, false);
+    }
+
+    /**
+     * Constructs a Storage for the given file, optionally in journaled mode.
+     *
+     * @param filePath    the path of the data file.
+     * @param isJournaled whether changes are appended to a journal instead of rewriting the file.
+     */
+    public Storage(String filePath, boolean isJournaled) {
+        this(filePath, isJournaled, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Constructs a Storage for the given file with a custom compaction threshold.
+     *
+     * @param filePath            the path of the data file.
+     * @param isJournaled         whether changes are appended to a journal instead of rewriting the file.
+     * @param compactionThreshold the journal size, in characters, that triggers a compaction.
+     */
+    public Storage(String filePath, boolean isJournaled, long compactionThreshold) {
         this.filePath = filePath;
+        this.journal = isJournaled ? new Journal(filePath + ".journal") : null;
+        this.compactionThreshold = compactionThreshold;
     }
 
     /**
      * Loads tasks from the file.
      * If the file or its directory does not exist, they are created.
+     * In journaled mode, the journal is replayed on top of the loaded tasks.
+     * A binary data file is only opened, and its tasks are decoded when they are first used.
      * Throws an AsepException if the file content is corrupted.
      */
     public TaskList loadTasks() throws AsepException {
+        long start = System.nanoTime();
         ArrayList<Task> tasks = new ArrayList<>();
+        TaskSegments segments = null;
+        int savedNextId = 1;
+        long snapshotGeneration = 0;
         Path path = Paths.get(filePath);
         try {
             // Create the parent directory if it doesn't exist.
@@ -32,86 +115,698 @@ public class Storage {
                 Files.createDirectories(path.getParent());
             }
             // Create the file if it doesn't exist.
+            boolean needsMigration = false;
+            long bytesRead = 0;
             if (!Files.exists(path)) {
                 Files.createFile(path);
-                return new TaskList(tasks);
-            }
-            // Read the file line by line.
-            try (BufferedReader reader = Files.newBufferedReader(path)) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    String[] parts = line.split(" \\| ");
-                    if (parts.length < 3) {
-                        throw new AsepException("Data file is corrupted: insufficient parts in line: " + line);
-                    }
-                    String type = parts[0];
-                    boolean isDone = parts[1].equals("1");
-                    Task task;
-                    switch (type) {
-                        case "T":
-                            task = new Todo(parts[2]);
-                            break;
-                        case "D":
-                            if (parts.length < 4) {
-                                throw new AsepException("Data file is corrupted: deadline format error in line: " + line);
-                            }
-                            LocalDate by = LocalDate.parse(parts[3], Deadline.INPUT_DATE_FORMAT);
-                            task = new Deadline(parts[2], by);
-                            break;
-                        case "E":
-                            if (parts.length < 5) {
-                                throw new AsepException("Data file is corrupted: event format error in line: " + line);
-                            }
-                            task = new Event(parts[2], parts[3], parts[4]);
-                            break;
-                        default:
-                            throw new AsepException("Data file is corrupted: unknown task type in line: " + line);
-                    }
-                    if (isDone) {
-                        task.markAsDone();
-                    }
-                    tasks.add(task);
+            } else {
+                boolean isBinaryFile = BinaryTaskFormat.isBinary(path);
+                if (isBinaryFile) {
+                    BinaryTaskFormat.Contents contents = BinaryTaskFormat.open(path);
+                    tasks = contents.getTasks();
+                    segments = contents.getSegments();
+                    savedNextId = contents.getNextId();
+                    snapshotGeneration = contents.getJournalGeneration();
+                    // Files from older versions must be rewritten before they can be opened lazily.
+                    needsMigration = isBinary && !contents.isLatestVersion();
+                } else {
+                    tasks = TaskFileReader.read(path);
+                    snapshotGeneration = readTextGeneration(path);
                 }
+                needsMigration |= isBinaryFile != isBinary && Files.size(path) > 0;
+                bytesRead += Files.size(path);
             }
+            // Tasks saved before IDs existed are given IDs now, which must be saved right away.
+            TaskList taskList;
+            if (segments != null) {
+                taskList = new TaskList(segments, savedNextId);
+            } else {
+                for (Task task : tasks) {
+                    needsMigration |= task.getId() == 0;
+                }
+                taskList = new TaskList(tasks, savedNextId);
+            }
+            if (journal != null) {
+                Path journalPath = Paths.get(filePath + ".journal");
+                if (Files.exists(journalPath)) {
+                    bytesRead += Files.size(journalPath);
+                }
+                journal.replay(taskList, snapshotGeneration);
+            }
+            if (isColumnar) {
+                taskList.packIntoColumns();
+            }
+            nextId = taskList.getNextId();
+            if (needsMigration) {
+                // Keep the file in its old format next to the converted one.
+                Files.copy(path, Paths.get(filePath + ".bak"), StandardCopyOption.REPLACE_EXISTING);
+                writeFullSnapshot(taskList.getTasks());
+            } else if (journal != null && journal.hasOlderFiles()) {
+                // Journals without a generation cannot be told apart once folded into a snapshot.
+                writeFullSnapshot(taskList.getTasks());
+            }
+            if (metrics != null) {
+                metrics.recordLoad(System.nanoTime() - start, bytesRead, taskList.size());
+            }
+            return taskList;
         } catch (IOException e) {
             throw new AsepException("Error loading tasks from file: " + e.getMessage());
         } catch (Exception e) {
             throw new AsepException("Error parsing tasks: " + e.getMessage());
         }
-        return new TaskList(tasks);
     }
 
     /**
      * Saves the TaskList to file using the specified format.
+     * In journaled mode, the journal is discarded once the new snapshot is written.
+     *
+     * @throws AsepException if the tasks cannot be written.
      */
-    public void saveTasks(TaskList tasks) {
-        Path path = Paths.get(filePath);
+    public void saveTasks(TaskList tasks) throws AsepException {
+        uncommittedTasks = null;
+        nextId = Math.max(nextId, tasks.getNextId());
+        pendingRecords.clear();
+        submit(tasks.getTasks(), null, null);
+        if (writer != null) {
+            awaitWrites();
+            throwWriteError();
+        }
+    }
+
+    /**
+     * Persists the addition of a task that has already been appended to the task list.
+     *
+     * @param tasks the task list after the addition.
+     * @param task  the task that was added.
+     * @throws AsepException if the change, or an earlier background write, could not be saved.
+     */
+    public void recordAdd(TaskList tasks, Task task) throws AsepException {
+        record(tasks, Journal.ADD, Journal.formatTask(task));
+    }
+
+    /**
+     * Persists the addition of tasks that have already been appended to the task list, such as
+     * those of an import.
+     * <p>
+     * However many tasks were added, they are saved with a single write of the whole list instead
+     * of a journal record each, so an import does not leave a copy of itself in the journal.
+     * </p>
+     *
+     * @param tasks the task list after the addition.
+     * @throws AsepException if the change, or an earlier background write, could not be saved.
+     */
+    public void recordAddAll(TaskList tasks) throws AsepException {
+        uncommittedTasks = tasks;
+        needsFullSnapshot = true;
+        if (!isBatching) {
+            commit();
+        }
+    }
+
+    /**
+     * Persists that the task at the given index has been marked as done.
+     *
+     * @param tasks the task list after the change.
+     * @param index the zero-based index of the task.
+     * @throws AsepException if the change, or an earlier background write, could not be saved.
+     */
+    public void recordMark(TaskList tasks, int index) throws AsepException {
+        record(tasks, Journal.MARK, String.valueOf(index));
+    }
+
+    /**
+     * Persists that the task at the given index has been marked as not done.
+     *
+     * @param tasks the task list after the change.
+     * @param index the zero-based index of the task.
+     * @throws AsepException if the change, or an earlier background write, could not be saved.
+     */
+    public void recordUnmark(TaskList tasks, int index) throws AsepException {
+        record(tasks, Journal.UNMARK, String.valueOf(index));
+    }
+
+    /**
+     * Persists that the given task, addressed by its ID, has been marked as done.
+     *
+     * @param tasks the task list after the change.
+     * @param task  the task that was marked.
+     * @throws AsepException if the change, or an earlier background write, could not be saved.
+     */
+    public void recordMark(TaskList tasks, Task task) throws AsepException {
+        record(tasks, Journal.MARK, Journal.formatId(task.getId()));
+    }
+
+    /**
+     * Persists that the given task, addressed by its ID, has been marked as not done.
+     *
+     * @param tasks the task list after the change.
+     * @param task  the task that was unmarked.
+     * @throws AsepException if the change, or an earlier background write, could not be saved.
+     */
+    public void recordUnmark(TaskList tasks, Task task) throws AsepException {
+        record(tasks, Journal.UNMARK, Journal.formatId(task.getId()));
+    }
+
+    /**
+     * Persists the removal of the task that was at the given index.
+     *
+     * @param tasks the task list after the removal.
+     * @param index the zero-based index the task had before it was removed.
+     * @throws AsepException if the change, or an earlier background write, could not be saved.
+     */
+    public void recordDelete(TaskList tasks, int index) throws AsepException {
+        record(tasks, Journal.DELETE, String.valueOf(index));
+    }
+
+    /**
+     * Persists that the tasks at the given indexes have been marked as done.
+     *
+     * @param tasks   the task list after the change.
+     * @param indexes the zero-based indexes of the tasks.
+     * @throws AsepException if the change, or an earlier background write, could not be saved.
+     */
+    public void recordMark(TaskList tasks, BitSet indexes) throws AsepException {
+        record(tasks, Journal.MARK, Journal.formatIndexes(indexes));
+    }
+
+    /**
+     * Persists that the tasks at the given indexes have been marked as not done.
+     *
+     * @param tasks   the task list after the change.
+     * @param indexes the zero-based indexes of the tasks.
+     * @throws AsepException if the change, or an earlier background write, could not be saved.
+     */
+    public void recordUnmark(TaskList tasks, BitSet indexes) throws AsepException {
+        record(tasks, Journal.UNMARK, Journal.formatIndexes(indexes));
+    }
+
+    /**
+     * Persists the removal of the tasks that were at the given indexes.
+     *
+     * @param tasks   the task list after the removal.
+     * @param indexes the zero-based indexes the tasks had before they were removed.
+     * @throws AsepException if the change, or an earlier background write, could not be saved.
+     */
+    public void recordDelete(TaskList tasks, BitSet indexes) throws AsepException {
+        record(tasks, Journal.DELETE, Journal.formatIndexes(indexes));
+    }
+
+    /**
+     * Persists the changes made by {@link TaskList#restore(PersistentTaskList)} as one write.
+     *
+     * @param tasks      the task list after the changes.
+     * @param difference the changes that were made.
+     * @throws AsepException if the changes, or an earlier background write, could not be saved.
+     */
+    public void recordRestore(TaskList tasks, PersistentTaskList.Difference difference) throws AsepException {
+        if (journal != null) {
+            if (!difference.getRemoved().isEmpty()) {
+                pendingRecords.add(Journal.formatRecord(Journal.DELETE,
+                        Journal.formatIndexes(difference.getRemoved())));
+            }
+            int[] insertedAt = difference.getInsertedAt();
+            for (int i = 0; i < insertedAt.length; i++) {
+                pendingRecords.add(Journal.formatRecord(Journal.INSERT,
+                        insertedAt[i] + " | " + Journal.formatTask(difference.getInserted().get(i))));
+            }
+            if (!difference.getMarked().isEmpty()) {
+                pendingRecords.add(Journal.formatRecord(Journal.MARK, Journal.formatIndexes(difference.getMarked())));
+            }
+            if (!difference.getUnmarked().isEmpty()) {
+                pendingRecords.add(Journal.formatRecord(Journal.UNMARK,
+                        Journal.formatIndexes(difference.getUnmarked())));
+            }
+        }
+        uncommittedTasks = tasks;
+        if (!isBatching) {
+            commit();
+        }
+    }
+
+    /**
+     * Starts batch mode, in which changes are postponed until {@link #commit()} is called.
+     */
+    public void beginBatch() {
+        isBatching = true;
+    }
+
+    /**
+     * Switches the data file to the compact binary format described in {@link BinaryTaskFormat}.
+     * <p>
+     * Must be called before {@link #loadTasks()}. A data file still in the text format is then
+     * converted when it is loaded, and the original is kept next to it with a ".bak" suffix.
+     * </p>
+     */
+    public void useBinaryFormat() {
+        isBinary = true;
+    }
+
+    /**
+     * Makes {@link #loadTasks()} pack the loaded tasks into {@link TaskColumns}, which keeps very
+     * large lists in a fraction of the memory.
+     */
+    public void useColumnarStore() {
+        isColumnar = true;
+    }
+
+    /**
+     * Counts loads, snapshots and journal writes in the given metrics from now on.
+     *
+     * @param metrics the metrics to update.
+     */
+    public void useMetrics(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Starts asynchronous mode, in which writes are handed to a background writer thread.
+     * <p>
+     * Commands then only queue their changes, and bursts of changes are coalesced into a single
+     * write. Use {@link #flush()} to wait until everything has reached the disk. A failed
+     * background write is reported by the next call that records or flushes a change, and the
+     * whole task list is written again on the following commit.
+     * </p>
+     */
+    public void startAsyncWriter() {
+        if (writer == null) {
+            writer = new AsyncWriter("asep-writer", () -> {
+                if (journal != null) {
+                    journal.flush();
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes all changes recorded since the last commit in a single write.
+     * <p>
+     * In journaled mode the postponed journal records are appended together; otherwise the whole
+     * task list is saved once. In asynchronous mode, the write is only queued.
+     * </p>
+     *
+     * @throws AsepException if the changes, or an earlier background write, could not be saved.
+     */
+    public void commit() throws AsepException {
+        IOException earlierError = writeError;
+        if (earlierError != null) {
+            writeError = null;
+            needsFullSnapshot = true;
+        }
+        if (uncommittedTasks != null) {
+            TaskList tasks = uncommittedTasks;
+            uncommittedTasks = null;
+            nextId = Math.max(nextId, tasks.getNextId());
+            if (journal == null || needsFullSnapshot) {
+                needsFullSnapshot = false;
+                pendingRecords.clear();
+                submit(tasks.getTasks(), null, null);
+            } else {
+                ArrayList<String> records = new ArrayList<>(pendingRecords);
+                pendingRecords.clear();
+                List<Task> compactionSnapshot = shouldCompact() ? tasks.getTasks() : null;
+                submit(null, records, compactionSnapshot);
+            }
+        }
+        if (earlierError != null) {
+            throw new AsepException("Error saving tasks: " + earlierError.getMessage());
+        }
+    }
+
+    /**
+     * Waits for any background work to finish, so that everything recorded so far is on disk.
+     *
+     * @throws AsepException if any of the pending writes failed.
+     */
+    public void flush() throws AsepException {
+        commit();
+        awaitWrites();
+        long start = System.nanoTime();
+        awaitCompaction();
+        Metrics.addStorageTime(System.nanoTime() - start);
+        throwWriteError();
+    }
+
+    /**
+     * Writes all pending changes and stops the background threads, so that the task list can be
+     * dropped from memory. This Storage must not be used afterwards.
+     * <p>
+     * In journaled mode, a non-empty journal is first folded into a new snapshot, so that the next
+     * load does not have to replay it. Replaying deletions would decode every task of a lazily
+     * opened file, while writing the snapshot copies its untouched segments as they are.
+     * </p>
+     *
+     * @param tasks the task list this Storage persists.
+     * @throws AsepException if any of the pending writes failed; the threads are then left running.
+     */
+    public void close(TaskList tasks) throws AsepException {
+        flush();
         try {
-            // Create the parent directory if it doesn't exist.
-            if (path.getParent() != null && !Files.exists(path.getParent())) {
-                Files.createDirectories(path.getParent());
+            if (journal != null && journal.size() > 0) {
+                saveTasks(tasks);
+            }
+        } catch (IOException e) {
+            throw new AsepException("Error saving tasks: " + e.getMessage());
+        }
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        synchronized (this) {
+            if (compactor != null) {
+                compactor.shutdown();
+                compactor = null;
+            }
+        }
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                throw new AsepException("Error closing journal: " + e.getMessage());
             }
-            // Write each task in the TaskList to the file.
-            try (BufferedWriter writer = Files.newBufferedWriter(path)) {
-                for (Task task : tasks.getTasks()) {
-                    String line = "";
-                    if (task instanceof Todo) {
-                        line = "T | " + (task.isDone ? "1" : "0") + " | " + task.getDescription();
-                    } else if (task instanceof Deadline) {
-                        Deadline deadline = (Deadline) task;
-                        line = "D | " + (task.isDone ? "1" : "0") + " | " + task.getDescription()
-                                + " | " + deadline.getBy().format(Deadline.INPUT_DATE_FORMAT);
-                    } else if (task instanceof Event) {
-                        Event event = (Event) task;
-                        line = "E | " + (task.isDone ? "1" : "0") + " | " + task.getDescription()
-                                + " | " + event.getFrom() + " | " + event.getTo();
-                    }
-                    writer.write(line);
-                    writer.newLine();
+        }
+    }
+
+    /**
+     * Parses a single line of the data file into a Task.
+     *
+     * @param line a line in the "#id | type | done | description | ..." format, where the ID is optional.
+     * @return the task described by the line.
+     * @throws AsepException if the line is corrupted.
+     */
+    static Task parseTask(String line) throws AsepException {
+        return createTask(line.split(" \\| "), line);
+    }
+
+    /**
+     * Creates a Task from the fields of a data file line.
+     *
+     * @param parts the fields: an optional "#id", type, done flag, description, and the date or
+     *              event times.
+     * @param line  the line the fields come from, for error messages.
+     * @return the task described by the fields, with its ID if the fields had one.
+     * @throws AsepException if the fields are corrupted.
+     */
+    static Task createTask(String[] parts, String line) throws AsepException {
+        int id = 0;
+        if (parts.length > 0 && parts[0].startsWith("#")) {
+            try {
+                id = Integer.parseInt(parts[0].substring(1));
+            } catch (NumberFormatException e) {
+                id = -1;
+            }
+            if (id < 1) {
+                throw new AsepException("Data file is corrupted: invalid task ID in line: " + line);
+            }
+            parts = Arrays.copyOfRange(parts, 1, parts.length);
+        }
+        if (parts.length < 3) {
+            throw new AsepException("Data file is corrupted: insufficient parts in line: " + line);
+        }
+        String type = parts[0];
+        boolean isDone = parts[1].equals("1");
+        Task task;
+        switch (type) {
+            case "T":
+                task = new Todo(parts[2]);
+                break;
+            case "D":
+                if (parts.length < 4) {
+                    throw new AsepException("Data file is corrupted: deadline format error in line: " + line);
                 }
+                LocalDate by = LocalDate.parse(parts[3], Deadline.INPUT_DATE_FORMAT);
+                task = new Deadline(parts[2], by);
+                break;
+            case "E":
+                if (parts.length < 5) {
+                    throw new AsepException("Data file is corrupted: event format error in line: " + line);
+                }
+                task = new Event(parts[2], parts[3], parts[4]);
+                break;
+            default:
+                throw new AsepException("Data file is corrupted: unknown task type in line: " + line);
+        }
+        if (isDone) {
+            task.markAsDone();
+        }
+        task.setId(id);
+        return task;
+    }
+
+    /**
+     * Formats a Task as a single line of the data file.
+     *
+     * @param task the task to format.
+     * @return the line representing the task, starting with its ID if it has one.
+     */
+    static String formatTask(Task task) {
+        String line = "";
+        if (task instanceof Todo) {
+            line = "T | " + (task.isDone ? "1" : "0") + " | " + task.getDescription();
+        } else if (task instanceof Deadline) {
+            Deadline deadline = (Deadline) task;
+            line = "D | " + (task.isDone ? "1" : "0") + " | " + task.getDescription()
+                    + " | " + deadline.getBy().format(Deadline.INPUT_DATE_FORMAT);
+        } else if (task instanceof Event) {
+            Event event = (Event) task;
+            line = "E | " + (task.isDone ? "1" : "0") + " | " + task.getDescription()
+                    + " | " + event.getFrom() + " | " + event.getTo();
+        }
+        if (task.getId() != 0) {
+            line = "#" + task.getId() + " | " + line;
+        }
+        return line;
+    }
+
+    private void record(TaskList tasks, String operation, String argument) throws AsepException {
+        uncommittedTasks = tasks;
+        if (journal != null) {
+            pendingRecords.add(Journal.formatRecord(operation, argument));
+        }
+        if (!isBatching) {
+            commit();
+        }
+    }
+
+    /**
+     * Writes either a full snapshot or a group of journal records, inline or on the writer thread.
+     * <p>
+     * A journal that has grown past the threshold is rotated in the same step as the records are
+     * appended, so the records written before the compaction snapshot was taken end up in the
+     * rotated journal and later ones in the fresh journal.
+     * </p>
+     */
+    private void submit(List<Task> fullSnapshot, List<String> records, List<Task> compactionSnapshot)
+            throws AsepException {
+        AsyncWriter.Write write = () -> {
+            if (fullSnapshot != null) {
+                writeFullSnapshot(fullSnapshot);
+                return;
+            }
+            long bytes = 0;
+            for (String record : records) {
+                journal.append(record);
+                bytes += record.length() + 1;
+            }
+            Metrics currentMetrics = metrics;
+            if (currentMetrics != null) {
+                currentMetrics.recordJournalWrite(records.size(), bytes);
+            }
+            if (compactionSnapshot != null) {
+                startCompaction(compactionSnapshot);
+            }
+        };
+        long start = System.nanoTime();
+        if (writer != null) {
+            lastWrite = writer.submit(write).whenComplete((result, error) -> {
+                if (error != null) {
+                    writeError = error instanceof IOException ? (IOException) error : new IOException(error);
+                }
+            });
+            Metrics.addStorageTime(System.nanoTime() - start);
+            return;
+        }
+        try {
+            write.run();
+            if (journal != null) {
+                journal.flush();
+            }
+        } catch (IOException e) {
+            needsFullSnapshot = true;
+            throw new AsepException("Error saving tasks: " + e.getMessage());
+        } finally {
+            Metrics.addStorageTime(System.nanoTime() - start);
+        }
+    }
+
+    private boolean shouldCompact() {
+        try {
+            Future<?> compaction = pendingCompaction;
+            return journal.size() >= compactionThreshold && (compaction == null || compaction.isDone());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Folds the current journal into a new snapshot on the background thread.
+     * <p>
+     * The snapshot of the task list is taken when the change is committed, so later additions and
+     * removals do not affect it. A task marked or unmarked while the snapshot is written is also
+     * recorded in the new journal, and replaying that record again is harmless.
+     * </p>
+     */
+    private void startCompaction(List<Task> snapshot) throws IOException {
+        if (journal.size() < compactionThreshold) {
+            // Another commit already rotated the journal.
+            return;
+        }
+        if (journal.isCompacting()) {
+            // An earlier compaction failed; its records are only safe once a full snapshot exists.
+            writeFullSnapshot(snapshot);
+            return;
+        }
+        long generation = journal.rotate();
+        synchronized (this) {
+            if (compactor == null) {
+                compactor = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "asep-compactor");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+        pendingCompaction = compactor.submit(() -> {
+            try {
+                writeSnapshot(snapshot, generation);
+                journal.finishCompaction();
+            } catch (IOException e) {
+                writeError = e;
+            } catch (RuntimeException e) {
+                writeError = new IOException(e);
             }
+        });
+    }
+
+    private void writeFullSnapshot(List<Task> snapshot) throws IOException {
+        awaitCompaction();
+        writeSnapshot(snapshot, journal == null ? 0 : journal.getGeneration());
+        if (journal != null) {
+            journal.clear();
+        }
+    }
+
+    /**
+     * Waits for the last queued write; its failure, if any, is left in writeError.
+     */
+    private void awaitWrites() {
+        long start = System.nanoTime();
+        try {
+            lastWrite.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Reported through writeError.
+        } finally {
+            Metrics.addStorageTime(System.nanoTime() - start);
+        }
+    }
+
+    private void throwWriteError() throws AsepException {
+        IOException error = writeError;
+        if (error != null) {
+            writeError = null;
+            needsFullSnapshot = true;
+            throw new AsepException("Error saving tasks: " + error.getMessage());
+        }
+    }
+
+    private void awaitCompaction() {
+        Future<?> compaction = pendingCompaction;
+        if (compaction == null) {
+            return;
+        }
+        try {
+            compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            writeError = new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Writes the given tasks, and the last journal generation they include, to a temporary file,
+     * forces it to the disk and moves it over the data file.
+     */
+    private void writeSnapshot(List<Task> tasks, long journalGeneration) throws IOException {
+        long start = System.nanoTime();
+        Path path = Paths.get(filePath);
+        // Create the parent directory if it doesn't exist.
+        if (path.getParent() != null && !Files.exists(path.getParent())) {
+            Files.createDirectories(path.getParent());
+        }
+        Path tempPath = Paths.get(filePath + ".tmp");
+        if (isBinary) {
+            BinaryTaskFormat.write(tempPath, tasks, nextId, journalGeneration);
+        } else {
+            writeText(tempPath, tasks, journalGeneration);
+        }
+        long bytesWritten = Files.size(tempPath);
+        // The snapshot must be on the disk before it replaces the old one, and the rename
+        // before the journals it includes are deleted.
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(path);
+        Metrics currentMetrics = metrics;
+        if (currentMetrics != null) {
+            currentMetrics.recordSnapshot(System.nanoTime() - start, bytesWritten, tasks.size());
+        }
+    }
+
+    /**
+     * Forces the entries of the directory holding a file to the disk, so that a file created or
+     * renamed in it survives a crash. Platforms that cannot open a directory, such as Windows, do
+     * not need this, so failing to open it is ignored.
+     *
+     * @param file the file whose directory is forced.
+     * @throws IOException if the directory was opened but cannot be forced.
+     */
+    static void forceDirectory(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
         } catch (IOException e) {
-            System.out.println("Error saving tasks: " + e.getMessage());
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Returns the journal generation on the first line of a text data file, or 0 if it has none.
+     */
+    private static long readTextGeneration(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line = reader.readLine();
+            return line == null ? 0 : Journal.parseGeneration(line);
+        }
+    }
+
+    private static void writeText(Path path, List<Task> tasks, long journalGeneration) throws IOException {
+        // Write each task in the TaskList to the file.
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            if (journalGeneration > 0) {
+                writer.write(Journal.formatRecord(Journal.GENERATION, Long.toString(journalGeneration)));
+                writer.newLine();
+            }
+            for (Task task : tasks) {
+                writer.write(formatTask(task));
+                writer.newLine();
+            }
         }
     }
 }
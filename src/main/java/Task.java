@@ -1,14 +1,29 @@
+import java.nio.charset.Charset;
+
 /**
  * Represents an abstract task with a description and completion status.
  * <p>
  * This class serves as a base for different types of tasks. It encapsulates common functionality
  * such as marking a task as done or not done, and provides a template for subclasses to define
- * their specific type and additional details.
+ * their specific type and additional details. Every task in a task list also has a stable ID that,
+ * unlike its position, does not change when other tasks are deleted.
+ * </p>
+ * <p>
+ * The line a task is shown as, and its encoding in the default charset, are built on first use
+ * and kept until the task is marked or unmarked, so showing an unchanged task again costs
+ * nothing. The status icon is always the fifth character of the line, right after "[T][", so a
+ * kept line can be checked against the current status; a line built by one thread while another
+ * marks the task is then never used for the wrong status.
  * </p>
  */
 public abstract class Task {
+    private static final int STATUS_INDEX = 4;
+
     protected final String description;
-    protected boolean isDone;
+    protected volatile boolean isDone;
+    private int id;
+    private volatile String line;
+    private volatile byte[] lineBytes;
 
     /**
      * Constructs a Task with the specified description.
@@ -20,11 +35,30 @@ public abstract class Task {
         this.isDone = false;
     }
 
+    /**
+     * Returns the ID of this task.
+     *
+     * @return the ID, or 0 if the task has not been given one yet.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the ID of this task.
+     *
+     * @param id the ID, a positive number.
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Marks this task as completed.
      */
     public void markAsDone() {
         isDone = true;
+        clearLine();
     }
 
     /**
@@ -32,6 +66,7 @@ public abstract class Task {
      */
     public void markAsNotDone() {
         isDone = false;
+        clearLine();
     }
 
     /**
@@ -76,7 +111,49 @@ public abstract class Task {
      */
     @Override
     public String toString() {
-        String statusIcon = isDone ? "X" : " ";
+        char statusIcon = getStatusIcon();
+        String current = line;
+        if (current == null || current.charAt(STATUS_INDEX) != statusIcon) {
+            current = render(statusIcon);
+            line = current;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the string representation of the task encoded in the default charset, as written
+     * by {@link Ui}.
+     * <p>
+     * The array is kept and shared by every caller, so it must not be changed.
+     * </p>
+     *
+     * @return the encoded line.
+     */
+    public byte[] getLineBytes() {
+        char statusIcon = getStatusIcon();
+        byte[] current = lineBytes;
+        if (current == null || current[STATUS_INDEX] != statusIcon) {
+            String rendered = line;
+            if (rendered == null || rendered.charAt(STATUS_INDEX) != statusIcon) {
+                // Not kept, so that listing tasks does not keep both forms of every line.
+                rendered = render(statusIcon);
+            }
+            current = rendered.getBytes(Charset.defaultCharset());
+            lineBytes = current;
+        }
+        return current;
+    }
+
+    private char getStatusIcon() {
+        return isDone ? 'X' : ' ';
+    }
+
+    private String render(char statusIcon) {
         return "[" + getType() + "][" + statusIcon + "] " + description + getExtraInfo();
     }
+
+    private void clearLine() {
+        line = null;
+        lineBytes = null;
+    }
 }
@@ -0,0 +1,303 @@
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Represents tasks stored column by column in primitive arrays instead of as Task objects.
+ * <p>
+ * Every task has a slot, which it keeps for as long as the columns exist. A slot holds a type code,
+ * a done flag, the ID, and either the epoch day of a deadline or the length of the description of
+ * an event. The description, and the times of an event, are kept as UTF-8 bytes in a shared arena,
+ * where the start time of an event is preceded by its length. The slots are grouped into chunks
+ * that are never copied once allocated, so adding a task never moves the others and every reader
+ * sees the latest done flags.
+ * </p>
+ * <p>
+ * A Task object is only created when a slot is read, and is kept only for as long as someone
+ * holds on to it: reading the same slot again returns the same object until it is no longer
+ * used. A task costs a few dozen bytes plus its text while nobody holds it, instead of a few
+ * hundred as an object. Slots may be read by several threads at once, but only one thread at a
+ * time may add tasks or change done flags.
+ * </p>
+ */
+public class TaskColumns {
+    private static final int CHUNK_BITS = 12;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int INITIAL_TEXT_SIZE = 1024;
+    private static final byte TODO = 0;
+    private static final byte DEADLINE = 1;
+    private static final byte EVENT = 2;
+
+    /**
+     * Holds the columns of a fixed number of consecutive slots.
+     */
+    private static class Chunk {
+        private final byte[] types = new byte[CHUNK_SIZE];
+        private final AtomicLongArray done = new AtomicLongArray(CHUNK_SIZE / Long.SIZE);
+        private final int[] ids = new int[CHUNK_SIZE];
+        private final int[] values = new int[CHUNK_SIZE];
+        private final int[] textStarts = new int[CHUNK_SIZE + 1];
+        private final AtomicReferenceArray<View> views = new AtomicReferenceArray<>(CHUNK_SIZE);
+        private byte[] text = new byte[INITIAL_TEXT_SIZE];
+    }
+
+    /**
+     * Refers to the Task object last created for a slot, without keeping it alive.
+     */
+    private static class View extends WeakReference<Task> {
+        private final int slot;
+
+        View(Task task, int slot, ReferenceQueue<Task> queue) {
+            super(task, queue);
+            this.slot = slot;
+        }
+    }
+
+    private final ReferenceQueue<Task> collectedViews = new ReferenceQueue<>();
+    private Chunk[] chunks = new Chunk[1];
+    private int size;
+
+    /**
+     * Adds a task in a new slot. The task becomes the object returned for the slot for as long
+     * as it is used.
+     *
+     * @param task the task, which must have an ID.
+     * @return the slot of the task.
+     */
+    public int add(Task task) {
+        int slot = append(task);
+        Chunk chunk = chunks[slot >>> CHUNK_BITS];
+        chunk.views.set(slot & (CHUNK_SIZE - 1), new View(task, slot, collectedViews));
+        expungeViews();
+        return slot;
+    }
+
+    /**
+     * Adds a task in a new slot without keeping the task itself, as when packing tasks that are
+     * about to be dropped.
+     *
+     * @param task the task, which must have an ID.
+     * @return the slot of the task.
+     */
+    public int pack(Task task) {
+        return append(task);
+    }
+
+    /**
+     * Returns the task in the given slot, creating a Task object for it if there is none in use.
+     *
+     * @param slot the slot.
+     * @return the task.
+     */
+    public Task get(int slot) {
+        Chunk chunk = chunks[slot >>> CHUNK_BITS];
+        int index = slot & (CHUNK_SIZE - 1);
+        View view = chunk.views.get(index);
+        Task task = view == null ? null : view.get();
+        while (task == null) {
+            expungeViews();
+            Task created = create(chunk, index);
+            View createdView = new View(created, slot, collectedViews);
+            if (chunk.views.compareAndSet(index, view, createdView)) {
+                return created;
+            }
+            // Another thread created the task first; use its object.
+            view = chunk.views.get(index);
+            task = view == null ? null : view.get();
+        }
+        return task;
+    }
+
+    /**
+     * Returns the slot whose Task object in use is the given task, as for a task that was
+     * removed from a list and is put back.
+     * <p>
+     * Slots are added in order of ID, so the slot is found by a binary search over the IDs; columns
+     * whose IDs are out of order are scanned instead.
+     * </p>
+     *
+     * @param task the task.
+     * @return the slot, or -1 if the task is not the object in use for any slot.
+     */
+    public int find(Task task) {
+        int id = task.getId();
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = getId(middle);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else if (isInUse(middle, task)) {
+                return middle;
+            } else {
+                break;
+            }
+        }
+        for (int slot = size - 1; slot >= 0; slot--) {
+            if (getId(slot) == id && isInUse(slot, task)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the ID of the task in the given slot without creating a Task object.
+     *
+     * @param slot the slot.
+     * @return the ID.
+     */
+    public int getId(int slot) {
+        return chunks[slot >>> CHUNK_BITS].ids[slot & (CHUNK_SIZE - 1)];
+    }
+
+    /**
+     * Records the status of the task in the given slot. The Task object in use for the slot, if
+     * any, must be changed by the caller.
+     *
+     * @param slot   the slot.
+     * @param isDone whether the task is done.
+     */
+    public void setDone(int slot, boolean isDone) {
+        Chunk chunk = chunks[slot >>> CHUNK_BITS];
+        int index = slot & (CHUNK_SIZE - 1);
+        long bit = 1L << index;
+        long word = chunk.done.get(index >>> 6);
+        chunk.done.set(index >>> 6, isDone ? word | bit : word & ~bit);
+    }
+
+    /**
+     * Returns the number of slots in use.
+     *
+     * @return the number of tasks ever added.
+     */
+    public int size() {
+        return size;
+    }
+
+    private boolean isInUse(int slot, Task task) {
+        View view = chunks[slot >>> CHUNK_BITS].views.get(slot & (CHUNK_SIZE - 1));
+        return view != null && view.get() == task;
+    }
+
+    private int append(Task task) {
+        int slot = size;
+        int chunkIndex = slot >>> CHUNK_BITS;
+        if (chunkIndex == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkIndex * 2);
+        }
+        if (chunks[chunkIndex] == null) {
+            chunks[chunkIndex] = new Chunk();
+        }
+        Chunk chunk = chunks[chunkIndex];
+        int index = slot & (CHUNK_SIZE - 1);
+        byte[] description = task.getDescription().getBytes(StandardCharsets.UTF_8);
+        int start = chunk.textStarts[index];
+        if (task instanceof Deadline) {
+            chunk.types[index] = DEADLINE;
+            chunk.values[index] = (int) ((Deadline) task).getBy().toEpochDay();
+            start = appendText(chunk, start, description);
+        } else if (task instanceof Event) {
+            Event event = (Event) task;
+            byte[] from = event.getFrom().getBytes(StandardCharsets.UTF_8);
+            byte[] to = event.getTo().getBytes(StandardCharsets.UTF_8);
+            chunk.types[index] = EVENT;
+            chunk.values[index] = description.length;
+            start = appendText(chunk, start, description);
+            start = appendText(chunk, start, encodeLength(from.length));
+            start = appendText(chunk, start, from);
+            start = appendText(chunk, start, to);
+        } else {
+            chunk.types[index] = TODO;
+            start = appendText(chunk, start, description);
+        }
+        chunk.textStarts[index + 1] = start;
+        chunk.ids[index] = task.getId();
+        if (task.isDone) {
+            chunk.done.set(index >>> 6, chunk.done.get(index >>> 6) | 1L << index);
+        }
+        size = slot + 1;
+        return slot;
+    }
+
+    private static int appendText(Chunk chunk, int start, byte[] bytes) {
+        int end = start + bytes.length;
+        if (end > chunk.text.length) {
+            // Readers of earlier slots may still use the old arena, which holds the same bytes.
+            chunk.text = Arrays.copyOf(chunk.text, Math.max(end, chunk.text.length * 2));
+        }
+        System.arraycopy(bytes, 0, chunk.text, start, bytes.length);
+        return end;
+    }
+
+    /**
+     * Encodes a length in 7-bit groups, lowest first, with the high bit set on all but the last.
+     */
+    private static byte[] encodeLength(int length) {
+        byte[] bytes = new byte[5];
+        int count = 0;
+        int rest = length;
+        while (rest >= 0x80) {
+            bytes[count++] = (byte) (rest | 0x80);
+            rest >>>= 7;
+        }
+        bytes[count++] = (byte) rest;
+        return Arrays.copyOf(bytes, count);
+    }
+
+    private static Task create(Chunk chunk, int index) {
+        byte[] text = chunk.text;
+        int start = chunk.textStarts[index];
+        int end = chunk.textStarts[index + 1];
+        Task task;
+        switch (chunk.types[index]) {
+            case DEADLINE:
+                task = new Deadline(new String(text, start, end - start, StandardCharsets.UTF_8),
+                        LocalDate.ofEpochDay(chunk.values[index]));
+                break;
+            case EVENT:
+                int descriptionEnd = start + chunk.values[index];
+                int fromStart = descriptionEnd;
+                int fromLength = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = text[fromStart++];
+                    fromLength |= (b & 0x7f) << shift;
+                    if (b >= 0) {
+                        break;
+                    }
+                }
+                int fromEnd = fromStart + fromLength;
+                task = new Event(new String(text, start, descriptionEnd - start, StandardCharsets.UTF_8),
+                        new String(text, fromStart, fromLength, StandardCharsets.UTF_8),
+                        new String(text, fromEnd, end - fromEnd, StandardCharsets.UTF_8));
+                break;
+            default:
+                task = new Todo(new String(text, start, end - start, StandardCharsets.UTF_8));
+                break;
+        }
+        task.setId(chunk.ids[index]);
+        if ((chunk.done.get(index >>> 6) & 1L << index) != 0) {
+            task.markAsDone();
+        }
+        return task;
+    }
+
+    /**
+     * Clears the slots whose Task objects are no longer used, so that the references to them can
+     * be collected too.
+     */
+    private void expungeViews() {
+        View view;
+        while ((view = (View) collectedViews.poll()) != null) {
+            Chunk chunk = chunks[view.slot >>> CHUNK_BITS];
+            chunk.views.compareAndSet(view.slot & (CHUNK_SIZE - 1), view, null);
+        }
+    }
+}
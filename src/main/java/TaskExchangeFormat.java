@@ -0,0 +1,1130 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Represents a file format that tasks can be imported from and exported to, one record at a time.
+ * <p>
+ * Every format is read by a {@link TaskReader}, which returns the next task each time it is
+ * called, and written by a {@link TaskWriter}, which writes each task as it is given. Neither holds
+ * more than the record at hand, so a file of any size is read or written in constant memory.
+ * Imported tasks are validated as they are read, and a record that cannot be turned into a task
+ * is reported with the line it starts on.
+ * </p>
+ * <p>
+ * The formats other than the data file format name their fields the same way: "type" (T, D or E,
+ * or todo, deadline or event), "done" (1 or 0, true or false, yes or no), "description", "by" (the
+ * due date of a deadline, in yyyy-MM-dd format), and "from" and "to" (the times of an event).
+ * When importing, "status", "name", "title", "summary", "due", "start" and "end" are accepted
+ * too, a missing type is inferred from the fields that are present, other fields are ignored,
+ * and line breaks within a field are turned into spaces.
+ * </p>
+ */
+public enum TaskExchangeFormat {
+    /**
+     * The pipe-delimited text format of the data file, one task per line.
+     */
+    TEXT("txt") {
+        @Override
+        public TaskReader newReader(BufferedReader in) {
+            return new TextReader(in);
+        }
+
+        @Override
+        public TaskWriter newWriter(Writer out) {
+            return new TextWriter(out);
+        }
+    },
+    /**
+     * Comma-separated values with a header row naming the columns, quoted as in RFC 4180.
+     */
+    CSV("csv") {
+        @Override
+        public TaskReader newReader(BufferedReader in) {
+            return new CsvReader(in);
+        }
+
+        @Override
+        public TaskWriter newWriter(Writer out) throws IOException {
+            return new CsvWriter(out);
+        }
+    },
+    /**
+     * JSON Lines: one JSON object per line, with string fields and a boolean "done".
+     */
+    JSON_LINES("jsonl") {
+        @Override
+        public TaskReader newReader(BufferedReader in) {
+            return new JsonLinesReader(in);
+        }
+
+        @Override
+        public TaskWriter newWriter(Writer out) {
+            return new JsonLinesWriter(out);
+        }
+    },
+    /**
+     * iCalendar: todos and deadlines as VTODO components, with the due date of a deadline as its
+     * DUE, and events as VEVENT components. The times of an event are kept as entered in
+     * X-ASEP-FROM and X-ASEP-TO, and also given as DTSTART and DTEND when they are recognisable.
+     */
+    ICALENDAR("ics") {
+        @Override
+        public TaskReader newReader(BufferedReader in) {
+            return new ICalendarReader(in);
+        }
+
+        @Override
+        public TaskWriter newWriter(Writer out) throws IOException {
+            return new ICalendarWriter(out);
+        }
+    };
+
+    /**
+     * Reads tasks from a file, one record at a time.
+     */
+    public abstract static class TaskReader {
+        /**
+         * Reads the next task.
+         *
+         * @return the task, without an ID, or null at the end of the file.
+         * @throws IOException   if the file cannot be read.
+         * @throws AsepException if the next record is not a valid task.
+         */
+        public abstract Task next() throws IOException, AsepException;
+    }
+
+    /**
+     * Writes tasks to a file, one record at a time.
+     */
+    public abstract static class TaskWriter {
+        /**
+         * Writes a task.
+         *
+         * @param task the task.
+         * @throws IOException if the file cannot be written.
+         */
+        public abstract void write(Task task) throws IOException;
+
+        /**
+         * Writes whatever has to follow the last task. The underlying writer is not closed.
+         *
+         * @throws IOException if the file cannot be written.
+         */
+        public void finish() throws IOException {
+        }
+    }
+
+    private static final int TYPE = 0;
+    private static final int DONE = 1;
+    private static final int DESCRIPTION = 2;
+    private static final int BY = 3;
+    private static final int FROM = 4;
+    private static final int TO = 5;
+    private static final int FIELD_COUNT = 6;
+    private static final String BYTE_ORDER_MARK = "\uFEFF";
+    private static final String[] FIELD_NAMES = {"type", "done", "description", "by", "from", "to"};
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("uuuu-MM-dd").withResolverStyle(ResolverStyle.STRICT);
+
+    private final String extension;
+
+    TaskExchangeFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Returns the format with the given name, which is also its usual file extension.
+     *
+     * @param name "txt", "csv", "jsonl" or "ics", ignoring case.
+     * @return the format, or null if there is none with that name.
+     */
+    public static TaskExchangeFormat of(String name) {
+        for (TaskExchangeFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the format a file is in, judging by its extension.
+     *
+     * @param filePath the path of the file.
+     * @return the format, or {@link #TEXT} if the extension is not one of a format.
+     */
+    public static TaskExchangeFormat forFile(String filePath) {
+        int dot = filePath.lastIndexOf('.');
+        TaskExchangeFormat format = dot == -1 ? null : of(filePath.substring(dot + 1));
+        return format == null ? TEXT : format;
+    }
+
+    /**
+     * Returns the name of the format, as given to the import and export commands.
+     *
+     * @return the name, such as "csv".
+     */
+    public String getName() {
+        return extension;
+    }
+
+    /**
+     * Creates a reader of tasks in this format.
+     *
+     * @param in the text to read.
+     * @return the reader.
+     */
+    public abstract TaskReader newReader(BufferedReader in);
+
+    /**
+     * Creates a writer of tasks in this format, and writes whatever has to come before the first
+     * task.
+     *
+     * @param out where the text is written.
+     * @return the writer.
+     * @throws IOException if the text cannot be written.
+     */
+    public abstract TaskWriter newWriter(Writer out) throws IOException;
+
+    /**
+     * Formats how long it took to move a number of tasks, and how many that makes per second.
+     *
+     * @param count the number of tasks.
+     * @param nanos the time it took, in nanoseconds.
+     * @return the text, such as "in 1.25 s (800000 tasks/s)".
+     */
+    static String formatThroughput(long count, long nanos) {
+        double seconds = Math.max(nanos, 1) / 1e9;
+        return String.format(Locale.ROOT, "in %.2f s (%d tasks/s)", seconds, Math.round(count / seconds));
+    }
+
+    /**
+     * Returns the index of a field by one of its names, or -1 if it is not a field of a task.
+     */
+    private static int fieldOf(String name) {
+        switch (name.trim().toLowerCase(Locale.ROOT)) {
+            case "type":
+                return TYPE;
+            case "done":
+            case "status":
+                return DONE;
+            case "description":
+            case "name":
+            case "title":
+            case "summary":
+                return DESCRIPTION;
+            case "by":
+            case "due":
+                return BY;
+            case "from":
+            case "start":
+                return FROM;
+            case "to":
+            case "end":
+                return TO;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Creates a task from the values of its fields, any of which may be null.
+     *
+     * @param fields the values, indexed by field.
+     * @param line   the line the record starts on, for error messages.
+     * @return the task.
+     * @throws AsepException if the fields do not make a valid task.
+     */
+    private static Task createTask(String[] fields, long line) throws AsepException {
+        String description = clean(fields[DESCRIPTION]);
+        String by = clean(fields[BY]);
+        String from = clean(fields[FROM]);
+        String to = clean(fields[TO]);
+        if (description.isEmpty()) {
+            throw invalid(line, "the description is empty");
+        }
+        Task task;
+        switch (typeOf(clean(fields[TYPE]), by, from, to, line)) {
+            case "D":
+                if (by.isEmpty()) {
+                    throw invalid(line, "a deadline needs a due date");
+                }
+                task = new Deadline(description, parseDate(by, line));
+                break;
+            case "E":
+                if (from.isEmpty() || to.isEmpty()) {
+                    throw invalid(line, "an event needs a start and an end");
+                }
+                task = new Event(description, from, to);
+                break;
+            default:
+                task = new Todo(description);
+                break;
+        }
+        if (isDone(clean(fields[DONE]), line)) {
+            task.markAsDone();
+        }
+        return task;
+    }
+
+    /**
+     * Parses a due date, reading the digits of a plain "yyyy-MM-dd" date directly, which is many
+     * times faster than going through the date format. Dates that do not exist, such as February
+     * 30, are rejected rather than moved to the end of the month.
+     */
+    private static LocalDate parseDate(String text, long line) throws AsepException {
+        if (text.length() == 10 && text.charAt(4) == '-' && text.charAt(7) == '-') {
+            int year = parseDigits(text, 0, 4);
+            int month = parseDigits(text, 5, 7);
+            int day = parseDigits(text, 8, 10);
+            if (year >= 0 && month >= 1 && month <= 12 && day >= 1
+                    && day <= Month.of(month).length(Year.isLeap(year))) {
+                return LocalDate.of(year, month, day);
+            }
+        }
+        try {
+            return LocalDate.parse(text, DATE_FORMAT);
+        } catch (DateTimeParseException e) {
+            throw invalid(line, "the due date \"" + text + "\" is not a valid yyyy-MM-dd date");
+        }
+    }
+
+    private static int parseDigits(String text, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static String typeOf(String type, String by, String from, String to, long line) throws AsepException {
+        switch (type.toLowerCase(Locale.ROOT)) {
+            case "":
+                return !by.isEmpty() ? "D" : !from.isEmpty() || !to.isEmpty() ? "E" : "T";
+            case "t":
+            case "todo":
+                return "T";
+            case "d":
+            case "deadline":
+                return "D";
+            case "e":
+            case "event":
+                return "E";
+            default:
+                throw invalid(line, "unknown task type \"" + type + "\"");
+        }
+    }
+
+    private static boolean isDone(String done, long line) throws AsepException {
+        switch (done.toLowerCase(Locale.ROOT)) {
+            case "":
+            case "0":
+            case "false":
+            case "no":
+                return false;
+            case "1":
+            case "true":
+            case "yes":
+            case "x":
+            case "done":
+                return true;
+            default:
+                throw invalid(line, "the done flag \"" + done + "\" is not 1 or 0");
+        }
+    }
+
+    /**
+     * Trims a field and turns the line breaks in it into spaces, since a task is kept on one line.
+     */
+    private static String clean(String field) {
+        if (field == null) {
+            return "";
+        }
+        String trimmed = field.trim();
+        if (trimmed.indexOf('\n') == -1 && trimmed.indexOf('\r') == -1) {
+            return trimmed;
+        }
+        return String.join(" ", trimmed.split("\\s*[\\r\\n]+\\s*"));
+    }
+
+    private static AsepException invalid(long line, String reason) {
+        return new AsepException("Invalid record on line " + line + ": " + reason + ".");
+    }
+
+    private static void writeDoneFlag(Writer out, Task task) throws IOException {
+        out.write(task.isDone ? '1' : '0');
+    }
+
+    /**
+     * Reads the data file format, giving each task a new ID in the list it is imported into. The
+     * journal generation line that starts a journaled data file is skipped.
+     */
+    private static class TextReader extends TaskReader {
+        private final BufferedReader in;
+        private long lineNumber;
+
+        TextReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public Task next() throws IOException, AsepException {
+            String line;
+            do {
+                line = in.readLine();
+                if (line == null) {
+                    return null;
+                }
+                lineNumber++;
+            } while (line.isBlank() || lineNumber == 1 && Journal.parseGeneration(line) > 0);
+            Task task;
+            try {
+                task = Storage.parseTask(line);
+            } catch (AsepException e) {
+                throw invalid(lineNumber, "it is not in the \"type | done | description | ...\" format");
+            } catch (DateTimeParseException e) {
+                throw invalid(lineNumber, "the due date is not in yyyy-MM-dd format");
+            }
+            task.setId(0);
+            return task;
+        }
+    }
+
+    private static class TextWriter extends TaskWriter {
+        private final Writer out;
+
+        TextWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(Task task) throws IOException {
+            out.write(Storage.formatTask(task));
+            out.write(System.lineSeparator());
+        }
+    }
+
+    /**
+     * Reads comma-separated values whose first row names the columns. A quoted field may hold
+     * commas, doubled quotes and line breaks.
+     */
+    private static class CsvReader extends TaskReader {
+        private final BufferedReader in;
+        private final ArrayList<String> values = new ArrayList<>();
+        private final StringBuilder value = new StringBuilder();
+        private final String[] fields = new String[FIELD_COUNT];
+        private int[] columns;
+        private long lineNumber;
+        private long recordLine;
+
+        CsvReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public Task next() throws IOException, AsepException {
+            if (columns == null) {
+                readHeader();
+            }
+            if (!readRecord()) {
+                return null;
+            }
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                int column = columns[field];
+                fields[field] = column < values.size() ? values.get(column) : null;
+            }
+            return createTask(fields, recordLine);
+        }
+
+        /**
+         * Finds the column of each field from the names in the first row.
+         */
+        private void readHeader() throws IOException, AsepException {
+            columns = new int[FIELD_COUNT];
+            Arrays.fill(columns, Integer.MAX_VALUE);
+            if (!readRecord()) {
+                return;
+            }
+            String first = values.get(0);
+            if (first.startsWith(BYTE_ORDER_MARK)) {
+                values.set(0, first.substring(1));
+            }
+            for (int column = values.size() - 1; column >= 0; column--) {
+                int field = fieldOf(values.get(column));
+                if (field != -1) {
+                    columns[field] = column;
+                }
+            }
+            if (columns[DESCRIPTION] == Integer.MAX_VALUE) {
+                throw invalid(recordLine, "the header has no description column. Use a first row such as "
+                        + String.join(",", FIELD_NAMES));
+            }
+        }
+
+        /**
+         * Reads the fields of the next record that is not a blank line.
+         *
+         * @return false at the end of the file.
+         */
+        private boolean readRecord() throws IOException, AsepException {
+            String line;
+            do {
+                line = in.readLine();
+                if (line == null) {
+                    return false;
+                }
+                lineNumber++;
+            } while (line.isEmpty());
+            recordLine = lineNumber;
+            values.clear();
+            int i = 0;
+            while (true) {
+                if (i == line.length() || line.charAt(i) != '"') {
+                    // An unquoted field is taken from the line as it is.
+                    int comma = line.indexOf(',', i);
+                    int fieldEnd = comma == -1 ? line.length() : comma;
+                    values.add(line.substring(i, fieldEnd));
+                    if (comma == -1) {
+                        return true;
+                    }
+                    i = comma + 1;
+                    continue;
+                }
+                value.setLength(0);
+                i++;
+                while (true) {
+                    if (i == line.length()) {
+                        line = in.readLine();
+                        if (line == null) {
+                            throw invalid(recordLine, "a quoted field is not closed");
+                        }
+                        lineNumber++;
+                        value.append('\n');
+                        i = 0;
+                        continue;
+                    }
+                    char c = line.charAt(i++);
+                    if (c != '"') {
+                        value.append(c);
+                    } else if (i < line.length() && line.charAt(i) == '"') {
+                        value.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                // Anything between the closing quote and the next comma is kept as it is.
+                int comma = line.indexOf(',', i);
+                int fieldEnd = comma == -1 ? line.length() : comma;
+                value.append(line, i, fieldEnd);
+                values.add(value.toString());
+                if (comma == -1) {
+                    return true;
+                }
+                i = comma + 1;
+            }
+        }
+    }
+
+    private static class CsvWriter extends TaskWriter {
+        private final Writer out;
+
+        CsvWriter(Writer out) throws IOException {
+            this.out = out;
+            out.write(String.join(",", FIELD_NAMES));
+            out.write("\r\n");
+        }
+
+        @Override
+        public void write(Task task) throws IOException {
+            out.write(task.getType());
+            out.write(',');
+            writeDoneFlag(out, task);
+            out.write(',');
+            writeField(task.getDescription());
+            out.write(',');
+            if (task instanceof Deadline) {
+                out.write(((Deadline) task).getBy().format(Deadline.INPUT_DATE_FORMAT));
+            }
+            out.write(',');
+            if (task instanceof Event) {
+                writeField(((Event) task).getFrom());
+                out.write(',');
+                writeField(((Event) task).getTo());
+            } else {
+                out.write(',');
+            }
+            out.write("\r\n");
+        }
+
+        private void writeField(String field) throws IOException {
+            boolean needsQuotes = false;
+            for (int i = 0; i < field.length() && !needsQuotes; i++) {
+                char c = field.charAt(i);
+                needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!needsQuotes) {
+                out.write(field);
+                return;
+            }
+            out.write('"');
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                if (c == '"') {
+                    out.write('"');
+                }
+                out.write(c);
+            }
+            out.write('"');
+        }
+    }
+
+    /**
+     * Reads one flat JSON object per line. Values that are objects or arrays are skipped, and
+     * numbers are read as text.
+     */
+    private static class JsonLinesReader extends TaskReader {
+        private final BufferedReader in;
+        private final StringBuilder value = new StringBuilder();
+        private final String[] fields = new String[FIELD_COUNT];
+        private long lineNumber;
+        private String line;
+        private int position;
+
+        JsonLinesReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public Task next() throws IOException, AsepException {
+            do {
+                line = in.readLine();
+                if (line == null) {
+                    return null;
+                }
+                lineNumber++;
+            } while (line.isBlank());
+            Arrays.fill(fields, null);
+            position = lineNumber == 1 && line.startsWith(BYTE_ORDER_MARK) ? 1 : 0;
+            expect('{');
+            if (!skipIf('}')) {
+                do {
+                    skipSpaces();
+                    String name = readString();
+                    expect(':');
+                    String fieldValue = readValue();
+                    int field = fieldOf(name);
+                    if (field != -1) {
+                        fields[field] = fieldValue;
+                    }
+                } while (skipIf(','));
+                expect('}');
+            }
+            skipSpaces();
+            if (position != line.length()) {
+                throw invalid(lineNumber, "there is more than one JSON object on the line");
+            }
+            return createTask(fields, lineNumber);
+        }
+
+        /**
+         * Reads a value, returning null for null, objects and arrays.
+         */
+        private String readValue() throws AsepException {
+            skipSpaces();
+            if (position == line.length()) {
+                throw invalid(lineNumber, "a value is missing");
+            }
+            char c = line.charAt(position);
+            if (c == '"') {
+                return readString();
+            }
+            if (c == '{' || c == '[') {
+                skipComposite();
+                return null;
+            }
+            int start = position;
+            while (position < line.length() && ",}] \t".indexOf(line.charAt(position)) == -1) {
+                position++;
+            }
+            String literal = line.substring(start, position);
+            return literal.equals("null") ? null : literal;
+        }
+
+        private String readString() throws AsepException {
+            if (position == line.length() || line.charAt(position) != '"') {
+                throw invalid(lineNumber, "a JSON string was expected at column " + (position + 1));
+            }
+            position++;
+            value.setLength(0);
+            while (position < line.length()) {
+                char c = line.charAt(position++);
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                if (position == line.length()) {
+                    break;
+                }
+                char escaped = line.charAt(position++);
+                switch (escaped) {
+                    case 'b':
+                        value.append('\b');
+                        break;
+                    case 'f':
+                        value.append('\f');
+                        break;
+                    case 'n':
+                        value.append('\n');
+                        break;
+                    case 'r':
+                        value.append('\r');
+                        break;
+                    case 't':
+                        value.append('\t');
+                        break;
+                    case 'u':
+                        if (position + 4 > line.length()) {
+                            throw invalid(lineNumber, "a \\u escape is cut short");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(line.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw invalid(lineNumber, "a \\u escape is not followed by four hex digits");
+                        }
+                        position += 4;
+                        break;
+                    default:
+                        value.append(escaped);
+                        break;
+                }
+            }
+            throw invalid(lineNumber, "a JSON string is not closed");
+        }
+
+        private void skipComposite() throws AsepException {
+            int depth = 0;
+            do {
+                char c = line.charAt(position);
+                if (c == '"') {
+                    readString();
+                    continue;
+                }
+                if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+                position++;
+            } while (depth > 0 && position < line.length());
+            if (depth > 0) {
+                throw invalid(lineNumber, "a JSON object or array is not closed");
+            }
+        }
+
+        private void expect(char expected) throws AsepException {
+            if (!skipIf(expected)) {
+                throw invalid(lineNumber, "'" + expected + "' was expected at column " + (position + 1));
+            }
+        }
+
+        private boolean skipIf(char expected) {
+            skipSpaces();
+            if (position < line.length() && line.charAt(position) == expected) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private void skipSpaces() {
+            while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+                position++;
+            }
+        }
+    }
+
+    private static class JsonLinesWriter extends TaskWriter {
+        private final Writer out;
+
+        JsonLinesWriter(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(Task task) throws IOException {
+            out.write("{\"type\":\"");
+            out.write(task.getType());
+            out.write(task.isDone ? "\",\"done\":true" : "\",\"done\":false");
+            out.write(",\"description\":");
+            writeString(task.getDescription());
+            if (task instanceof Deadline) {
+                out.write(",\"by\":\"");
+                out.write(((Deadline) task).getBy().format(Deadline.INPUT_DATE_FORMAT));
+                out.write('"');
+            } else if (task instanceof Event) {
+                out.write(",\"from\":");
+                writeString(((Event) task).getFrom());
+                out.write(",\"to\":");
+                writeString(((Event) task).getTo());
+            }
+            out.write("}\n");
+        }
+
+        private void writeString(String text) throws IOException {
+            out.write('"');
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.write('\\');
+                    out.write(c);
+                } else if (c < 0x20) {
+                    out.write(String.format("\\u%04x", (int) c));
+                } else {
+                    out.write(c);
+                }
+            }
+            out.write('"');
+        }
+    }
+
+    /**
+     * Reads the VTODO and VEVENT components of an iCalendar file, unfolding long lines. Other
+     * components, and components nested in these such as alarms, are skipped.
+     */
+    private static class ICalendarReader extends TaskReader {
+        private final BufferedReader in;
+        private final StringBuilder unfolded = new StringBuilder();
+        private final String[] fields = new String[FIELD_COUNT];
+        private String nextLine;
+        private long lineNumber;
+        private long contentLine;
+        private boolean isStarted;
+        private String start;
+        private String end;
+
+        ICalendarReader(BufferedReader in) {
+            this.in = in;
+        }
+
+        @Override
+        public Task next() throws IOException, AsepException {
+            String component = null;
+            long componentLine = 0;
+            int depth = 0;
+            String line;
+            while ((line = readContentLine()) != null) {
+                int nameEnd = 0;
+                while (nameEnd < line.length() && line.charAt(nameEnd) != ';' && line.charAt(nameEnd) != ':') {
+                    nameEnd++;
+                }
+                String name = line.substring(0, nameEnd).toUpperCase(Locale.ROOT);
+                String value = valueOf(line, nameEnd);
+                if (name.equals("BEGIN")) {
+                    if (component != null) {
+                        depth++;
+                    } else if (value.equalsIgnoreCase("VTODO") || value.equalsIgnoreCase("VEVENT")) {
+                        component = value.toUpperCase(Locale.ROOT);
+                        componentLine = contentLine;
+                        depth = 1;
+                        Arrays.fill(fields, null);
+                        start = null;
+                        end = null;
+                    }
+                } else if (component != null && name.equals("END")) {
+                    if (--depth == 0) {
+                        return createComponentTask(component, componentLine);
+                    }
+                } else if (component != null && depth == 1) {
+                    readProperty(name, value);
+                }
+            }
+            if (component != null) {
+                throw invalid(componentLine, "BEGIN:" + component + " has no matching END");
+            }
+            return null;
+        }
+
+        private void readProperty(String name, String value) {
+            switch (name) {
+                case "SUMMARY":
+                    fields[DESCRIPTION] = unescape(value);
+                    break;
+                case "STATUS":
+                    if (value.equalsIgnoreCase("COMPLETED")) {
+                        fields[DONE] = "1";
+                    }
+                    break;
+                case "COMPLETED":
+                case "X-ASEP-DONE":
+                    fields[DONE] = "1";
+                    break;
+                case "DUE":
+                    fields[BY] = toDate(value);
+                    break;
+                case "DTSTART":
+                    start = toDateTime(value);
+                    break;
+                case "DTEND":
+                    end = toDateTime(value);
+                    break;
+                case "X-ASEP-FROM":
+                    fields[FROM] = unescape(value);
+                    break;
+                case "X-ASEP-TO":
+                    fields[TO] = unescape(value);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        private Task createComponentTask(String component, long line) throws AsepException {
+            if (component.equals("VEVENT")) {
+                fields[TYPE] = "E";
+                fields[BY] = null;
+                if (fields[FROM] == null) {
+                    fields[FROM] = start;
+                }
+                if (fields[TO] == null) {
+                    fields[TO] = end;
+                }
+            } else {
+                fields[TYPE] = fields[BY] == null ? "T" : "D";
+            }
+            return createTask(fields, line);
+        }
+
+        /**
+         * Returns the next line with the lines folded into it joined back on.
+         */
+        private String readContentLine() throws IOException {
+            if (!isStarted) {
+                isStarted = true;
+                nextLine = readLine();
+            }
+            while (nextLine != null && nextLine.isEmpty()) {
+                nextLine = readLine();
+            }
+            if (nextLine == null) {
+                return null;
+            }
+            contentLine = lineNumber;
+            String line = nextLine;
+            nextLine = readLine();
+            if (nextLine == null || !isFolded(nextLine)) {
+                return line;
+            }
+            unfolded.setLength(0);
+            unfolded.append(line);
+            while (nextLine != null && isFolded(nextLine)) {
+                unfolded.append(nextLine, 1, nextLine.length());
+                nextLine = readLine();
+            }
+            return unfolded.toString();
+        }
+
+        private String readLine() throws IOException {
+            String line = in.readLine();
+            if (line != null) {
+                lineNumber++;
+            }
+            return line;
+        }
+
+        private static boolean isFolded(String line) {
+            return !line.isEmpty() && (line.charAt(0) == ' ' || line.charAt(0) == '\t');
+        }
+
+        /**
+         * Returns the value of a content line, which follows the first colon that is not inside a
+         * quoted parameter value.
+         */
+        private static String valueOf(String line, int nameEnd) {
+            boolean isQuoted = false;
+            for (int i = nameEnd; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '"') {
+                    isQuoted = !isQuoted;
+                } else if (c == ':' && !isQuoted) {
+                    return line.substring(i + 1);
+                }
+            }
+            return "";
+        }
+
+        private static String unescape(String value) {
+            if (value.indexOf('\\') == -1) {
+                return value;
+            }
+            StringBuilder sb = new StringBuilder(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '\\' && i + 1 < value.length()) {
+                    char escaped = value.charAt(++i);
+                    sb.append(escaped == 'n' || escaped == 'N' ? '\n' : escaped);
+                } else {
+                    sb.append(c);
+                }
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Turns a DATE or DATE-TIME value such as "20250301" or "20250301T090000Z" into
+         * "2025-03-01", or returns it as it is if it is neither.
+         */
+        private static String toDate(String value) {
+            if (value.length() < 8 || !isDigits(value, 0, 8)) {
+                return value;
+            }
+            return value.substring(0, 4) + "-" + value.substring(4, 6) + "-" + value.substring(6, 8);
+        }
+
+        /**
+         * Turns a DATE or DATE-TIME value into an event time such as "2025-03-01" or
+         * "2025-03-01 0900". A time in UTC is taken as it is, without converting it.
+         */
+        private static String toDateTime(String value) {
+            String date = toDate(value);
+            if (value.length() < 13 || value.charAt(8) != 'T' || !isDigits(value, 9, 13)) {
+                return date;
+            }
+            return date + " " + value.substring(9, 13);
+        }
+
+        private static boolean isDigits(String value, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Writes an iCalendar file, folding content lines longer than 75 bytes as RFC 5545 requires.
+     */
+    private static class ICalendarWriter extends TaskWriter {
+        private static final int MAX_LINE_BYTES = 75;
+        private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+        private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+        private final Writer out;
+        private final String timestamp;
+        private int lineBytes;
+
+        ICalendarWriter(Writer out) throws IOException {
+            this.out = out;
+            this.timestamp = LocalDateTime.now(ZoneOffset.UTC).format(DATE_TIME_FORMAT) + "Z";
+            out.write("BEGIN:VCALENDAR\r\nVERSION:2.0\r\nPRODID:-//Asep//Asep Tasks//EN\r\n");
+        }
+
+        @Override
+        public void write(Task task) throws IOException {
+            String component = task instanceof Event ? "VEVENT" : "VTODO";
+            out.write("BEGIN:");
+            out.write(component);
+            out.write("\r\nUID:asep-");
+            out.write(Integer.toString(task.getId()));
+            out.write("\r\nDTSTAMP:");
+            out.write(timestamp);
+            out.write("\r\n");
+            writeText("SUMMARY:", task.getDescription());
+            if (task instanceof Event) {
+                Event event = (Event) task;
+                if (event.getStart() != null) {
+                    out.write("DTSTART:");
+                    out.write(event.getStart().format(DATE_TIME_FORMAT));
+                    out.write("\r\nDTEND:");
+                    out.write(event.getEnd().format(DATE_TIME_FORMAT));
+                    out.write("\r\n");
+                }
+                writeText("X-ASEP-FROM:", event.getFrom());
+                writeText("X-ASEP-TO:", event.getTo());
+                if (task.isDone) {
+                    out.write("X-ASEP-DONE:TRUE\r\n");
+                }
+            } else {
+                if (task instanceof Deadline) {
+                    out.write("DUE;VALUE=DATE:");
+                    out.write(((Deadline) task).getBy().format(DATE_FORMAT));
+                    out.write("\r\n");
+                }
+                out.write(task.isDone ? "STATUS:COMPLETED\r\n" : "STATUS:NEEDS-ACTION\r\n");
+            }
+            out.write("END:");
+            out.write(component);
+            out.write("\r\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.write("END:VCALENDAR\r\n");
+        }
+
+        /**
+         * Writes a property with a TEXT value, escaping it and folding the line where needed.
+         */
+        private void writeText(String nameAndColon, String value) throws IOException {
+            out.write(nameAndColon);
+            lineBytes = nameAndColon.length();
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '\\':
+                    case ';':
+                    case ',':
+                        writeFolded('\\', 1);
+                        writeFolded(c, 1);
+                        break;
+                    case '\n':
+                        writeFolded('\\', 1);
+                        writeFolded('n', 1);
+                        break;
+                    case '\r':
+                        break;
+                    default:
+                        if (Character.isHighSurrogate(c) && i + 1 < value.length()) {
+                            // Keep the pair together on one line.
+                            writeFolded(c, 4);
+                            out.write(value.charAt(++i));
+                        } else {
+                            writeFolded(c, c < 0x80 ? 1 : c < 0x800 ? 2 : 3);
+                        }
+                        break;
+                }
+            }
+            out.write("\r\n");
+        }
+
+        private void writeFolded(char c, int bytes) throws IOException {
+            if (lineBytes + bytes > MAX_LINE_BYTES) {
+                out.write("\r\n ");
+                lineBytes = 1;
+            }
+            out.write(c);
+            lineBytes += bytes;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads the pipe-delimited data file into tasks without going through regular expressions.
+ * <p>
+ * The file is memory-mapped and scanned byte by byte for newlines and " | " separators, and
+ * "yyyy-MM-dd" dates are decoded with a fixed-width digit parser. Large files are split into
+ * newline-aligned chunks that are parsed in parallel on the common ForkJoinPool and merged back
+ * in file order. Lines may start with a "#id" field holding the task ID, and a journaled file
+ * starts with a {@link Journal#GENERATION} line, which is skipped. Any line that does not
+ * have the usual shape is handed to {@link Storage#parseTask(String)}, so the result and error
+ * messages are the same as reading the file line by line.
+ * </p>
+ */
+public class TaskFileReader {
+    /** Files larger than this, in bytes, are parsed in parallel chunks. */
+    public static final long PARALLEL_THRESHOLD = 4L * 1024 * 1024;
+
+    private static final long MIN_CHUNK_SIZE = 1024 * 1024;
+    private static final long MAX_CHUNK_SIZE = 64L * 1024 * 1024;
+    private static final int MAX_FIELDS = 6;
+    private static final int MAX_ID_DIGITS = 9;
+    private static final byte[] GENERATION_PREFIX =
+            Journal.formatRecord(Journal.GENERATION, "").getBytes(StandardCharsets.US_ASCII);
+
+    private final MappedByteBuffer buffer;
+    private final boolean isFileStart;
+    private final int[] fieldStarts = new int[MAX_FIELDS];
+    private final int[] fieldEnds = new int[MAX_FIELDS];
+    private byte[] scratch = new byte[256];
+
+    private TaskFileReader(MappedByteBuffer buffer, boolean isFileStart) {
+        this.buffer = buffer;
+        this.isFileStart = isFileStart;
+    }
+
+    /**
+     * Reads all tasks from the given data file.
+     *
+     * @param path the path of the data file.
+     * @return the tasks in file order.
+     * @throws IOException   if the file cannot be read.
+     * @throws AsepException if a line of the file is corrupted.
+     */
+    public static ArrayList<Task> read(Path path) throws IOException, AsepException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size <= PARALLEL_THRESHOLD) {
+                return readChunk(channel, 0, size);
+            }
+            long chunkSize = Math.max(MIN_CHUNK_SIZE,
+                    Math.min(MAX_CHUNK_SIZE, size / Runtime.getRuntime().availableProcessors()));
+            ArrayList<ChunkTask> chunks = new ArrayList<>();
+            long start = 0;
+            while (start < size) {
+                long end = start + chunkSize >= size ? size : nextLineStart(channel, start + chunkSize, size);
+                ChunkTask chunk = new ChunkTask(channel, start, end);
+                chunk.fork();
+                chunks.add(chunk);
+                start = end;
+            }
+            ArrayList<ArrayList<Task>> results = new ArrayList<>(chunks.size());
+            int total = 0;
+            for (ChunkTask chunk : chunks) {
+                ArrayList<Task> result = chunk.join();
+                if (chunk.ioException != null) {
+                    throw chunk.ioException;
+                }
+                if (chunk.asepException != null) {
+                    throw chunk.asepException;
+                }
+                results.add(result);
+                total += result.size();
+            }
+            ArrayList<Task> tasks = new ArrayList<>(total);
+            for (ArrayList<Task> result : results) {
+                tasks.addAll(result);
+            }
+            return tasks;
+        }
+    }
+
+    /**
+     * Parses a "yyyy-MM-dd" date from the given bytes without creating intermediate objects.
+     *
+     * @return the date, or null if the bytes are not a valid fixed-width date.
+     */
+    static LocalDate parseDate(ByteBuffer buffer, int start, int end) {
+        if (end - start != 10 || buffer.get(start + 4) != '-' || buffer.get(start + 7) != '-') {
+            return null;
+        }
+        int year = parseDigits(buffer, start, start + 4);
+        int month = parseDigits(buffer, start + 5, start + 7);
+        int day = parseDigits(buffer, start + 8, start + 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1) {
+            return null;
+        }
+        if (day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    private static int parseDigits(ByteBuffer buffer, int start, int end) {
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static ArrayList<Task> readChunk(FileChannel channel, long start, long end)
+            throws IOException, AsepException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        return new TaskFileReader(buffer, start == 0).parseLines();
+    }
+
+    /**
+     * Returns the position just after the first newline at or after the given position.
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(8192);
+        while (position < size) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (window.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private ArrayList<Task> parseLines() throws AsepException {
+        ArrayList<Task> tasks = new ArrayList<>();
+        int limit = buffer.limit();
+        int lineStart = 0;
+        while (lineStart < limit) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int contentEnd = lineEnd;
+            if (contentEnd > lineStart && buffer.get(contentEnd - 1) == '\r') {
+                contentEnd--;
+            }
+            if (lineStart > 0 || !isFileStart || !isGenerationLine(contentEnd)) {
+                tasks.add(parseLine(lineStart, contentEnd));
+            }
+            lineStart = lineEnd + 1;
+        }
+        return tasks;
+    }
+
+    private boolean isGenerationLine(int end) {
+        if (end < GENERATION_PREFIX.length) {
+            return false;
+        }
+        for (int i = 0; i < GENERATION_PREFIX.length; i++) {
+            if (buffer.get(i) != GENERATION_PREFIX[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Task parseLine(int start, int end) throws AsepException {
+        int fieldCount = splitFields(start, end);
+        int id = 0;
+        int type = 0;
+        if (fieldCount > 0 && buffer.get(fieldStarts[0]) == '#') {
+            int idLength = fieldEnds[0] - fieldStarts[0] - 1;
+            id = idLength > 0 && idLength <= MAX_ID_DIGITS
+                    ? parseDigits(buffer, fieldStarts[0] + 1, fieldEnds[0])
+                    : -1;
+            type = 1;
+        }
+        int typeFieldCount = fieldCount - type;
+        Task task = null;
+        if (id >= 0 && typeFieldCount >= 3 && fieldEnds[type] - fieldStarts[type] == 1) {
+            switch (buffer.get(fieldStarts[type])) {
+                case 'T':
+                    if (typeFieldCount == 3) {
+                        task = new Todo(decode(type + 2));
+                    }
+                    break;
+                case 'D':
+                    LocalDate by = typeFieldCount == 4
+                            ? parseDate(buffer, fieldStarts[type + 3], fieldEnds[type + 3])
+                            : null;
+                    if (by != null) {
+                        task = new Deadline(decode(type + 2), by);
+                    }
+                    break;
+                case 'E':
+                    if (typeFieldCount == 5) {
+                        task = new Event(decode(type + 2), decode(type + 3), decode(type + 4));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (task == null || (type == 1 && id == 0)) {
+            // Unusual or corrupted line: let the line-based parser decide.
+            return Storage.parseTask(decode(start, end));
+        }
+        if (fieldEnds[type + 1] - fieldStarts[type + 1] == 1 && buffer.get(fieldStarts[type + 1]) == '1') {
+            task.markAsDone();
+        }
+        task.setId(id);
+        return task;
+    }
+
+    /**
+     * Records the bounds of the " | " separated fields of a line.
+     *
+     * @return the number of fields, or -1 if the line has more fields than expected or an empty field.
+     */
+    private int splitFields(int start, int end) {
+        int count = 0;
+        int fieldStart = start;
+        int i = start;
+        while (i + 2 < end) {
+            if (buffer.get(i) == ' ' && buffer.get(i + 1) == '|' && buffer.get(i + 2) == ' ') {
+                if (count == MAX_FIELDS - 1 || i == fieldStart) {
+                    return -1;
+                }
+                fieldStarts[count] = fieldStart;
+                fieldEnds[count] = i;
+                count++;
+                i += 3;
+                fieldStart = i;
+            } else {
+                i++;
+            }
+        }
+        if (fieldStart == end) {
+            return -1;
+        }
+        fieldStarts[count] = fieldStart;
+        fieldEnds[count] = end;
+        return count + 1;
+    }
+
+    private String decode(int field) {
+        return decode(fieldStarts[field], fieldEnds[field]);
+    }
+
+    private String decode(int start, int end) {
+        int length = end - start;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses one newline-aligned chunk of the file on the ForkJoinPool.
+     */
+    private static class ChunkTask extends RecursiveTask<ArrayList<Task>> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private IOException ioException;
+        private AsepException asepException;
+
+        ChunkTask(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected ArrayList<Task> compute() {
+            try {
+                return readChunk(channel, start, end);
+            } catch (IOException e) {
+                ioException = e;
+            } catch (AsepException e) {
+                asepException = e;
+            } catch (DateTimeParseException e) {
+                // Keeps the message the same as when the file is read on a single thread.
+                asepException = new AsepException(e.getMessage());
+            }
+            return new ArrayList<>();
+        }
+    }
+}
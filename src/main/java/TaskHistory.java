@@ -0,0 +1,98 @@
+import java.util.ArrayDeque;
+
+/**
+ * Represents the undo and redo history of one task list.
+ * <p>
+ * Each step of the history is the {@link PersistentTaskList} version the list had before a
+ * command changed it. Versions share everything but the changed parts with each other, so a step
+ * costs memory in proportion to what its command changed, however long the list is. Only the
+ * most recent steps are kept. Undoing a step restores the version it holds, and keeps the version
+ * it replaced so that the step can be redone until the next change is made.
+ * </p>
+ * <p>
+ * The methods may be called from several threads at once.
+ * </p>
+ */
+public class TaskHistory {
+    /** The number of changes that can be undone when no other limit is given. */
+    public static final int DEFAULT_MAX_STEPS = 100;
+
+    private final int maxSteps;
+    private final ArrayDeque<PersistentTaskList> undoSteps = new ArrayDeque<>();
+    private final ArrayDeque<PersistentTaskList> redoSteps = new ArrayDeque<>();
+
+    /**
+     * Constructs a TaskHistory that keeps the default number of steps.
+     */
+    public TaskHistory() {
+        this(DEFAULT_MAX_STEPS);
+    }
+
+    /**
+     * Constructs a TaskHistory that keeps at most the given number of steps.
+     *
+     * @param maxSteps the number of changes that can be undone.
+     */
+    public TaskHistory(int maxSteps) {
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Records a change, which can then be undone.
+     * <p>
+     * Nothing is recorded if the versions are the same, as for commands that change nothing.
+     * Recording a change forgets the steps that could be redone.
+     * </p>
+     *
+     * @param before the version of the list before the change.
+     * @param after  the version of the list after the change.
+     */
+    public synchronized void record(PersistentTaskList before, PersistentTaskList after) {
+        if (before == after || before == null || maxSteps < 1) {
+            return;
+        }
+        undoSteps.push(before);
+        if (undoSteps.size() > maxSteps) {
+            undoSteps.removeLast();
+        }
+        redoSteps.clear();
+    }
+
+    /**
+     * Changes the list back to how it was before the last change that was not undone yet.
+     *
+     * @param tasks   the task list, which must track versions.
+     * @param storage the storage that persists the list.
+     * @return the changes that were made to the list.
+     * @throws AsepException if there is nothing to undo, or the changes could not be saved.
+     */
+    public synchronized PersistentTaskList.Difference undo(TaskList tasks, Storage storage) throws AsepException {
+        if (undoSteps.isEmpty()) {
+            throw new AsepException("There is nothing to undo.");
+        }
+        return move(undoSteps, redoSteps, tasks, storage);
+    }
+
+    /**
+     * Makes the last undone change again.
+     *
+     * @param tasks   the task list, which must track versions.
+     * @param storage the storage that persists the list.
+     * @return the changes that were made to the list.
+     * @throws AsepException if there is nothing to redo, or the changes could not be saved.
+     */
+    public synchronized PersistentTaskList.Difference redo(TaskList tasks, Storage storage) throws AsepException {
+        if (redoSteps.isEmpty()) {
+            throw new AsepException("There is nothing to redo.");
+        }
+        return move(redoSteps, undoSteps, tasks, storage);
+    }
+
+    private PersistentTaskList.Difference move(ArrayDeque<PersistentTaskList> from, ArrayDeque<PersistentTaskList> to,
+            TaskList tasks, Storage storage) throws AsepException {
+        to.push(tasks.getVersion());
+        PersistentTaskList.Difference difference = tasks.restore(from.pop());
+        storage.recordRestore(tasks, difference);
+        return difference;
+    }
+}
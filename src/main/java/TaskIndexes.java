@@ -0,0 +1,303 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Represents the indexes of a {@link TaskList}: a hash index from ID to task, a
+ * {@link TokenIndex} over the task descriptions, a {@link DeadlineIndex} over the due dates, an
+ * {@link EventIndex} over the event times and a {@link SortedTaskIndex} for each order the list is
+ * shown in.
+ * <p>
+ * Each index is built from the tasks of the list on the first lookup that needs it, and from then
+ * on kept up to date as tasks are added, removed and marked, so a list that is never searched
+ * does not pay for it. Changes must be made under the write lock of the list and lookups under
+ * its read lock. Building an index is synchronized, since two lookups may need it at once.
+ * </p>
+ * <p>
+ * The token index costs the most to build, several seconds for a million tasks with many
+ * distinct words, which a keyword query must not wait for while holding the read lock. It is
+ * therefore built on a background thread from a snapshot of the list, while the tasks added and
+ * removed meanwhile are noted down. Once built, it catches up on those changes and is put in
+ * place under the write lock. Until then, keyword queries scan the list, which costs no more than
+ * a query did before the index existed.
+ * </p>
+ */
+public class TaskIndexes {
+    private final Lock writeLock;
+    private HashMap<Integer, Task> idIndex;
+    private TokenIndex tokenIndex;
+    private ArrayList<TokenChange> tokenChanges;
+    private DeadlineIndex deadlineIndex;
+    private EventIndex eventIndex;
+    private final SortedTaskIndex[] sortedIndexes = new SortedTaskIndex[SortedTaskIndex.Order.values().length];
+
+    /**
+     * Represents a task added to or removed from the list while the token index was being built.
+     */
+    private static class TokenChange {
+        private final Task task;
+        private final boolean isAdded;
+
+        TokenChange(Task task, boolean isAdded) {
+            this.task = task;
+            this.isAdded = isAdded;
+        }
+    }
+
+    /**
+     * Constructs the indexes of a list, none of which are built yet.
+     *
+     * @param writeLock the write lock of the list, under which an index built in the background is
+     *                  put in place.
+     */
+    public TaskIndexes(Lock writeLock) {
+        this.writeLock = writeLock;
+    }
+
+    /**
+     * Adds a task that joins the end of the list to every index built so far.
+     *
+     * @param task the task.
+     */
+    public void add(Task task) {
+        if (idIndex != null) {
+            idIndex.put(task.getId(), task);
+        }
+        if (tokenIndex != null) {
+            tokenIndex.add(task);
+        } else if (tokenChanges != null) {
+            tokenChanges.add(new TokenChange(task, true));
+        }
+        if (deadlineIndex != null) {
+            deadlineIndex.add(task);
+        }
+        if (eventIndex != null) {
+            eventIndex.add(task);
+        }
+        for (SortedTaskIndex index : sortedIndexes) {
+            if (index != null) {
+                index.add(task);
+            }
+        }
+    }
+
+    /**
+     * Adds tasks that are put back between other tasks of the list to every index built so far.
+     * <p>
+     * The token index hands out tasks in the order they were added, so it is dropped instead, as
+     * is any token index being built, and built again when next needed.
+     * </p>
+     *
+     * @param tasks the tasks.
+     */
+    public void insertAll(List<Task> tasks) {
+        tokenIndex = null;
+        tokenChanges = null;
+        for (Task task : tasks) {
+            add(task);
+        }
+    }
+
+    /**
+     * Removes a task from every index built so far.
+     *
+     * @param task the task.
+     */
+    public void remove(Task task) {
+        if (idIndex != null) {
+            idIndex.remove(task.getId());
+        }
+        if (tokenIndex != null) {
+            tokenIndex.remove(task);
+        } else if (tokenChanges != null) {
+            tokenChanges.add(new TokenChange(task, false));
+        }
+        if (deadlineIndex != null) {
+            deadlineIndex.remove(task);
+        }
+        if (eventIndex != null) {
+            eventIndex.remove(task);
+        }
+        for (SortedTaskIndex index : sortedIndexes) {
+            if (index != null) {
+                index.remove(task);
+            }
+        }
+    }
+
+    /**
+     * Updates the indexes that depend on the status of a task after it was marked or unmarked.
+     *
+     * @param task the task.
+     */
+    public void updateStatus(Task task) {
+        if (deadlineIndex != null) {
+            deadlineIndex.updateStatus(task);
+        }
+        for (SortedTaskIndex index : sortedIndexes) {
+            if (index != null) {
+                index.updateStatus(task);
+            }
+        }
+    }
+
+    /**
+     * Drops every index, so that they no longer hold on to the tasks. They are built again when
+     * next needed.
+     */
+    public synchronized void clear() {
+        idIndex = null;
+        tokenIndex = null;
+        tokenChanges = null;
+        deadlineIndex = null;
+        eventIndex = null;
+        Arrays.fill(sortedIndexes, null);
+    }
+
+    /**
+     * Returns the hash index from ID to task, building it if needed.
+     *
+     * @param tasks the tasks of the list, in list order.
+     * @return the index.
+     */
+    public synchronized HashMap<Integer, Task> getIdIndex(List<Task> tasks) {
+        if (idIndex == null) {
+            HashMap<Integer, Task> index = new HashMap<>(Math.max(16, tasks.size() * 4 / 3 + 1));
+            for (Task task : tasks) {
+                index.put(task.getId(), task);
+            }
+            idIndex = index;
+        }
+        return idIndex;
+    }
+
+    /**
+     * Returns the token index, building it if needed. A token index being built in the background
+     * is not waited for, and is dropped once it is done.
+     *
+     * @param tasks the tasks of the list, in list order.
+     * @return the index.
+     */
+    public synchronized TokenIndex getTokenIndex(List<Task> tasks) {
+        if (tokenIndex == null) {
+            TokenIndex index = new TokenIndex();
+            for (Task task : tasks) {
+                index.add(task);
+            }
+            tokenIndex = index;
+            tokenChanges = null;
+        }
+        return tokenIndex;
+    }
+
+    /**
+     * Returns the token index if it is built, and otherwise starts building it in the background
+     * unless that has already been started.
+     *
+     * @param tasks the tasks of the list, in list order, which must not change while they are
+     *              indexed.
+     * @return the index, or null if it is not built yet.
+     */
+    public synchronized TokenIndex findTokenIndex(List<Task> tasks) {
+        if (tokenIndex == null && tokenChanges == null) {
+            ArrayList<TokenChange> changes = new ArrayList<>();
+            tokenChanges = changes;
+            Thread thread = new Thread(() -> buildTokenIndex(tasks, changes), "asep-indexer");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return tokenIndex;
+    }
+
+    /**
+     * Builds the token index on the background thread and puts it in place, unless it was
+     * dropped or built by a lookup meanwhile. If the tasks cannot be read, the changes are no
+     * longer noted down, and the next lookup tries again.
+     */
+    private void buildTokenIndex(List<Task> tasks, ArrayList<TokenChange> changes) {
+        TokenIndex index = new TokenIndex();
+        try {
+            for (Task task : tasks) {
+                index.add(task);
+            }
+        } catch (RuntimeException e) {
+            index = null;
+        }
+        writeLock.lock();
+        try {
+            synchronized (this) {
+                if (tokenChanges != changes) {
+                    return;
+                }
+                tokenChanges = null;
+                if (index == null) {
+                    return;
+                }
+                for (TokenChange change : changes) {
+                    if (change.isAdded) {
+                        index.add(change.task);
+                    } else {
+                        index.remove(change.task);
+                    }
+                }
+                tokenIndex = index;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the deadline index, building it if needed.
+     *
+     * @param tasks the tasks of the list, in list order.
+     * @return the index.
+     */
+    public synchronized DeadlineIndex getDeadlineIndex(List<Task> tasks) {
+        if (deadlineIndex == null) {
+            DeadlineIndex index = new DeadlineIndex();
+            for (Task task : tasks) {
+                index.add(task);
+            }
+            deadlineIndex = index;
+        }
+        return deadlineIndex;
+    }
+
+    /**
+     * Returns the event index, building it if needed.
+     *
+     * @param tasks the tasks of the list, in list order.
+     * @return the index.
+     */
+    public synchronized EventIndex getEventIndex(List<Task> tasks) {
+        if (eventIndex == null) {
+            EventIndex index = new EventIndex();
+            for (Task task : tasks) {
+                index.add(task);
+            }
+            eventIndex = index;
+        }
+        return eventIndex;
+    }
+
+    /**
+     * Returns the sorted index for an order, building it if needed.
+     *
+     * @param order the order.
+     * @param tasks the tasks of the list, in list order.
+     * @return the index.
+     */
+    public synchronized SortedTaskIndex getSortedIndex(SortedTaskIndex.Order order, List<Task> tasks) {
+        if (sortedIndexes[order.ordinal()] == null) {
+            SortedTaskIndex index = new SortedTaskIndex(order);
+            for (Task task : tasks) {
+                index.add(task);
+            }
+            sortedIndexes[order.ordinal()] = index;
+        }
+        return sortedIndexes[order.ordinal()];
+    }
+}
@@ -1,20 +1,83 @@
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
 
 /**
  * Represents a list of tasks.
  * <p>
- * This class encapsulates an ArrayList of Task objects and provides methods to add, remove,
- * retrieve, and check tasks within the list.
+ * This class encapsulates an array of Task objects and provides methods to add, remove,
+ * retrieve, and check tasks within the list. Its {@link TaskIndexes} are built on the first query
+ * that needs them and kept up to date as tasks are added, removed, and marked.
+ * </p>
+ * <p>
+ * Every task is given a stable ID when it joins the list. IDs are handed out in increasing order
+ * and are never reused, and a hash index from ID to task makes lookups by ID constant time.
+ * </p>
+ * <p>
+ * A TaskList is thread-safe. Changes run one at a time under a write lock, so each of them,
+ * including the bulk ones, takes effect at a single point in time. The tasks themselves are
+ * published as immutable snapshots: {@link #getTasks()}, {@link #get(int)} and {@link #size()}
+ * read the latest snapshot without any locking, so listing, scanning and saving never wait for,
+ * or hold up, a change. Adding a task appends to the shared array past the end of the published
+ * snapshots and then publishes a longer one. Removing tasks from the end of the list only
+ * publishes a shorter snapshot of the same array. Any other removal shifts the tasks after it,
+ * in place if no published snapshot reaches that far into the array, and otherwise on a copy of
+ * the array that the list moves on to. The same goes for adding a task at a position that a
+ * published snapshot still holds another task at, after tasks were removed from the end. Marking
+ * a task changes it in place, so a snapshot always holds the same tasks in the same order, but
+ * shows their latest status. Queries that use an index hold a read lock only while they look it
+ * up.
+ * </p>
+ * <p>
+ * A TaskList can also be backed by the {@link TaskSegments} of a data file, so that it is ready
+ * without decoding any task. Its tasks are then decoded a segment at a time when they are first
+ * read, while new tasks are kept in the array after them. The first removal, which has to shift
+ * the positions of the tasks after it, decodes all remaining segments and leaves the file behind.
+ * </p>
+ * <p>
+ * After {@link #packIntoColumns()}, the tasks are kept in {@link TaskColumns} instead, which take
+ * several times less memory, and Task objects are only created for the tasks that are read.
+ * Positions then map to slots of the columns, and removing tasks only copies that mapping.
+ * Lookups by ID search the columns instead of building a hash index.
+ * </p>
+ * <p>
+ * Once {@link #trackVersions()} has been called, the list also keeps a {@link PersistentTaskList}
+ * version of itself up to date, so that every state it passes through can be kept cheaply and
+ * returned to with {@link #restore(PersistentTaskList)}.
  * </p>
  */
 public class TaskList {
-    private ArrayList<Task> tasks;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int INDEX_SELECTIVITY = 16;
+    private static final int PARALLEL_SCAN_SIZE = 65536;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Task[] array;
+    private volatile Snapshot snapshot;
+    private int publishedEnd;
+    private final TaskIndexes taskIndexes = new TaskIndexes(lock.writeLock());
+    private volatile int nextId;
+    private volatile PersistentTaskList version;
+    private TaskColumns columns;
+    private int[] slots;
 
     /**
      * Constructs an empty TaskList.
      */
     public TaskList() {
-        this.tasks = new ArrayList<>();
+        this(new ArrayList<>());
     }
 
     /**
@@ -23,16 +86,203 @@ public class TaskList {
      * @param tasks the ArrayList of Task objects to initialize the TaskList.
      */
     public TaskList(ArrayList<Task> tasks) {
-        this.tasks = tasks;
+        this(tasks, 1);
+    }
+
+    /**
+     * Constructs a TaskList with the given list of tasks and the next ID to hand out.
+     * <p>
+     * Tasks that do not have an ID yet are given one, in list order.
+     * </p>
+     *
+     * @param tasks  the ArrayList of Task objects to initialize the TaskList.
+     * @param nextId the lowest ID that may be given to a new task.
+     */
+    public TaskList(ArrayList<Task> tasks, int nextId) {
+        int id = nextId;
+        for (Task task : tasks) {
+            id = Math.max(id, task.getId() + 1);
+        }
+        for (Task task : tasks) {
+            if (task.getId() == 0) {
+                task.setId(id++);
+            }
+        }
+        this.nextId = id;
+        this.array = tasks.toArray(new Task[Math.max(INITIAL_CAPACITY, tasks.size())]);
+        this.snapshot = new Snapshot(array, tasks.size(), null);
+        this.publishedEnd = tasks.size();
+    }
+
+    /**
+     * Constructs a TaskList backed by the segments of a data file, without decoding any task.
+     *
+     * @param segments the segments holding the tasks, all of which have IDs.
+     * @param nextId   the lowest ID that may be given to a new task.
+     */
+    public TaskList(TaskSegments segments, int nextId) {
+        this.nextId = nextId;
+        this.array = new Task[INITIAL_CAPACITY];
+        this.snapshot = new Snapshot(array, segments.getTaskCount(), segments);
     }
 
     /**
-     * Adds a task to the task list.
+     * Returns the segments behind a snapshot returned by {@link #getTasks()}, if its tasks still
+     * have the same positions as in the data file.
+     *
+     * @param tasks the tasks, which may be any list.
+     * @return the segments, or null if the tasks are not backed by a data file.
+     */
+    static TaskSegments getSegments(List<Task> tasks) {
+        return tasks instanceof Snapshot ? ((Snapshot) tasks).segments : null;
+    }
+
+    /**
+     * Adds a task to the task list, giving it an ID if it does not have one yet.
      *
      * @param task the Task object to be added.
      */
     public void add(Task task) {
-        tasks.add(task);
+        lock.writeLock().lock();
+        try {
+            append(task, snapshot.size);
+            publish(snapshot.size + 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds tasks to the end of the task list, giving an ID to each that does not have one yet.
+     * <p>
+     * The tasks are added as one change: a single snapshot holding all of them is published at
+     * the end, so readers see either none of them or all of them.
+     * </p>
+     *
+     * @param tasks the tasks to add, in order.
+     */
+    public void addAll(List<? extends Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int size = snapshot.size;
+            for (Task task : tasks) {
+                append(task, size++);
+            }
+            publish(size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Puts a task at the given position, which is past the end of the published snapshot, and
+     * adds it to the indexes. The task is not visible to readers until {@link #publish(int)}.
+     */
+    private void append(Task task, int position) {
+        if (task.getId() == 0) {
+            task.setId(nextId++);
+        } else {
+            nextId = Math.max(nextId, task.getId() + 1);
+        }
+        if (columns != null) {
+            int slot = columns.add(task);
+            if (slots != null) {
+                // Published snapshots keep the old slots; only this list moves on to the new ones.
+                if (position == slots.length) {
+                    slots = Arrays.copyOf(slots, position * 2);
+                    publishedEnd = 0;
+                } else if (position < publishedEnd) {
+                    slots = slots.clone();
+                    publishedEnd = 0;
+                }
+                slots[position] = slot;
+            }
+        } else {
+            int arrayPosition = position - snapshot.base;
+            // Published snapshots keep the old array; only this list moves on to the new one.
+            if (arrayPosition == array.length) {
+                array = Arrays.copyOf(array, arrayPosition * 2);
+                publishedEnd = 0;
+            } else if (arrayPosition < publishedEnd) {
+                array = array.clone();
+                publishedEnd = 0;
+            }
+            array[arrayPosition] = task;
+        }
+        if (version != null) {
+            version = version.add(task);
+        }
+        taskIndexes.add(task);
+    }
+
+    /**
+     * Publishes a snapshot of the given size of the array, or of the slots of a list packed into
+     * columns, and notes how far published snapshots reach into them.
+     */
+    private void publish(int size) {
+        Snapshot current = snapshot;
+        snapshot = columns != null
+                ? new Snapshot(columns, slots, size)
+                : new Snapshot(array, size, current.segments);
+        publishedEnd = Math.max(publishedEnd, size - snapshot.base);
+    }
+
+    /**
+     * Returns the array to write the given position and the ones after it in: the array of this
+     * list if no published snapshot reaches that position, or else a new one that holds the same
+     * tasks before it, which this list moves on to while the published snapshots keep the old one.
+     */
+    private Task[] arrayFrom(int arrayPosition) {
+        if (arrayPosition >= publishedEnd) {
+            return array;
+        }
+        Task[] copy = new Task[array.length];
+        System.arraycopy(array, 0, copy, 0, arrayPosition);
+        array = copy;
+        publishedEnd = 0;
+        return copy;
+    }
+
+    /**
+     * Returns the slots to write the given position and the ones after it in, as
+     * {@link #arrayFrom(int)} does for the array.
+     */
+    private int[] slotsFrom(int position) {
+        if (position >= publishedEnd) {
+            return slots;
+        }
+        int[] copy = new int[slots.length];
+        System.arraycopy(slots, 0, copy, 0, position);
+        slots = copy;
+        publishedEnd = 0;
+        return copy;
+    }
+
+    /**
+     * Gives a list packed into columns its own slots, if every task is still in the slot of its
+     * position, so that positions can shift.
+     */
+    private void ensureSlots(int size) {
+        if (slots == null) {
+            slots = new int[Math.max(INITIAL_CAPACITY, size + size / 2)];
+            for (int i = 0; i < size; i++) {
+                slots[i] = i;
+            }
+            publishedEnd = 0;
+        }
+    }
+
+    /**
+     * Clears the positions of the array that no published snapshot reaches, so that removed
+     * tasks are not kept alive by it.
+     */
+    private void release(int fromArrayPosition, int toArrayPosition) {
+        for (int i = Math.max(fromArrayPosition, publishedEnd); i < toArrayPosition; i++) {
+            array[i] = null;
+        }
     }
 
     /**
@@ -42,7 +292,474 @@ public class TaskList {
      * @return the Task object that was removed.
      */
     public Task remove(int index) {
-        return tasks.remove(index);
+        lock.writeLock().lock();
+        try {
+            if (index < snapshot.base) {
+                decodeAll();
+            }
+            int size = snapshot.size;
+            Task task = snapshot.get(index);
+            if (columns != null) {
+                ensureSlots(size);
+                int[] source = slots;
+                if (index < size - 1) {
+                    System.arraycopy(source, index + 1, slotsFrom(index), index, size - index - 1);
+                }
+            } else {
+                Task[] source = array;
+                int position = index - snapshot.base;
+                int end = size - snapshot.base;
+                if (position < end - 1) {
+                    System.arraycopy(source, position + 1, arrayFrom(position), position, end - position - 1);
+                }
+                release(end - 1, end);
+            }
+            publish(size - 1);
+            if (version != null) {
+                version = version.remove(index, index + 1);
+            }
+            taskIndexes.remove(task);
+            return task;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the task at the specified index as done.
+     *
+     * @param index the index of the task to mark.
+     * @return the Task object that was marked.
+     */
+    public Task markAsDone(int index) {
+        lock.writeLock().lock();
+        try {
+            Task task = snapshot.get(index);
+            setDone(index, task, true);
+            return task;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the given task, which must be in this list, as done.
+     *
+     * @param task the task to mark.
+     */
+    public void markAsDone(Task task) {
+        lock.writeLock().lock();
+        try {
+            setDone(version == null && columns == null ? -1 : positionOf(task), task, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the task at the specified index as not done.
+     *
+     * @param index the index of the task to unmark.
+     * @return the Task object that was unmarked.
+     */
+    public Task markAsNotDone(int index) {
+        lock.writeLock().lock();
+        try {
+            Task task = snapshot.get(index);
+            setDone(index, task, false);
+            return task;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the given task, which must be in this list, as not done.
+     *
+     * @param task the task to unmark.
+     */
+    public void markAsNotDone(Task task) {
+        lock.writeLock().lock();
+        try {
+            setDone(version == null && columns == null ? -1 : positionOf(task), task, false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the tasks at the specified indexes as done.
+     *
+     * @param indexes the indexes of the tasks to mark.
+     * @return the tasks at the indexes, including those that were already done, in list order.
+     */
+    public ArrayList<Task> markAsDone(BitSet indexes) {
+        lock.writeLock().lock();
+        try {
+            return setDone(indexes, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the tasks at the specified indexes as not done.
+     *
+     * @param indexes the indexes of the tasks to unmark.
+     * @return the tasks at the indexes, including those that were not done, in list order.
+     */
+    public ArrayList<Task> markAsNotDone(BitSet indexes) {
+        lock.writeLock().lock();
+        try {
+            return setDone(indexes, false);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the tasks at the specified indexes from the task list.
+     * <p>
+     * The remaining tasks after the first removed one are moved up in a single pass, so removing
+     * many tasks costs no more than one pass over the list, and removing tasks from the end costs
+     * nothing for the tasks before them.
+     * </p>
+     *
+     * @param indexes the indexes of the tasks to remove.
+     * @return the tasks that were removed, in list order.
+     */
+    public ArrayList<Task> removeAll(BitSet indexes) {
+        lock.writeLock().lock();
+        try {
+            int first = indexes.nextSetBit(0);
+            ArrayList<Task> removed = new ArrayList<>(indexes.cardinality());
+            if (first < 0) {
+                return removed;
+            }
+            if (first < snapshot.base) {
+                decodeAll();
+            }
+            Snapshot current = snapshot;
+            int size = current.size;
+            // Removing only tasks at the end shifts nothing, so the array can stay as it is.
+            boolean isTail = indexes.nextClearBit(first) >= size;
+            int kept = first;
+            if (columns != null) {
+                ensureSlots(size);
+                int[] source = slots;
+                int[] target = isTail ? source : slotsFrom(first);
+                for (int i = first; i < size; i++) {
+                    if (!indexes.get(i)) {
+                        target[kept++] = source[i];
+                        continue;
+                    }
+                    Task task = current.get(i);
+                    removed.add(task);
+                    taskIndexes.remove(task);
+                }
+            } else {
+                int base = current.base;
+                Task[] source = array;
+                Task[] target = isTail ? source : arrayFrom(first - base);
+                for (int i = first; i < size; i++) {
+                    Task task = source[i - base];
+                    if (!indexes.get(i)) {
+                        target[kept++ - base] = task;
+                        continue;
+                    }
+                    removed.add(task);
+                    taskIndexes.remove(task);
+                }
+                release(kept - base, size - base);
+            }
+            publish(kept);
+            if (version != null) {
+                // Remove runs from the back, so that the positions of the runs before stay valid.
+                for (int to = indexes.previousSetBit(size - 1); to >= 0; ) {
+                    int from = indexes.previousClearBit(to) + 1;
+                    version = version.remove(from, to + 1);
+                    to = from == 0 ? -1 : indexes.previousSetBit(from - 1);
+                }
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts tasks that already have IDs at the given positions.
+     * <p>
+     * The list is copied once, however many tasks are inserted. This puts back tasks that were
+     * removed, so the positions must be ascending and each position is the one the task has
+     * once all of them are inserted.
+     * </p>
+     *
+     * @param indexes the positions of the tasks after the insertion, in ascending order.
+     * @param tasks   the tasks to insert, in the same order.
+     */
+    public void insertAll(int[] indexes, List<Task> tasks) {
+        if (tasks.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            decodeAll();
+            int size = snapshot.size + tasks.size();
+            if (columns != null) {
+                int[] merged = new int[size + size / 2];
+                int next = 0;
+                int kept = 0;
+                for (int i = 0; i < size; i++) {
+                    merged[i] = next < indexes.length && indexes[next] == i
+                            ? slotOf(tasks.get(next++)) : slotAt(kept++);
+                }
+                slots = merged;
+            } else {
+                Task[] merged = new Task[Math.max(array.length, size + size / 2)];
+                int next = 0;
+                int kept = 0;
+                for (int i = 0; i < size; i++) {
+                    if (next < indexes.length && indexes[next] == i) {
+                        merged[i] = tasks.get(next++);
+                    } else {
+                        merged[i] = array[kept++];
+                    }
+                }
+                array = merged;
+            }
+            publishedEnd = 0;
+            publish(size);
+            for (int i = 0; i < indexes.length; i++) {
+                Task task = tasks.get(i);
+                nextId = Math.max(nextId, task.getId() + 1);
+                if (version != null) {
+                    version = version.insert(indexes[i], task);
+                }
+            }
+            taskIndexes.insertAll(tasks);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the tasks into {@link TaskColumns}, so that they no longer take up memory as Task
+     * objects while they are not used.
+     * <p>
+     * Tasks still in a data file are decoded once to be packed. The indexes built so far are
+     * dropped, since they hold on to the tasks, and are built again when next needed. Must be
+     * called before {@link #trackVersions()}.
+     * </p>
+     */
+    public void packIntoColumns() {
+        lock.writeLock().lock();
+        try {
+            if (columns != null) {
+                return;
+            }
+            Snapshot current = snapshot;
+            TaskColumns packed = new TaskColumns();
+            for (int i = 0; i < current.size; i++) {
+                packed.pack(current.get(i));
+            }
+            columns = packed;
+            array = null;
+            slots = null;
+            publishedEnd = 0;
+            taskIndexes.clear();
+            snapshot = new Snapshot(packed, null, current.size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Starts keeping a {@link PersistentTaskList} version of this list, beginning with the tasks
+     * it holds now. Taking the first version costs constant time.
+     */
+    public void trackVersions() {
+        lock.writeLock().lock();
+        try {
+            if (version == null) {
+                version = PersistentTaskList.of(snapshot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the version of the list as it is now.
+     *
+     * @return the version, or null if versions are not tracked.
+     */
+    public PersistentTaskList getVersion() {
+        return version;
+    }
+
+    /**
+     * Changes the list back, or forward, to an earlier version of it.
+     * <p>
+     * Only the tasks that differ between the current version and the given one are touched, and
+     * the given version becomes the current one.
+     * </p>
+     *
+     * @param target a version returned by {@link #getVersion()}.
+     * @return the changes that were made.
+     */
+    public PersistentTaskList.Difference restore(PersistentTaskList target) {
+        lock.writeLock().lock();
+        try {
+            PersistentTaskList.Difference difference = version.diff(target);
+            version = null;
+            try {
+                if (!difference.getRemoved().isEmpty()) {
+                    removeAll(difference.getRemoved());
+                }
+                insertAll(difference.getInsertedAt(), difference.getInserted());
+                setDone(difference.getMarked(), true);
+                setDone(difference.getUnmarked(), false);
+            } finally {
+                version = target;
+            }
+            return difference;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Changes the status of one task, updating the version first so that it can still recall the
+     * old status. Must be called under the write lock.
+     */
+    private void setDone(int index, Task task, boolean isDone) {
+        if (task.isDone == isDone) {
+            return;
+        }
+        if (version != null) {
+            version = version.setDone(index, index + 1, isDone);
+        }
+        if (isDone) {
+            task.markAsDone();
+        } else {
+            task.markAsNotDone();
+        }
+        if (columns != null) {
+            columns.setDone(slotAt(index), isDone);
+        }
+        taskIndexes.updateStatus(task);
+    }
+
+    /**
+     * Changes the status of the tasks at the given indexes. The tasks that already have the
+     * status are left alone, and the others are changed one run of consecutive tasks at a time,
+     * so a change that changes nothing leaves the same version. Must be called under the write
+     * lock.
+     *
+     * @return every task at the given indexes, including those that already had the status.
+     */
+    private ArrayList<Task> setDone(BitSet indexes, boolean isDone) {
+        ArrayList<Task> selected = new ArrayList<>(indexes.cardinality());
+        for (int from = indexes.nextSetBit(0); from >= 0; from = indexes.nextSetBit(from)) {
+            int to = indexes.nextClearBit(from);
+            int runStart = -1;
+            for (int i = from; i < to; i++) {
+                Task task = snapshot.get(i);
+                selected.add(task);
+                if (task.isDone != isDone && runStart == -1) {
+                    runStart = i;
+                } else if (task.isDone == isDone && runStart != -1) {
+                    setDone(runStart, i, isDone);
+                    runStart = -1;
+                }
+            }
+            if (runStart != -1) {
+                setDone(runStart, to, isDone);
+            }
+            from = to;
+        }
+        return selected;
+    }
+
+    /**
+     * Changes the status of a run of consecutive tasks that all have the other status, updating
+     * the version first so that it can still recall their old status. Must be called under the
+     * write lock.
+     */
+    private void setDone(int from, int to, boolean isDone) {
+        if (version != null) {
+            version = version.setDone(from, to, isDone);
+        }
+        for (int i = from; i < to; i++) {
+            Task task = snapshot.get(i);
+            if (isDone) {
+                task.markAsDone();
+            } else {
+                task.markAsNotDone();
+            }
+            if (columns != null) {
+                columns.setDone(slotAt(i), isDone);
+            }
+            taskIndexes.updateStatus(task);
+        }
+    }
+
+    /**
+     * Returns the position of a task in the list. Tasks are ordered by ID, so the position is
+     * found by a binary search; a list whose data file was edited by hand is scanned instead.
+     */
+    private int positionOf(Task task) {
+        Snapshot current = snapshot;
+        int low = 0;
+        int high = current.size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int id = current.getId(middle);
+            if (id < task.getId()) {
+                low = middle + 1;
+            } else if (id > task.getId()) {
+                high = middle - 1;
+            } else {
+                return current.get(middle) == task ? middle : indexOf(task);
+            }
+        }
+        return indexOf(task);
+    }
+
+    private int slotAt(int index) {
+        return slots == null ? index : slots[index];
+    }
+
+    /**
+     * Returns the slot for a task being put back, which is the slot it had before it was removed
+     * if it came from the columns, so that older versions of the list still see the same task.
+     */
+    private int slotOf(Task task) {
+        int slot = columns.find(task);
+        if (slot == -1) {
+            return columns.add(task);
+        }
+        columns.setDone(slot, task.isDone);
+        return slot;
+    }
+
+    /**
+     * Decodes every task still in the data file into the array, so that positions can shift.
+     * Must be called under the write lock.
+     */
+    private void decodeAll() {
+        Snapshot current = snapshot;
+        if (current.segments == null) {
+            return;
+        }
+        Task[] tasks = new Task[Math.max(INITIAL_CAPACITY, current.size + current.size / 2)];
+        for (int i = 0; i < current.size; i++) {
+            tasks[i] = current.get(i);
+        }
+        array = tasks;
+        snapshot = new Snapshot(tasks, current.size, null);
+        publishedEnd = current.size;
     }
 
     /**
@@ -52,7 +769,266 @@ public class TaskList {
      * @return the Task object at the specified index.
      */
     public Task get(int index) {
-        return tasks.get(index);
+        return snapshot.get(index);
+    }
+
+    /**
+     * Retrieves the task with the specified ID.
+     *
+     * @param id the ID of the task.
+     * @return the task, or null if no task in the list has that ID.
+     */
+    public Task getById(int id) {
+        if (columns != null) {
+            return findById(id);
+        }
+        lock.readLock().lock();
+        try {
+            return taskIndexes.getIdIndex(snapshot).get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the position of the given task in the list.
+     *
+     * @param task the task to look for.
+     * @return the zero-based index of the task, or -1 if it is not in the list.
+     */
+    public int indexOf(Task task) {
+        Snapshot current = snapshot;
+        for (int i = 0; i < current.size; i++) {
+            if (current.getId(i) == task.getId() && current.get(i) == task) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Looks a task up by ID in the columns, by a binary search over the positions since tasks are
+     * ordered by ID, or by a scan of the ID column for a list whose data file was edited by hand.
+     */
+    private Task findById(int id) {
+        Snapshot current = snapshot;
+        int low = 0;
+        int high = current.size - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = current.getId(middle);
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return current.get(middle);
+            }
+        }
+        for (int i = 0; i < current.size; i++) {
+            if (current.getId(i) == id) {
+                return current.get(i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the ID that the next new task will be given.
+     *
+     * @return the next ID.
+     */
+    public int getNextId() {
+        return nextId;
+    }
+
+    /**
+     * Returns the tasks whose description contains the keyword, ignoring case.
+     * <p>
+     * The token index answers most keywords without looking at every task; keywords it cannot
+     * narrow down to at most a sixteenth of the list fall back to a scan of the whole list. So do
+     * all keywords until the token index, which the first keyword starts building in the
+     * background, is ready.
+     * </p>
+     *
+     * @param keyword the keyword to search for.
+     * @return the matching tasks in list order.
+     */
+    public ArrayList<Task> find(String keyword) {
+        return find(TaskQuery.keyword(keyword));
+    }
+
+    /**
+     * Returns the tasks that match a query.
+     * <p>
+     * If an index can narrow the query down to at most a sixteenth of the list, the candidates from
+     * the most selective index are checked against the query and put in list order by their
+     * positions. Otherwise the whole list is scanned; a list of more than
+     * {@value #PARALLEL_SCAN_SIZE} tasks is scanned in parallel, one data file segment per piece
+     * of work, so that no two threads decode the same segment.
+     * </p>
+     *
+     * @param query the query.
+     * @return the matching tasks in list order.
+     */
+    public ArrayList<Task> find(TaskQuery query) {
+        Snapshot current;
+        lock.readLock().lock();
+        try {
+            current = snapshot;
+            Collection<? extends Task> candidates = query.lookUp(this, true, current.size / INDEX_SELECTIVITY);
+            if (candidates != null) {
+                return inListOrder(query, candidates);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return scan(current, query);
+    }
+
+    /**
+     * Returns the candidates that match a query, without repeats and in list order. Must be
+     * called under the read lock.
+     */
+    private ArrayList<Task> inListOrder(TaskQuery query, Collection<? extends Task> candidates) {
+        Set<Task> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        int[] positions = new int[candidates.size()];
+        int count = 0;
+        for (Task task : candidates) {
+            if (query.matches(task) && seen.add(task)) {
+                int position = positionOf(task);
+                if (position != -1) {
+                    positions[count++] = position;
+                }
+            }
+        }
+        Arrays.sort(positions, 0, count);
+        Snapshot current = snapshot;
+        ArrayList<Task> matches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            matches.add(current.get(positions[i]));
+        }
+        return matches;
+    }
+
+    private static ArrayList<Task> scan(Snapshot current, TaskQuery query) {
+        int segmentSize = BinaryTaskFormat.SEGMENT_SIZE;
+        IntStream segments = IntStream.range(0, (current.size + segmentSize - 1) / segmentSize);
+        if (current.size > PARALLEL_SCAN_SIZE) {
+            segments = segments.parallel();
+        }
+        int[] positions = segments
+                .flatMap(segment -> IntStream.range(segment * segmentSize,
+                        Math.min(current.size, (segment + 1) * segmentSize)))
+                .filter(i -> query.matches(current.get(i)))
+                .toArray();
+        ArrayList<Task> matches = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            matches.add(current.get(position));
+        }
+        return matches;
+    }
+
+    /**
+     * Returns the tasks whose descriptions best match the words of a query, allowing for typos.
+     *
+     * @param query the words to search for.
+     * @param limit the number of tasks to return at most.
+     * @return the best matching tasks, best first.
+     * @see TokenIndex#search(String, int)
+     */
+    public ArrayList<Task> search(String query, int limit) {
+        lock.readLock().lock();
+        try {
+            return getTokenIndex().search(query, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a part of the list sorted in the given order.
+     * <p>
+     * The first request for an order builds a {@link SortedTaskIndex} for it, which is kept up to
+     * date as tasks are added, removed and marked, so any later page costs O(log n + k) for k
+     * tasks.
+     * </p>
+     *
+     * @param order the order.
+     * @param from  the zero-based rank of the first task in the sorted list.
+     * @param to    the zero-based rank after the last task.
+     * @return the tasks in the given order.
+     */
+    public ArrayList<Task> getSorted(SortedTaskIndex.Order order, int from, int to) {
+        lock.readLock().lock();
+        try {
+            return taskIndexes.getSortedIndex(order, snapshot).get(from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the deadlines due between two dates, in order of due date.
+     *
+     * @param from           the first date, inclusive, or null for no lower bound.
+     * @param to             the last date, inclusive.
+     * @param isDoneIncluded whether deadlines that are already done are included.
+     * @return the matching deadlines.
+     */
+    public ArrayList<Deadline> findDeadlines(LocalDate from, LocalDate to, boolean isDoneIncluded) {
+        lock.readLock().lock();
+        try {
+            return getDeadlineIndex().find(from, to, isDoneIncluded);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the events whose parsed times overlap the given period, in order of start time.
+     *
+     * @param from the start of the period, inclusive.
+     * @param to   the end of the period, exclusive.
+     * @return the overlapping events.
+     */
+    public ArrayList<Event> findEvents(LocalDateTime from, LocalDateTime to) {
+        lock.readLock().lock();
+        try {
+            return taskIndexes.getEventIndex(snapshot).findOverlapping(from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns every pair of events whose parsed times overlap.
+     *
+     * @return the overlapping pairs, each ordered by start time.
+     */
+    public ArrayList<Event[]> findConflicts() {
+        lock.readLock().lock();
+        try {
+            return taskIndexes.getEventIndex(snapshot).findConflicts();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    TokenIndex getTokenIndex() {
+        return taskIndexes.getTokenIndex(snapshot);
+    }
+
+    /**
+     * Returns the token index if it is built, and otherwise starts building it in the background.
+     * Must be called under the read lock.
+     */
+    TokenIndex findTokenIndex() {
+        return taskIndexes.findTokenIndex(snapshot);
+    }
+
+    DeadlineIndex getDeadlineIndex() {
+        return taskIndexes.getDeadlineIndex(snapshot);
     }
 
     /**
@@ -61,7 +1037,7 @@ public class TaskList {
      * @return the size of the task list.
      */
     public int size() {
-        return tasks.size();
+        return snapshot.size;
     }
 
     /**
@@ -70,18 +1046,78 @@ public class TaskList {
      * @return true if the task list is empty, false otherwise.
      */
     public boolean isEmpty() {
-        return tasks.isEmpty();
+        return snapshot.size == 0;
     }
 
     /**
-     * Returns the underlying ArrayList of tasks.
+     * Returns the tasks currently in the list.
      * <p>
-     * This method exposes the internal representation of the task list.
+     * The result is an unmodifiable snapshot taken in constant time: it keeps holding the same
+     * tasks in the same order however the list changes afterwards, so it can be iterated while
+     * other threads change the list.
      * </p>
      *
-     * @return the ArrayList containing all Task objects.
+     * @return the tasks in list order.
+     */
+    public List<Task> getTasks() {
+        return snapshot;
+    }
+
+    /**
+     * Represents the tasks of the list at one point in time: the tasks of a data file, if any,
+     * followed by a prefix of an array that is never changed again within that prefix. For a list
+     * packed into columns, the array holds the slots of the tasks instead, or is null while every
+     * task is still in the slot of its position.
      */
-    public ArrayList<Task> getTasks() {
-        return tasks;
+    private static class Snapshot extends AbstractList<Task> implements RandomAccess {
+        private final Task[] tasks;
+        private final int size;
+        private final TaskSegments segments;
+        private final int base;
+        private final TaskColumns columns;
+        private final int[] slots;
+
+        Snapshot(Task[] tasks, int size, TaskSegments segments) {
+            this.tasks = tasks;
+            this.size = size;
+            this.segments = segments;
+            this.base = segments == null ? 0 : segments.getTaskCount();
+            this.columns = null;
+            this.slots = null;
+        }
+
+        Snapshot(TaskColumns columns, int[] slots, int size) {
+            this.tasks = null;
+            this.size = size;
+            this.segments = null;
+            this.base = 0;
+            this.columns = columns;
+            this.slots = slots;
+        }
+
+        @Override
+        public Task get(int index) {
+            Objects.checkIndex(index, size);
+            if (columns != null) {
+                return columns.get(slots == null ? index : slots[index]);
+            }
+            return index < base ? segments.get(index) : tasks[index - base];
+        }
+
+        /**
+         * Returns the ID of the task at the given position, without creating it if it is packed.
+         */
+        int getId(int index) {
+            if (columns != null) {
+                Objects.checkIndex(index, size);
+                return columns.getId(slots == null ? index : slots[index]);
+            }
+            return get(index).getId();
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
     }
 }
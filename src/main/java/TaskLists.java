@@ -0,0 +1,380 @@
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.TreeSet;
+
+/**
+ * Represents the named task lists of Asep, each kept in its own data file.
+ * <p>
+ * The default list, "main", is kept in the original data file, and every other list in a file
+ * named after it in a "lists" folder next to that file. A list is only loaded when it is first
+ * used. Once more lists, or more tasks over all lists, are loaded than the configured budget
+ * allows, the least recently used lists are written to disk and dropped from memory, so one
+ * process can host thousands of lists while only the busy ones take up memory. A list that is
+ * dropped is simply loaded again the next time it is used.
+ * </p>
+ * <p>
+ * The storage of every list reports to the same {@link Metrics}, which also collect the command
+ * timings of the whole process.
+ * </p>
+ * <p>
+ * The methods may be called from several threads at once.
+ * </p>
+ */
+public class TaskLists {
+    /** The name of the list kept in the original data file. */
+    public static final String DEFAULT_LIST = "main";
+
+    /** The number of lists kept in memory when no other budget is given. */
+    public static final int DEFAULT_MAX_LOADED_LISTS = 64;
+
+    /** The number of tasks, over all lists, kept in memory when no other budget is given. */
+    public static final long DEFAULT_MAX_LOADED_TASKS = 2_000_000;
+
+    private static final int MAX_NAME_LENGTH = 64;
+    private static final String LIST_DIRECTORY = "lists";
+    private static final String EXTENSION = ".txt";
+
+    /**
+     * Represents a loaded list together with the storage that persists it and its undo history.
+     */
+    public static class Entry {
+        private final String name;
+        private final TaskList tasks;
+        private final Storage storage;
+        private final TaskHistory history = new TaskHistory();
+
+        Entry(String name, TaskList tasks, Storage storage) {
+            this.name = name;
+            this.tasks = tasks;
+            this.storage = storage;
+        }
+
+        /**
+         * Returns the name of the list.
+         *
+         * @return the list name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the tasks of the list.
+         *
+         * @return the task list.
+         */
+        public TaskList getTasks() {
+            return tasks;
+        }
+
+        /**
+         * Returns the storage of the list.
+         *
+         * @return the storage that persists the list.
+         */
+        public Storage getStorage() {
+            return storage;
+        }
+
+        /**
+         * Returns the undo history of the list, which lasts as long as the list stays in memory.
+         *
+         * @return the history.
+         */
+        public TaskHistory getHistory() {
+            return history;
+        }
+    }
+
+    private final String defaultFilePath;
+    private final Path listDirectory;
+    private final int maxLoadedLists;
+    private final long maxLoadedTasks;
+    private final LinkedHashMap<String, Entry> loaded = new LinkedHashMap<>(16, 0.75f, true);
+    private final Metrics metrics = new Metrics();
+    private boolean isBatching;
+    private boolean isColumnar;
+
+    /**
+     * Constructs a TaskLists with the default memory budget.
+     *
+     * @param defaultFilePath the data file of the default list.
+     */
+    public TaskLists(String defaultFilePath) {
+        this(defaultFilePath, DEFAULT_MAX_LOADED_LISTS, DEFAULT_MAX_LOADED_TASKS);
+    }
+
+    /**
+     * Constructs a TaskLists that keeps at most the given number of lists and tasks in memory.
+     * <p>
+     * The list in use is always kept, even if it alone exceeds the budget.
+     * </p>
+     *
+     * @param defaultFilePath the data file of the default list.
+     * @param maxLoadedLists  the number of lists to keep loaded, at least 1.
+     * @param maxLoadedTasks  the number of tasks, over all loaded lists, to keep in memory.
+     */
+    public TaskLists(String defaultFilePath, int maxLoadedLists, long maxLoadedTasks) {
+        this.defaultFilePath = defaultFilePath;
+        Path parent = Paths.get(defaultFilePath).toAbsolutePath().getParent();
+        this.listDirectory = parent.resolve(LIST_DIRECTORY);
+        this.maxLoadedLists = Math.max(1, maxLoadedLists);
+        this.maxLoadedTasks = maxLoadedTasks;
+    }
+
+    /**
+     * Checks that the given text can be used as a list name and returns it in its saved form.
+     * <p>
+     * List names are made of letters, digits, '-' and '_', and are not case-sensitive, since
+     * they are used as file names.
+     * </p>
+     *
+     * @param name the list name as entered by the user.
+     * @return the name in lower case.
+     * @throws AsepException if the name is empty, too long, or contains other characters.
+     */
+    public static String checkName(String name) throws AsepException {
+        if (name.isEmpty()) {
+            throw new AsepException("Please specify the name of a list.");
+        }
+        if (name.length() > MAX_NAME_LENGTH) {
+            throw new AsepException("A list name can be at most " + MAX_NAME_LENGTH + " characters long.");
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean isAllowed = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_';
+            if (!isAllowed) {
+                throw new AsepException("A list name may only contain letters, digits, '-' and '_'.");
+            }
+        }
+        return name.toLowerCase();
+    }
+
+    /**
+     * Returns the named list, loading it first if it is not in memory.
+     * <p>
+     * A list without a data file starts out empty. If the data file cannot be read, the list also
+     * starts out empty and the error is reported once.
+     * </p>
+     *
+     * @param name the name of the list, as returned by {@link #checkName(String)}.
+     * @return the loaded list.
+     * @throws AsepException if the list could not be loaded.
+     */
+    public synchronized Entry get(String name) throws AsepException {
+        Entry entry = loaded.get(name);
+        if (entry != null) {
+            return entry;
+        }
+        Storage storage = new Storage(getFilePath(name), true);
+        storage.useBinaryFormat();
+        storage.useMetrics(metrics);
+        if (isColumnar) {
+            storage.useColumnarStore();
+        }
+        storage.startAsyncWriter();
+        AsepException loadError = null;
+        TaskList tasks;
+        long start = System.nanoTime();
+        try {
+            tasks = storage.loadTasks();
+        } catch (AsepException e) {
+            loadError = e;
+            tasks = new TaskList();
+        } finally {
+            Metrics.addStorageTime(System.nanoTime() - start);
+        }
+        if (isBatching) {
+            storage.beginBatch();
+        }
+        tasks.trackVersions();
+        entry = new Entry(name, tasks, storage);
+        loaded.put(name, entry);
+        evict(name);
+        if (loadError != null) {
+            throw new AsepException("Error loading tasks: " + loadError.getMessage());
+        }
+        return entry;
+    }
+
+    /**
+     * Makes every list loaded from now on keep its tasks in {@link TaskColumns}.
+     */
+    public synchronized void useColumnarStore() {
+        isColumnar = true;
+    }
+
+    /**
+     * Returns the metrics shared by all lists.
+     *
+     * @return the metrics.
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the number of tasks in the named list if it is loaded.
+     *
+     * @param name the name of the list.
+     * @return the number of tasks, or -1 if the list is not in memory.
+     */
+    public synchronized int getLoadedSize(String name) {
+        for (Entry entry : loaded.values()) {
+            if (entry.name.equals(name)) {
+                return entry.tasks.size();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the names of all lists, whether they are loaded or only saved.
+     *
+     * @return the default list followed by the other lists in alphabetical order.
+     * @throws AsepException if the list folder cannot be read.
+     */
+    public synchronized ArrayList<String> getNames() throws AsepException {
+        TreeSet<String> names = new TreeSet<>(loaded.keySet());
+        if (Files.isDirectory(listDirectory)) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(listDirectory, "*" + EXTENSION)) {
+                for (Path file : files) {
+                    String fileName = file.getFileName().toString();
+                    String name = fileName.substring(0, fileName.length() - EXTENSION.length());
+                    if (isSavedName(name)) {
+                        names.add(name);
+                    }
+                }
+            } catch (IOException e) {
+                throw new AsepException("Error reading lists: " + e.getMessage());
+            }
+        }
+        names.remove(DEFAULT_LIST);
+        ArrayList<String> result = new ArrayList<>(names.size() + 1);
+        result.add(DEFAULT_LIST);
+        result.addAll(names);
+        return result;
+    }
+
+    /**
+     * Starts batch mode in every loaded list and in every list loaded later.
+     *
+     * @see Storage#beginBatch()
+     */
+    public synchronized void beginBatch() {
+        isBatching = true;
+        for (Entry entry : loaded.values()) {
+            entry.storage.beginBatch();
+        }
+    }
+
+    /**
+     * Writes the changes of every loaded list recorded since its last commit.
+     *
+     * @throws AsepException if the changes of any list could not be saved.
+     */
+    public synchronized void commit() throws AsepException {
+        AsepException error = null;
+        for (Entry entry : loaded.values()) {
+            try {
+                entry.storage.commit();
+            } catch (AsepException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Waits until the changes of every loaded list have reached the disk.
+     *
+     * @throws AsepException if the changes of any list could not be saved.
+     */
+    public synchronized void flush() throws AsepException {
+        AsepException error = null;
+        for (Entry entry : loaded.values()) {
+            try {
+                entry.storage.flush();
+            } catch (AsepException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Writes every loaded list to disk and drops it from memory, for example when Asep shuts down.
+     * <p>
+     * Lists used afterwards are loaded again.
+     * </p>
+     *
+     * @throws AsepException if the changes of any list could not be saved; that list stays loaded.
+     */
+    public synchronized void close() throws AsepException {
+        AsepException error = null;
+        Iterator<Entry> entries = loaded.values().iterator();
+        while (entries.hasNext()) {
+            Entry entry = entries.next();
+            try {
+                entry.storage.close(entry.tasks);
+                entries.remove();
+            } catch (AsepException e) {
+                error = e;
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private String getFilePath(String name) {
+        if (name.equals(DEFAULT_LIST)) {
+            return defaultFilePath;
+        }
+        return listDirectory.resolve(name + EXTENSION).toString();
+    }
+
+    private static boolean isSavedName(String name) {
+        try {
+            return checkName(name).equals(name);
+        } catch (AsepException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Drops the least recently used lists until the budget is met, except the given one.
+     * A list whose changes cannot be written stays in memory, so that they are not lost.
+     */
+    private void evict(String keep) {
+        long loadedTasks = 0;
+        for (Entry entry : loaded.values()) {
+            loadedTasks += entry.tasks.size();
+        }
+        Iterator<Entry> entries = loaded.values().iterator();
+        while ((loaded.size() > maxLoadedLists || loadedTasks > maxLoadedTasks) && entries.hasNext()) {
+            Entry entry = entries.next();
+            if (entry.name.equals(keep)) {
+                continue;
+            }
+            try {
+                entry.storage.close(entry.tasks);
+            } catch (AsepException e) {
+                continue;
+            }
+            loadedTasks -= entry.tasks.size();
+            entries.remove();
+        }
+    }
+}
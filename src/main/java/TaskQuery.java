@@ -0,0 +1,360 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Represents a condition on tasks built by the find command, such as
+ * "lecture AND type:D AND NOT done AND before:2025-03-01".
+ * <p>
+ * A query is a tree whose leaves test one property of a task: a keyword in its description, its
+ * type, its status, or its due date. Every query can be checked against a single task with
+ * {@link #matches(Task)}. Some can also be answered from an index of the task list: keywords from
+ * the {@link TokenIndex} once it has been built in the background, and due dates and the
+ * deadline type from the {@link DeadlineIndex}, which only returns deadlines that are not done
+ * when the query rules the others out. For such
+ * queries, {@link #estimate(TaskList, boolean)} tells how many candidates the index returns, so
+ * that a query combining several conditions starts from the most selective index, and
+ * {@link TaskList#find(TaskQuery)} scans the list instead when no index narrows it down enough.
+ * </p>
+ */
+public abstract class TaskQuery {
+    /**
+     * The estimate of a query that no index can answer.
+     */
+    static final long UNINDEXED = Long.MAX_VALUE;
+
+    /**
+     * Creates a query for the tasks whose description contains a keyword, ignoring case.
+     *
+     * @param keyword the keyword, which may contain spaces.
+     * @return the query.
+     */
+    public static TaskQuery keyword(String keyword) {
+        return new Keyword(keyword);
+    }
+
+    /**
+     * Creates a query for the tasks of one type.
+     *
+     * @param type the type identifier: "T", "D" or "E".
+     * @return the query.
+     */
+    public static TaskQuery type(String type) {
+        return new Type(type);
+    }
+
+    /**
+     * Creates a query for the tasks that are done, or for those that are not.
+     *
+     * @param isDone whether the tasks must be done.
+     * @return the query.
+     */
+    public static TaskQuery status(boolean isDone) {
+        return new Status(isDone);
+    }
+
+    /**
+     * Creates a query for the deadlines due between two dates.
+     *
+     * @param from the first date, inclusive, or null for no lower bound.
+     * @param to   the last date, inclusive, or null for no upper bound.
+     * @return the query.
+     */
+    public static TaskQuery dueBetween(LocalDate from, LocalDate to) {
+        return new Due(from, to);
+    }
+
+    /**
+     * Creates a query for the tasks that match all of the given queries.
+     *
+     * @param queries the queries, at least one.
+     * @return the query.
+     */
+    public static TaskQuery and(List<TaskQuery> queries) {
+        return queries.size() == 1 ? queries.get(0) : new And(queries);
+    }
+
+    /**
+     * Creates a query for the tasks that match any of the given queries.
+     *
+     * @param queries the queries, at least one.
+     * @return the query.
+     */
+    public static TaskQuery or(List<TaskQuery> queries) {
+        return queries.size() == 1 ? queries.get(0) : new Or(queries);
+    }
+
+    /**
+     * Creates a query for the tasks that do not match the given query.
+     *
+     * @param query the query to negate.
+     * @return the query.
+     */
+    public static TaskQuery not(TaskQuery query) {
+        return query.negate();
+    }
+
+    /**
+     * Checks whether a task matches this query.
+     *
+     * @param task the task.
+     * @return true if the task matches.
+     */
+    public abstract boolean matches(Task task);
+
+    /**
+     * Returns how many tasks an index of the list returns for this query, at most. Must be called
+     * under the read lock of the list.
+     *
+     * @param tasks          the task list whose indexes are used.
+     * @param isDoneIncluded whether tasks that are done can match.
+     * @return the number of candidates, or {@link #UNINDEXED} if no index answers the query.
+     */
+    long estimate(TaskList tasks, boolean isDoneIncluded) {
+        return UNINDEXED;
+    }
+
+    /**
+     * Returns the tasks an index of the list gives for this query. They include every match, but
+     * may include other tasks and repeat tasks, so they still have to be checked with
+     * {@link #matches(Task)}. Must be called under the read lock of the list.
+     *
+     * @param tasks          the task list whose indexes are used.
+     * @param isDoneIncluded whether tasks that are done can match.
+     * @param limit          the number of candidates above which scanning the list is cheaper.
+     * @return the candidate tasks, or null if no index answers the query within the limit.
+     */
+    Collection<? extends Task> lookUp(TaskList tasks, boolean isDoneIncluded, long limit) {
+        return null;
+    }
+
+    TaskQuery negate() {
+        return new Not(this);
+    }
+
+    private static class Keyword extends TaskQuery {
+        private final String keyword;
+        private final String lowerKeyword;
+
+        Keyword(String keyword) {
+            this.keyword = keyword;
+            this.lowerKeyword = keyword.toLowerCase();
+        }
+
+        @Override
+        public boolean matches(Task task) {
+            return task.getDescription().toLowerCase().contains(lowerKeyword);
+        }
+
+        @Override
+        long estimate(TaskList tasks, boolean isDoneIncluded) {
+            TokenIndex index = tasks.findTokenIndex();
+            int count = index == null ? -1 : index.count(keyword);
+            return count == -1 ? UNINDEXED : count;
+        }
+
+        @Override
+        Collection<? extends Task> lookUp(TaskList tasks, boolean isDoneIncluded, long limit) {
+            TokenIndex index = tasks.findTokenIndex();
+            return index == null ? null : index.findCandidates(keyword, limit);
+        }
+    }
+
+    private static class Type extends TaskQuery {
+        private final String type;
+
+        Type(String type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean matches(Task task) {
+            return task.getType().equals(type);
+        }
+
+        @Override
+        long estimate(TaskList tasks, boolean isDoneIncluded) {
+            return type.equals("D") ? tasks.getDeadlineIndex().count(null, null, isDoneIncluded) : UNINDEXED;
+        }
+
+        @Override
+        Collection<? extends Task> lookUp(TaskList tasks, boolean isDoneIncluded, long limit) {
+            if (!type.equals("D") || estimate(tasks, isDoneIncluded) > limit) {
+                return null;
+            }
+            return tasks.getDeadlineIndex().find(null, null, isDoneIncluded);
+        }
+    }
+
+    private static class Status extends TaskQuery {
+        private final boolean isDone;
+
+        Status(boolean isDone) {
+            this.isDone = isDone;
+        }
+
+        @Override
+        public boolean matches(Task task) {
+            return task.isDone == isDone;
+        }
+
+        @Override
+        TaskQuery negate() {
+            return new Status(!isDone);
+        }
+    }
+
+    private static class Due extends TaskQuery {
+        private final LocalDate from;
+        private final LocalDate to;
+
+        Due(LocalDate from, LocalDate to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean matches(Task task) {
+            if (!(task instanceof Deadline)) {
+                return false;
+            }
+            LocalDate by = ((Deadline) task).getBy();
+            return (from == null || !by.isBefore(from)) && (to == null || !by.isAfter(to));
+        }
+
+        @Override
+        long estimate(TaskList tasks, boolean isDoneIncluded) {
+            return tasks.getDeadlineIndex().count(from, to, isDoneIncluded);
+        }
+
+        @Override
+        Collection<? extends Task> lookUp(TaskList tasks, boolean isDoneIncluded, long limit) {
+            if (estimate(tasks, isDoneIncluded) > limit) {
+                return null;
+            }
+            return tasks.getDeadlineIndex().find(from, to, isDoneIncluded);
+        }
+    }
+
+    private static class Not extends TaskQuery {
+        private final TaskQuery query;
+
+        Not(TaskQuery query) {
+            this.query = query;
+        }
+
+        @Override
+        public boolean matches(Task task) {
+            return !query.matches(task);
+        }
+
+        @Override
+        TaskQuery negate() {
+            return query;
+        }
+    }
+
+    /**
+     * Matches the tasks that match every part. It is answered from the part with the fewest
+     * candidates; if one part only matches tasks that are not done, done deadlines are left out
+     * of the candidates of the others.
+     */
+    private static class And extends TaskQuery {
+        private final List<TaskQuery> queries;
+
+        And(List<TaskQuery> queries) {
+            this.queries = queries;
+        }
+
+        @Override
+        public boolean matches(Task task) {
+            for (TaskQuery query : queries) {
+                if (!query.matches(task)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        long estimate(TaskList tasks, boolean isDoneIncluded) {
+            long best = UNINDEXED;
+            for (TaskQuery query : queries) {
+                best = Math.min(best, query.estimate(tasks, isDoneIncluded && !isPendingOnly()));
+            }
+            return best;
+        }
+
+        @Override
+        Collection<? extends Task> lookUp(TaskList tasks, boolean isDoneIncluded, long limit) {
+            boolean isIncluded = isDoneIncluded && !isPendingOnly();
+            TaskQuery best = null;
+            long bestEstimate = UNINDEXED;
+            for (TaskQuery query : queries) {
+                long estimate = query.estimate(tasks, isIncluded);
+                if (estimate < bestEstimate) {
+                    best = query;
+                    bestEstimate = estimate;
+                }
+            }
+            return best == null || bestEstimate > limit ? null : best.lookUp(tasks, isIncluded, UNINDEXED);
+        }
+
+        private boolean isPendingOnly() {
+            for (TaskQuery query : queries) {
+                if (query instanceof Status && !((Status) query).isDone) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Matches the tasks that match any part. It can only be answered from the indexes if every
+     * part can, by putting their candidates together.
+     */
+    private static class Or extends TaskQuery {
+        private final List<TaskQuery> queries;
+
+        Or(List<TaskQuery> queries) {
+            this.queries = queries;
+        }
+
+        @Override
+        public boolean matches(Task task) {
+            for (TaskQuery query : queries) {
+                if (query.matches(task)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        long estimate(TaskList tasks, boolean isDoneIncluded) {
+            long total = 0;
+            for (TaskQuery query : queries) {
+                long estimate = query.estimate(tasks, isDoneIncluded);
+                if (estimate == UNINDEXED) {
+                    return UNINDEXED;
+                }
+                total += estimate;
+            }
+            return total;
+        }
+
+        @Override
+        Collection<? extends Task> lookUp(TaskList tasks, boolean isDoneIncluded, long limit) {
+            if (estimate(tasks, isDoneIncluded) > limit) {
+                return null;
+            }
+            ArrayList<Task> candidates = new ArrayList<>();
+            for (TaskQuery query : queries) {
+                candidates.addAll(query.lookUp(tasks, isDoneIncluded, UNINDEXED));
+            }
+            return candidates;
+        }
+    }
+}
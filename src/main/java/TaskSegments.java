@@ -0,0 +1,115 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Represents the tasks of a binary data file that are decoded segment by segment on first use.
+ * <p>
+ * Opening the file only reads its header and segment offset index. The first request for a task
+ * decodes the whole segment holding it, and the decoded tasks are kept, so every caller gets the
+ * same Task objects. A segment that has never been decoded cannot have changed, so it can be
+ * copied to a new data file as it is. Segments may be decoded by several threads at once; if two
+ * threads decode the same segment, the tasks of the first to finish are kept.
+ * </p>
+ */
+public class TaskSegments {
+    private final ByteBuffer buffer;
+    private final int taskCount;
+    private final int segmentSize;
+    private final long[] offsets;
+    private final AtomicReferenceArray<Task[]> decoded;
+
+    /**
+     * Constructs a TaskSegments over the given file contents.
+     *
+     * @param buffer      the whole data file.
+     * @param taskCount   the number of tasks in the file.
+     * @param segmentSize the number of tasks in every segment but the last.
+     * @param offsets     the offset of every segment in the file, followed by the end of the last.
+     */
+    TaskSegments(ByteBuffer buffer, int taskCount, int segmentSize, long[] offsets) {
+        this.buffer = buffer;
+        this.taskCount = taskCount;
+        this.segmentSize = segmentSize;
+        this.offsets = offsets;
+        this.decoded = new AtomicReferenceArray<>(offsets.length - 1);
+    }
+
+    /**
+     * Returns the number of tasks in the file.
+     *
+     * @return the task count.
+     */
+    public int getTaskCount() {
+        return taskCount;
+    }
+
+    /**
+     * Returns the task at the given position in the file, decoding its segment if needed.
+     *
+     * @param index the zero-based position of the task.
+     * @return the task.
+     * @throws IllegalStateException if the segment is corrupted.
+     */
+    public Task get(int index) {
+        int segment = index / segmentSize;
+        Task[] tasks = decoded.get(segment);
+        if (tasks == null) {
+            tasks = decode(segment);
+            if (!decoded.compareAndSet(segment, null, tasks)) {
+                tasks = decoded.get(segment);
+            }
+        }
+        return tasks[index - segment * segmentSize];
+    }
+
+    /**
+     * Checks whether a segment of a new file can be copied from this file unchanged.
+     *
+     * @param segment the number of the segment in the new file.
+     * @param from    the position of the segment's first task in the new file.
+     * @param to      the position after the segment's last task in the new file.
+     * @return true if this file has the same segment, holding the same tasks, and it was never decoded.
+     */
+    boolean isUnchanged(int segment, int from, int to) {
+        return segmentSize == BinaryTaskFormat.SEGMENT_SIZE && segment < decoded.length()
+                && decoded.get(segment) == null && from == segment * segmentSize
+                && to == Math.min(from + segmentSize, taskCount);
+    }
+
+    /**
+     * Copies the bytes of a segment to the given stream.
+     *
+     * @param segment the number of the segment.
+     * @param out     the stream to copy to.
+     * @return the number of bytes copied.
+     * @throws IOException if the stream cannot be written.
+     */
+    long copySegment(int segment, OutputStream out) throws IOException {
+        ByteBuffer bytes = slice(segment);
+        int length = bytes.remaining();
+        byte[] chunk = new byte[Math.min(length, 64 * 1024)];
+        while (bytes.hasRemaining()) {
+            int count = Math.min(chunk.length, bytes.remaining());
+            bytes.get(chunk, 0, count);
+            out.write(chunk, 0, count);
+        }
+        return length;
+    }
+
+    private Task[] decode(int segment) {
+        int first = segment * segmentSize;
+        try {
+            return BinaryTaskFormat.readSegment(slice(segment), Math.min(segmentSize, taskCount - first), first);
+        } catch (AsepException e) {
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+
+    private ByteBuffer slice(int segment) {
+        int start = (int) offsets[segment];
+        int end = (int) offsets[segment + 1];
+        return buffer.slice(start, end - start);
+    }
+}
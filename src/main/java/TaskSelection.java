@@ -0,0 +1,75 @@
+import java.util.BitSet;
+
+/**
+ * Represents a selection of tasks given to a bulk command.
+ * <p>
+ * A selection is either a list of task numbers and inclusive ranges such as "3,7,9-20", every
+ * task that is done, or every task in the list. It is resolved against a task list into a set of
+ * zero-based indexes.
+ * </p>
+ */
+public class TaskSelection {
+    private final int[] ranges;
+    private final boolean isDoneOnly;
+
+    private TaskSelection(int[] ranges, boolean isDoneOnly) {
+        this.ranges = ranges;
+        this.isDoneOnly = isDoneOnly;
+    }
+
+    /**
+     * Creates a selection of task numbers and ranges.
+     *
+     * @param ranges pairs of one-based first and last task numbers, both inclusive.
+     * @return the selection.
+     */
+    public static TaskSelection ofRanges(int[] ranges) {
+        return new TaskSelection(ranges, false);
+    }
+
+    /**
+     * Creates a selection of every task that is done.
+     *
+     * @return the selection.
+     */
+    public static TaskSelection done() {
+        return new TaskSelection(null, true);
+    }
+
+    /**
+     * Creates a selection of every task in the list.
+     *
+     * @return the selection.
+     */
+    public static TaskSelection all() {
+        return new TaskSelection(null, false);
+    }
+
+    /**
+     * Resolves the selection against a task list.
+     *
+     * @param tasks the task list.
+     * @return the zero-based indexes of the selected tasks.
+     * @throws AsepException if a task number is outside the list.
+     */
+    public BitSet resolve(TaskList tasks) throws AsepException {
+        BitSet indexes = new BitSet(tasks.size());
+        if (ranges != null) {
+            for (int i = 0; i < ranges.length; i += 2) {
+                if (ranges[i] < 1 || ranges[i + 1] > tasks.size()) {
+                    throw new AsepException("Invalid task number.");
+                }
+                indexes.set(ranges[i] - 1, ranges[i + 1]);
+            }
+        } else if (isDoneOnly) {
+            for (int i = 0; i < tasks.size(); i++) {
+                if (tasks.get(i).isDone) {
+                    indexes.set(i);
+                }
+            }
+        } else {
+            indexes.set(0, tasks.size());
+        }
+        return indexes;
+    }
+}
@@ -24,13 +24,14 @@ public class TodoCommand extends Command {
      * @param tasks   the task list where the new todo task is added.
      * @param ui      the user interface used to display messages.
      * @param storage the storage system used to persist the task list.
+     * @throws AsepException if the task list cannot be saved.
      */
     @Override
-    public void execute(TaskList tasks, Ui ui, Storage storage) {
+    public void execute(TaskList tasks, Ui ui, Storage storage) throws AsepException {
         Task task = new Todo(description);
         tasks.add(task);
-        storage.saveTasks(tasks);
-        ui.showMessage("Got it. I've added this task:\n   " + task +
+        storage.recordAdd(tasks, task);
+        ui.showMessage("Got it. I've added this task as #" + task.getId() + ":\n   " + task +
                 "\nNow you have " + tasks.size() + " tasks in the list.");
     }
 }
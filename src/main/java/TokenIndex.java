@@ -0,0 +1,320 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+
+/**
+ * Represents an inverted index from description tokens to the tasks containing them.
+ * <p>
+ * Descriptions are lowercased and split into tokens made of letters and digits. A keyword
+ * without separators occurs in a description exactly when it occurs in one of its tokens. The
+ * distinct tokens are kept in a {@link TrigramIndex}, so the tokens containing a keyword are found
+ * from its sequences of three characters, and in sorted order, so the tokens starting with it are
+ * found as a range; a whole token is looked up directly. None of these go through all the
+ * distinct tokens. Keywords that contain separators use their most selective
+ * piece to narrow down candidates, which are then checked against the full description. Keywords
+ * too short to look up are left to the caller to scan for.
+ * </p>
+ * <p>
+ * The trigrams also let a search find the tokens spelled almost like each of its words and rank
+ * the tasks by how closely they match. Tokens made only of digits are never matched that way,
+ * since a typo in a number makes another number.
+ * </p>
+ */
+public class TokenIndex {
+    private final HashMap<String, LinkedHashSet<Task>> postings = new HashMap<>();
+    private final IdentityHashMap<Task, Long> sequenceNumbers = new IdentityHashMap<>();
+    private final TrigramIndex trigrams = new TrigramIndex();
+    private final TreeSet<String> sortedTokens = new TreeSet<>();
+    private long nextSequenceNumber;
+
+    /**
+     * Adds a task to the index. Tasks must be added in list order.
+     *
+     * @param task the task to index.
+     */
+    public void add(Task task) {
+        sequenceNumbers.put(task, nextSequenceNumber++);
+        for (String token : tokenize(task.getDescription().toLowerCase())) {
+            postings.computeIfAbsent(token, key -> {
+                trigrams.add(key);
+                sortedTokens.add(key);
+                return new LinkedHashSet<>();
+            }).add(task);
+        }
+    }
+
+    /**
+     * Removes a task from the index.
+     *
+     * @param task the task to remove.
+     */
+    public void remove(Task task) {
+        sequenceNumbers.remove(task);
+        for (String token : tokenize(task.getDescription().toLowerCase())) {
+            LinkedHashSet<Task> tasks = postings.get(token);
+            if (tasks != null) {
+                tasks.remove(task);
+                if (tasks.isEmpty()) {
+                    postings.remove(token);
+                    trigrams.remove(token);
+                    sortedTokens.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the tasks whose description contains the keyword, ignoring case.
+     *
+     * @param keyword the keyword to search for.
+     * @return the matching tasks in list order, or null if the index cannot narrow the keyword
+     *         down and the caller has to scan the list instead.
+     */
+    public ArrayList<Task> find(String keyword) {
+        String lowerKeyword = keyword.toLowerCase();
+        ArrayList<Task> candidates = findCandidates(keyword, Long.MAX_VALUE);
+        if (candidates == null) {
+            return null;
+        }
+        boolean needsCheck = !isToken(lowerKeyword);
+        HashSet<Task> matches = new HashSet<>();
+        for (Task task : candidates) {
+            if (!needsCheck || task.getDescription().toLowerCase().contains(lowerKeyword)) {
+                matches.add(task);
+            }
+        }
+        ArrayList<Task> result = new ArrayList<>(matches);
+        result.sort((first, second) -> Long.compare(sequenceNumbers.get(first), sequenceNumbers.get(second)));
+        return result;
+    }
+
+    /**
+     * Returns the tasks that may contain the keyword, unless the index has more of them than the
+     * given limit. The candidates are the tasks containing the tokens of the most selective piece
+     * of the keyword; they are in no particular order, may repeat, and must still be checked
+     * against the keyword unless it has no separators.
+     *
+     * @param keyword the keyword to search for.
+     * @param limit   the number of candidate tasks above which scanning the list is cheaper.
+     * @return the candidate tasks, or null if the index cannot narrow the keyword down to at
+     *         most the limit and the caller has to scan the list instead.
+     */
+    public ArrayList<Task> findCandidates(String keyword, long limit) {
+        ArrayList<String> tokens = findTokens(keyword.toLowerCase(), limit);
+        if (tokens == null) {
+            return null;
+        }
+        ArrayList<Task> candidates = new ArrayList<>(countTasks(tokens));
+        for (String token : tokens) {
+            candidates.addAll(postings.get(token));
+        }
+        return candidates;
+    }
+
+    /**
+     * Returns how many tasks {@link #findCandidates(String, long)} returns for the keyword,
+     * without looking at any of them. This is the number of matches for a keyword without
+     * separators, and an upper bound for other keywords.
+     *
+     * @param keyword the keyword to search for.
+     * @return the number of candidate tasks, or -1 if the index cannot narrow the keyword down.
+     */
+    public int count(String keyword) {
+        ArrayList<String> tokens = findTokens(keyword.toLowerCase(), Long.MAX_VALUE);
+        return tokens == null ? -1 : countTasks(tokens);
+    }
+
+    /**
+     * Returns the tasks that best match the words of a query, allowing for typos.
+     * <p>
+     * A word of four to six letters matches tokens one edit away from it, and a longer word
+     * tokens up to two edits away; shorter words and numbers must match exactly. For each word, a
+     * task scores the similarity of its closest token, from 1 for an exact match down to the
+     * share of letters left unedited, and the scores of all words are added up. Tasks with equal
+     * scores keep their list order.
+     * </p>
+     *
+     * @param query the words to search for.
+     * @param limit the number of tasks to return at most.
+     * @return the best matching tasks, best first.
+     */
+    public ArrayList<Task> search(String query, int limit) {
+        HashMap<Task, Double> scores = new HashMap<>();
+        for (String word : new LinkedHashSet<>(tokenize(query.toLowerCase()))) {
+            HashMap<String, Integer> matches = new HashMap<>();
+            int maxDistance = word.length() <= 3 || isNumber(word) ? 0 : word.length() <= 6 ? 1 : 2;
+            if (maxDistance > 0) {
+                for (Map.Entry<String, Integer> similar : trigrams.findSimilar(word, maxDistance).entrySet()) {
+                    if (!isNumber(similar.getKey())) {
+                        matches.put(similar.getKey(), similar.getValue());
+                    }
+                }
+            }
+            if (postings.containsKey(word)) {
+                matches.put(word, 0);
+            }
+            HashMap<Task, Double> wordScores = new HashMap<>();
+            for (Map.Entry<String, Integer> match : matches.entrySet()) {
+                String token = match.getKey();
+                double similarity = 1 - match.getValue() / (double) Math.max(word.length(), token.length());
+                for (Task task : postings.get(token)) {
+                    wordScores.merge(task, similarity, Math::max);
+                }
+            }
+            for (Map.Entry<Task, Double> entry : wordScores.entrySet()) {
+                scores.merge(entry.getKey(), entry.getValue(), Double::sum);
+            }
+        }
+        // Keep the best tasks in a heap whose root is the worst of them.
+        PriorityQueue<Map.Entry<Task, Double>> best = new PriorityQueue<>((first, second) -> {
+            int byScore = Double.compare(first.getValue(), second.getValue());
+            return byScore != 0 ? byScore
+                    : Long.compare(sequenceNumbers.get(second.getKey()), sequenceNumbers.get(first.getKey()));
+        });
+        for (Map.Entry<Task, Double> entry : scores.entrySet()) {
+            best.add(entry);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        ArrayList<Task> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll().getKey());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Returns the tokens of the tasks that may contain a lowercased keyword, using the piece of
+     * it, out of its runs of letters and digits, that leaves the fewest candidate tasks.
+     * <p>
+     * Where the keyword goes on past a piece, the piece must end a token, and where the keyword
+     * goes on before it, the piece must start one. A piece with the keyword going on at both
+     * sides is a whole token and is looked up directly, and one that starts a token is looked up
+     * in the sorted tokens; any other piece is looked up by the sequences of three characters in
+     * it, counting the end of a token as a space. Gathering the tokens of a piece stops as soon
+     * as they hold more tasks than the limit or than an earlier piece, so a keyword that matches
+     * much of the list costs little more than counting up to the limit.
+     * </p>
+     *
+     * @return the tokens, or null if no piece can be looked up within the limit.
+     */
+    private ArrayList<String> findTokens(String lowerKeyword, long limit) {
+        ArrayList<String> best = null;
+        long bound = limit;
+        int start = -1;
+        for (int i = 0; i <= lowerKeyword.length(); i++) {
+            boolean isTokenChar = i < lowerKeyword.length() && Character.isLetterOrDigit(lowerKeyword.charAt(i));
+            if (isTokenChar && start == -1) {
+                start = i;
+            } else if (!isTokenChar && start != -1) {
+                ArrayList<String> tokens = findTokens(lowerKeyword.substring(start, i),
+                        start > 0, i < lowerKeyword.length(), bound);
+                start = -1;
+                if (tokens != null) {
+                    best = tokens;
+                    bound = countTasks(tokens) - 1;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the tokens containing a piece of a keyword, unless they hold more tasks than the
+     * bound.
+     *
+     * @param piece        a run of letters and digits.
+     * @param isTokenStart whether the piece must start the token.
+     * @param isTokenEnd   whether the piece must end the token.
+     * @param bound        the number of tasks the tokens may hold at most.
+     * @return the tokens, or null if the piece cannot be looked up or its tokens hold too many
+     *         tasks.
+     */
+    private ArrayList<String> findTokens(String piece, boolean isTokenStart, boolean isTokenEnd, long bound) {
+        if (bound < 0) {
+            return null;
+        }
+        ArrayList<String> tokens = new ArrayList<>();
+        if (isTokenStart && isTokenEnd) {
+            LinkedHashSet<Task> tasks = postings.get(piece);
+            if (tasks != null) {
+                if (tasks.size() > bound) {
+                    return null;
+                }
+                tokens.add(piece);
+            }
+            return tokens;
+        }
+        Iterable<String> candidates;
+        if (isTokenStart) {
+            candidates = sortedTokens.subSet(piece, piece + Character.MAX_VALUE);
+        } else if (piece.length() + (isTokenEnd ? 1 : 0) >= 3) {
+            candidates = trigrams.findCandidates(isTokenEnd ? piece + " " : piece);
+        } else {
+            return null;
+        }
+        long count = 0;
+        for (String token : candidates) {
+            if (isTokenStart || (isTokenEnd ? token.endsWith(piece) : token.contains(piece))) {
+                count += postings.get(token).size();
+                if (count > bound) {
+                    return null;
+                }
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private int countTasks(ArrayList<String> tokens) {
+        int count = 0;
+        for (String token : tokens) {
+            count += postings.get(token).size();
+        }
+        return count;
+    }
+
+    private static boolean isToken(String lowerKeyword) {
+        for (int i = 0; i < lowerKeyword.length(); i++) {
+            if (!Character.isLetterOrDigit(lowerKeyword.charAt(i))) {
+                return false;
+            }
+        }
+        return !lowerKeyword.isEmpty();
+    }
+
+    private static boolean isNumber(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if (!Character.isDigit(token.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Splits lowercased text into its runs of letters and digits.
+     */
+    private static ArrayList<String> tokenize(String text) {
+        ArrayList<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean isTokenChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (isTokenChar && start == -1) {
+                start = i;
+            } else if (!isTokenChar && start != -1) {
+                tokens.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,163 @@
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Represents an index from three-letter sequences to the words containing them, used to find the
+ * words that are spelled almost like a given word.
+ * <p>
+ * Each word is padded with a space on both sides, so its first and last letters also start and
+ * end a sequence. A word within a few edits of the query shares most of its sequences with it, so
+ * only the words sharing at least one sequence with the query, and of a similar length, are
+ * compared letter by letter. A swap of two neighbouring letters changes up to four sequences, which
+ * can be all of them in a short word, so the query is also looked up with each such swap made;
+ * with that, no word within one edit of a query of four or more letters, or within two edits of
+ * one of seven or more letters, is missed. The comparison counts insertions, deletions,
+ * substitutions and swaps of neighbouring letters, and stops as soon as the allowed number of
+ * edits is exceeded.
+ * </p>
+ * <p>
+ * The same sequences also narrow down the words that contain a given piece of text, since such a
+ * word contains every sequence of the piece.
+ * </p>
+ */
+public class TrigramIndex {
+    private final HashMap<String, HashSet<String>> words = new HashMap<>();
+
+    /**
+     * Adds a word to the index.
+     *
+     * @param word the word, in lower case.
+     */
+    public void add(String word) {
+        String padded = " " + word + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            words.computeIfAbsent(padded.substring(i, i + 3), key -> new HashSet<>()).add(word);
+        }
+    }
+
+    /**
+     * Removes a word from the index.
+     *
+     * @param word the word, in lower case.
+     */
+    public void remove(String word) {
+        String padded = " " + word + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            String trigram = padded.substring(i, i + 3);
+            HashSet<String> matches = words.get(trigram);
+            if (matches != null) {
+                matches.remove(word);
+                if (matches.isEmpty()) {
+                    words.remove(trigram);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the indexed words that are at most the given number of edits away from a word.
+     *
+     * @param word         the word to look for, in lower case.
+     * @param maxDistance  the number of edits allowed.
+     * @return the matching words, each with its number of edits.
+     */
+    public HashMap<String, Integer> findSimilar(String word, int maxDistance) {
+        HashSet<String> candidates = new HashSet<>();
+        addCandidates(word, candidates);
+        char[] letters = word.toCharArray();
+        for (int i = 0; i + 1 < letters.length; i++) {
+            if (letters[i] != letters[i + 1]) {
+                swap(letters, i);
+                addCandidates(new String(letters), candidates);
+                swap(letters, i);
+            }
+        }
+        HashMap<String, Integer> similar = new HashMap<>();
+        for (String candidate : candidates) {
+            if (Math.abs(candidate.length() - word.length()) > maxDistance) {
+                continue;
+            }
+            int distance = distance(word, candidate, maxDistance);
+            if (distance <= maxDistance) {
+                similar.put(candidate, distance);
+            }
+        }
+        return similar;
+    }
+
+    /**
+     * Returns the indexed words that may contain the given text, which is every word containing
+     * it and usually few others. Only the words sharing the rarest three-letter sequence of the
+     * text are returned, so the cost depends on how common that sequence is, not on the number of
+     * words. The text may start or end with a space to stand for the start or end of a word.
+     *
+     * @param text the text to look for, in lower case and at least three characters long.
+     * @return the candidate words, which must not be changed.
+     */
+    public Set<String> findCandidates(String text) {
+        Set<String> rarest = null;
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            HashSet<String> matches = words.get(text.substring(i, i + 3));
+            if (matches == null) {
+                return Collections.emptySet();
+            }
+            if (rarest == null || matches.size() < rarest.size()) {
+                rarest = matches;
+            }
+        }
+        return rarest == null ? Collections.emptySet() : Collections.unmodifiableSet(rarest);
+    }
+
+    private void addCandidates(String word, HashSet<String> candidates) {
+        String padded = " " + word + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            HashSet<String> matches = words.get(padded.substring(i, i + 3));
+            if (matches != null) {
+                candidates.addAll(matches);
+            }
+        }
+    }
+
+    private static void swap(char[] letters, int i) {
+        char letter = letters[i];
+        letters[i] = letters[i + 1];
+        letters[i + 1] = letter;
+    }
+
+    /**
+     * Returns the number of edits between two words, or a number above the limit once it is
+     * clear that more edits are needed.
+     */
+    static int distance(String first, String second, int maxDistance) {
+        int[] beforePrevious = new int[second.length() + 1];
+        int[] previous = new int[second.length() + 1];
+        int[] current = new int[second.length() + 1];
+        for (int j = 0; j <= second.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= first.length(); i++) {
+            current[0] = i;
+            int rowMinimum = i;
+            for (int j = 1; j <= second.length(); j++) {
+                int cost = first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && first.charAt(i - 1) == second.charAt(j - 2)
+                        && first.charAt(i - 2) == second.charAt(j - 1)) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMinimum = Math.min(rowMinimum, value);
+            }
+            if (rowMinimum > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[second.length()];
+    }
+}
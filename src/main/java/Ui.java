@@ -1,3 +1,9 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -5,36 +11,64 @@ import java.util.Scanner;
  * <p>
  * This class utilizes a Scanner to read user input from the standard input stream
  * and provides methods to display greetings, farewells, task lists, general messages,
- * and error messages.
+ * and error messages. Output is encoded in the default charset and goes through a single buffered
+ * stream that is flushed once per message. Task lists are written from the encoded lines that
+ * each task keeps, see {@link Task#getLineBytes()}, so listing unchanged tasks neither formats
+ * nor allocates anything. The time spent writing a message is added to the {@link Metrics} of the
+ * command being run.
  * </p>
  */
 public class Ui {
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final Charset CHARSET = Charset.defaultCharset();
+    private static final byte[] DIVIDER =
+            "____________________________________________________________".getBytes(CHARSET);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(CHARSET);
+    private static final byte[] NUMBER_SEPARATOR = ". ".getBytes(CHARSET);
+
     private Scanner scanner;
+    private final OutputStream out;
+    private final byte[] numberBuffer = new byte[12];
 
     /**
      * Constructs a Ui object and initializes the Scanner for user input.
      */
     public Ui() {
-        scanner = new Scanner(System.in);
+        this(System.in, System.out);
+    }
+
+    /**
+     * Constructs a Ui object that reads commands from and writes messages to the given streams.
+     *
+     * @param in  the stream to read user input from.
+     * @param out the stream to display messages on.
+     */
+    public Ui(InputStream in, OutputStream out) {
+        scanner = new Scanner(in);
+        this.out = new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE);
     }
 
     /**
      * Displays the greeting message to the user.
      */
     public void showGreeting() {
+        long start = System.nanoTime();
         printDivider();
-        System.out.println(" Hello! I'm Asep");
-        System.out.println(" What can I do for you?");
+        println(" Hello! I'm Asep");
+        println(" What can I do for you?");
         printDivider();
+        flush(start);
     }
 
     /**
      * Displays the farewell message to the user.
      */
     public void showFarewell() {
+        long start = System.nanoTime();
         printDivider();
-        System.out.println(" Bye. Hope to see you again soon!");
+        println(" Bye. Hope to see you again soon!");
         printDivider();
+        flush(start);
     }
 
     /**
@@ -52,16 +86,60 @@ public class Ui {
      * @param taskList the TaskList containing tasks to be displayed.
      */
     public void showTaskList(TaskList taskList) {
+        long start = System.nanoTime();
+        List<Task> tasks = taskList.getTasks();
         printDivider();
-        System.out.println(" Here are the tasks in your list:");
-        if (taskList.isEmpty()) {
-            System.out.println(" No tasks found.");
+        println(" Here are the tasks in your list:");
+        if (tasks.isEmpty()) {
+            println(" No tasks found.");
         } else {
-            for (int i = 0; i < taskList.size(); i++) {
-                System.out.println(" " + (i + 1) + ". " + taskList.get(i));
-            }
+            renderTasks(tasks, 0, tasks.size(), 1);
+        }
+        printDivider();
+        flush(start);
+    }
+
+    /**
+     * Displays a slice of the task list to the user, numbered by position in the whole list.
+     *
+     * @param taskList the TaskList containing tasks to be displayed.
+     * @param from     the zero-based index of the first task to display.
+     * @param to       the zero-based index after the last task to display.
+     */
+    public void showTaskList(TaskList taskList, int from, int to) {
+        long start = System.nanoTime();
+        List<Task> tasks = taskList.getTasks();
+        printDivider();
+        println(" Here are tasks " + (from + 1) + "-" + to + " of " + tasks.size() + " in your list:");
+        renderTasks(tasks, from, Math.min(to, tasks.size()), from + 1);
+        printDivider();
+        flush(start);
+    }
+
+    /**
+     * Displays a part of the task list sorted in some order, numbered by place in the sorted list.
+     *
+     * @param tasks the tasks to display, in sorted order.
+     * @param order the order the tasks are sorted in.
+     * @param from  the zero-based place of the first task in the sorted list.
+     * @param total the number of tasks in the whole list, or -1 if all of them are displayed.
+     */
+    public void showSortedTaskList(List<Task> tasks, SortedTaskIndex.Order order, int from, int total) {
+        long start = System.nanoTime();
+        printDivider();
+        if (total < 0 || tasks.isEmpty()) {
+            println(" Here are the tasks in your list, sorted " + order.getDescription() + ":");
+        } else {
+            println(" Here are tasks " + (from + 1) + "-" + (from + tasks.size()) + " of " + total
+                    + " in your list, sorted " + order.getDescription() + ":");
+        }
+        if (tasks.isEmpty()) {
+            println(" No tasks found.");
+        } else {
+            renderTasks(tasks, 0, tasks.size(), from + 1);
         }
         printDivider();
+        flush(start);
     }
 
     /**
@@ -70,9 +148,11 @@ public class Ui {
      * @param message the message to be displayed.
      */
     public void showMessage(String message) {
+        long start = System.nanoTime();
         printDivider();
-        System.out.println(message);
+        println(message);
         printDivider();
+        flush(start);
     }
 
     /**
@@ -81,9 +161,11 @@ public class Ui {
      * @param errorMessage the error message to be displayed.
      */
     public void showError(String errorMessage) {
+        long start = System.nanoTime();
         printDivider();
-        System.out.println(" " + errorMessage);
+        println(" " + errorMessage);
         printDivider();
+        flush(start);
     }
 
     /**
@@ -93,6 +175,54 @@ public class Ui {
      * </p>
      */
     private void printDivider() {
-        System.out.println("____________________________________________________________");
+        write(DIVIDER);
+        write(LINE_SEPARATOR);
+    }
+
+    private void flush(long start) {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            // As with System.out, output that cannot be written is dropped.
+        }
+        Metrics.addOutputTime(System.nanoTime() - start);
+    }
+
+    private void println(String text) {
+        write(text.getBytes(CHARSET));
+        write(LINE_SEPARATOR);
+    }
+
+    private void write(byte[] bytes) {
+        try {
+            out.write(bytes);
+        } catch (IOException e) {
+            // As with System.out, output that cannot be written is dropped.
+        }
+    }
+
+    /**
+     * Writes the tasks in the given range, numbered from the given number, from their encoded
+     * lines. The numbers are written directly as ASCII digits, as the default charset is expected to
+     * be ASCII-compatible.
+     */
+    private void renderTasks(List<Task> tasks, int from, int to, int firstNumber) {
+        try {
+            for (int i = from; i < to; i++) {
+                int number = firstNumber + i - from;
+                int start = numberBuffer.length;
+                do {
+                    numberBuffer[--start] = (byte) ('0' + number % 10);
+                    number /= 10;
+                } while (number > 0);
+                numberBuffer[--start] = ' ';
+                out.write(numberBuffer, start, numberBuffer.length - start);
+                out.write(NUMBER_SEPARATOR);
+                out.write(tasks.get(i).getLineBytes());
+                out.write(LINE_SEPARATOR);
+            }
+        } catch (IOException e) {
+            // As with System.out, output that cannot be written is dropped.
+        }
     }
 }
@@ -0,0 +1,80 @@
+/**
+ * Represents a command to undo the last change to the list in use, or to redo it.
+ * <p>
+ * This command backs "undo" and "redo". The history of each list is kept while the list is in
+ * memory, and is shared by everyone using the list.
+ * </p>
+ */
+public class UndoCommand extends WorkspaceCommand {
+    private final boolean isRedo;
+
+    /**
+     * Constructs an UndoCommand.
+     *
+     * @param isRedo whether the last undone change is made again instead of the last change undone.
+     */
+    public UndoCommand(boolean isRedo) {
+        this.isRedo = isRedo;
+    }
+
+    /**
+     * Creates a command that undoes the last change.
+     *
+     * @return the command.
+     */
+    public static UndoCommand undo() {
+        return new UndoCommand(false);
+    }
+
+    /**
+     * Creates a command that makes the last undone change again.
+     *
+     * @return the command.
+     */
+    public static UndoCommand redo() {
+        return new UndoCommand(true);
+    }
+
+    /**
+     * Executes the command by restoring the list in use and showing what changed.
+     *
+     * @param workspace the workspace holding the list in use.
+     * @param ui        the user interface for displaying messages.
+     * @throws AsepException if there is nothing to undo or redo, or the change could not be saved.
+     */
+    @Override
+    public void execute(Workspace workspace, Ui ui) throws AsepException {
+        TaskLists.Entry current = workspace.getCurrent();
+        TaskList tasks = current.getTasks();
+        PersistentTaskList.Difference difference = isRedo
+                ? current.getHistory().redo(tasks, current.getStorage())
+                : current.getHistory().undo(tasks, current.getStorage());
+        StringBuilder sb = new StringBuilder(isRedo ? "Redone! " : "Undone! ");
+        int removed = difference.getRemoved().cardinality();
+        int inserted = difference.getInserted().size();
+        int marked = difference.getMarked().cardinality();
+        int unmarked = difference.getUnmarked().cardinality();
+        if (removed + inserted + marked + unmarked == 0) {
+            sb.append("Nothing needed to change.");
+        } else {
+            sb.append("I've");
+            appendChange(sb, inserted, "put back", "", removed + marked + unmarked > 0);
+            appendChange(sb, removed, "removed", "", marked + unmarked > 0);
+            appendChange(sb, marked, "marked", " as done", unmarked > 0);
+            appendChange(sb, unmarked, "marked", " as not done", false);
+            sb.append('.');
+        }
+        sb.append("\nNow you have ").append(tasks.size()).append(" tasks in the list.");
+        ui.showMessage(sb.toString());
+    }
+
+    private static void appendChange(StringBuilder sb, int count, String verb, String status, boolean hasMore) {
+        if (count == 0) {
+            return;
+        }
+        sb.append(' ').append(verb).append(' ').append(count).append(count == 1 ? " task" : " tasks").append(status);
+        if (hasMore) {
+            sb.append(',');
+        }
+    }
+}
@@ -7,6 +7,7 @@
  */
 public class UnmarkCommand extends Command {
     private int index;
+    private int id;
 
     /**
      * Constructs an UnmarkCommand with the specified task index.
@@ -18,7 +19,19 @@ public class UnmarkCommand extends Command {
     }
 
     /**
-     * Executes the unmark command by marking the task at the given index as not done.
+     * Creates a UnmarkCommand for the task with the given ID.
+     *
+     * @param id the ID of the task to be marked as not done.
+     * @return the command.
+     */
+    public static UnmarkCommand forId(int id) {
+        UnmarkCommand command = new UnmarkCommand(-1);
+        command.id = id;
+        return command;
+    }
+
+    /**
+     * Executes the unmark command by marking the task at the given index, or with the given ID, as not done.
      * <p>
      * This method validates the task index, updates the task's status,
      * saves the updated task list to storage, and shows a confirmation message.
@@ -32,11 +45,21 @@ public class UnmarkCommand extends Command {
      */
     @Override
     public void execute(TaskList tasks, Ui ui, Storage storage) throws AsepException {
+        if (id != 0) {
+            Task task = tasks.getById(id);
+            if (task == null) {
+                throw new AsepException("No task has the ID #" + id + ".");
+            }
+            tasks.markAsNotDone(task);
+            storage.recordUnmark(tasks, task);
+            ui.showMessage("OK, I've marked this task as not done yet:\n   " + task);
+            return;
+        }
         if (index < 0 || index >= tasks.size()) {
             throw new AsepException("Invalid task number.");
         }
-        tasks.get(index).markAsNotDone();
-        storage.saveTasks(tasks);
+        tasks.markAsNotDone(index);
+        storage.recordUnmark(tasks, index);
         ui.showMessage("OK, I've marked this task as not done yet:\n   " + tasks.get(index));
     }
 }
@@ -0,0 +1,33 @@
+/**
+ * Represents a command to switch to another named task list.
+ * <p>
+ * The list is created if it does not exist yet, and loaded if it is not in memory. Loading a list
+ * may drop others from memory and close their files, so the command does not count as read-only
+ * even though it changes no list.
+ * </p>
+ */
+public class UseCommand extends WorkspaceCommand {
+    private final String name;
+
+    /**
+     * Constructs a UseCommand that switches to the given list.
+     *
+     * @param name the name of the list, as returned by {@link TaskLists#checkName(String)}.
+     */
+    public UseCommand(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Executes the command by switching the workspace to the list and showing how many tasks it has.
+     *
+     * @param workspace the workspace whose list in use is changed.
+     * @param ui        the user interface for displaying messages.
+     * @throws AsepException if the list could not be loaded.
+     */
+    @Override
+    public void execute(Workspace workspace, Ui ui) throws AsepException {
+        TaskList tasks = workspace.use(name).getTasks();
+        ui.showMessage("Now using the list \"" + name + "\", which has " + tasks.size() + " tasks.");
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Represents the view of one user, or one connection, onto the named task lists.
+ * <p>
+ * A workspace remembers which list is in use, so that commands operate on that list. Several
+ * workspaces may share one {@link TaskLists}, each using a different list. Only the name of the
+ * list in use is kept, so the list itself may be dropped from memory and loaded again later.
+ * </p>
+ */
+public class Workspace {
+    private final TaskLists lists;
+    private String currentName = TaskLists.DEFAULT_LIST;
+
+    /**
+     * Constructs a Workspace that starts out using the default list.
+     *
+     * @param lists the task lists to work on.
+     */
+    public Workspace(TaskLists lists) {
+        this.lists = lists;
+    }
+
+    /**
+     * Returns the task lists this workspace works on.
+     *
+     * @return the task lists.
+     */
+    public TaskLists getLists() {
+        return lists;
+    }
+
+    /**
+     * Returns the name of the list in use.
+     *
+     * @return the list name.
+     */
+    public String getCurrentName() {
+        return currentName;
+    }
+
+    /**
+     * Indicates whether the list in use is in memory, so that getting it loads no list and drops
+     * none from memory.
+     *
+     * @return true if the list in use is loaded.
+     */
+    public boolean isCurrentLoaded() {
+        return lists.getLoadedSize(currentName) != -1;
+    }
+
+    /**
+     * Returns the list in use, loading it if needed.
+     *
+     * @return the list in use.
+     * @throws AsepException if the list could not be loaded.
+     */
+    public TaskLists.Entry getCurrent() throws AsepException {
+        return lists.get(currentName);
+    }
+
+    /**
+     * Switches to the named list, loading it if needed.
+     *
+     * @param name the name of the list, as returned by {@link TaskLists#checkName(String)}.
+     * @return the list now in use.
+     * @throws AsepException if the list could not be loaded; it is still switched to, empty.
+     */
+    public TaskLists.Entry use(String name) throws AsepException {
+        currentName = name;
+        return lists.get(name);
+    }
+}
@@ -0,0 +1,28 @@
+/**
+ * Represents a command that works on the named task lists, or on the history of the list in use,
+ * rather than on the tasks of the list in use.
+ * <p>
+ * Such commands can only be run through {@link #execute(Workspace, Ui)}.
+ * </p>
+ */
+public abstract class WorkspaceCommand extends Command {
+    /**
+     * Executes the command using the provided workspace and UI.
+     *
+     * @param workspace the workspace holding the task lists and the list in use.
+     * @param ui        the user interface for displaying messages.
+     * @throws AsepException if an error occurs during command execution.
+     */
+    @Override
+    public abstract void execute(Workspace workspace, Ui ui) throws AsepException;
+
+    /**
+     * Rejects running the command on a single task list.
+     *
+     * @throws AsepException always, as the command needs a workspace.
+     */
+    @Override
+    public final void execute(TaskList tasks, Ui ui, Storage storage) throws AsepException {
+        throw new AsepException("This command is only available with named lists.");
+    }
+}